@@ -0,0 +1,53 @@
+package de.riedquat.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of the offcard toolchain and writes the results as JSON, for comparing them between releases.
+ * The JSON file is the JMH result format, which contains the parameters, the score and the error of every benchmark.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public final class BenchmarkMain {
+
+    /**
+     * The file to which the results are written if no file is given.
+     */
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    /**
+     * Utility class - do not instantiate.
+     */
+    private BenchmarkMain() {
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args
+     *         Command line arguments: the file to which to write the results, {@link #DEFAULT_RESULT_FILE} if omitted,
+     *         followed by regular expressions for the benchmarks to run, all benchmarks of this package if omitted.
+     *         For example, {@code jmh-result.json JCReaderBenchmark.mapped} runs only {@link JCReaderBenchmark#mapped()}.
+     * @throws RunnerException
+     *         If a benchmark failed.
+     */
+    public static void main(final String... args) throws RunnerException {
+        final ChainedOptionsBuilder options = new OptionsBuilder()
+                .resultFormat(ResultFormatType.JSON)
+                .result(args.length > 0 ? args[0] : DEFAULT_RESULT_FILE);
+        if (args.length > 1) {
+            for (int i = 1; i < args.length; i++) {
+                options.include(args[i]);
+            }
+        } else {
+            options.include(BenchmarkMain.class.getPackage().getName() + ".");
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,97 @@
+package de.riedquat.benchmark;
+
+import de.riedquat.ReadLine;
+import de.riedquat.ReaderReadLine;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of looking up the Factory in {@link ReadLine.Factory#createReadLine(Object)}.
+ * The lookup is measured for a type with its own Factory, for a subclass of a type with a Factory and for a type without Factory.
+ * Creating a {@link ReaderReadLine} directly is the baseline for the lookup for the subclass, which creates the same ReadLine.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FactoryBenchmark {
+
+    /**
+     * The Reader to wrap, which is never read.
+     */
+    private final Reader reader = new StringReader("");
+
+    /**
+     * The LineNumberReader to wrap, which is never read.
+     */
+    private final LineNumberReader lineNumberReader = new LineNumberReader(reader);
+
+    /**
+     * An object for which there is no Factory.
+     */
+    private final Object unsupported = new Object();
+
+    /**
+     * Creates the ReadLine directly, without lookup.
+     *
+     * @return The ReadLine.
+     */
+    @Benchmark
+    public ReadLine direct() {
+        return new ReaderReadLine(reader);
+    }
+
+    /**
+     * Looks up the Factory for a LineNumberReader, which has its own Factory.
+     *
+     * @return The ReadLine.
+     * @throws IOException
+     *         Not expected.
+     */
+    @Benchmark
+    public ReadLine exactType() throws IOException {
+        return ReadLine.Factory.createReadLine(lineNumberReader);
+    }
+
+    /**
+     * Looks up the Factory for a StringReader, which uses the Factory of its superclass Reader.
+     *
+     * @return The ReadLine.
+     * @throws IOException
+     *         Not expected.
+     */
+    @Benchmark
+    public ReadLine superclass() throws IOException {
+        return ReadLine.Factory.createReadLine(reader);
+    }
+
+    /**
+     * Looks up the Factory for an object for which there is none.
+     *
+     * @return {@code null}.
+     * @throws IOException
+     *         Not expected.
+     */
+    @Benchmark
+    public ReadLine unsupported() throws IOException {
+        return ReadLine.Factory.createReadLine(unsupported);
+    }
+}
@@ -0,0 +1,128 @@
+package de.riedquat.benchmark;
+
+import de.riedquat.JCReader;
+import de.riedquat.MacroExpander;
+import de.riedquat.MappedReadLine;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of {@link JCReader#readLine()}, which reads and expands the lines of a generated test source file.
+ * The source is read once through a Reader and once through a {@link MappedReadLine}.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JCReaderBenchmark {
+
+    /**
+     * The size of the generated source in bytes: 4 KB, 4 MB and 256 MB.
+     */
+    @Param({ "4096", "4194304", "268435456" })
+    public long size;
+
+    /**
+     * Every how many statement lines one contains a macro, see {@link SourceGenerator#SourceGenerator(int)}.
+     */
+    @Param({ "0", "4", "1" })
+    public int macroInterval;
+
+    /**
+     * The generated source file.
+     */
+    private Path file;
+
+    /**
+     * The MacroExpander used by the JCReaders.
+     */
+    private final MacroExpander expander = new MacroExpander();
+
+    /**
+     * Generates the source file.
+     *
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    @Setup
+    public void generate() throws IOException {
+        file = Files.createTempFile("JCReaderBenchmark", ".java");
+        new SourceGenerator(macroInterval).generate(file, size);
+    }
+
+    /**
+     * Deletes the source file.
+     *
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    @TearDown
+    public void delete() throws IOException {
+        Files.delete(file);
+    }
+
+    /**
+     * Reads the source through a Reader.
+     *
+     * @return The total length of the expanded lines.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    @Benchmark
+    public long reader() throws IOException {
+        return readAll(new JCReader(Files.newBufferedReader(file, SourceGenerator.UTF_8), expander));
+    }
+
+    /**
+     * Reads the source through a MappedReadLine.
+     *
+     * @return The total length of the expanded lines.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    @Benchmark
+    public long mapped() throws IOException {
+        return readAll(new JCReader(new MappedReadLine(file, SourceGenerator.UTF_8), expander));
+    }
+
+    /**
+     * Reads all lines of a JCReader and closes it.
+     *
+     * @param jcReader
+     *         JCReader to read.
+     * @return The total length of the lines.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private static long readAll(final JCReader jcReader) throws IOException {
+        long length = 0;
+        try {
+            for (String line; (line = jcReader.readLine()) != null; ) {
+                length += line.length();
+            }
+        } finally {
+            jcReader.close();
+        }
+        return length;
+    }
+}
@@ -0,0 +1,83 @@
+package de.riedquat.benchmark;
+
+import de.riedquat.MacroExpander;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link MacroExpander} with the previous {@link String#replaceAll(String, String)} based macro replacement.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MacroExpanderBenchmark {
+
+    /**
+     * Every how many statement lines one contains a macro, see {@link SourceGenerator#SourceGenerator(int)}.
+     */
+    @Param({ "0", "4", "1" })
+    public int macroInterval;
+
+    /**
+     * The lines of the generated source, about 10000.
+     */
+    private String[] lines;
+
+    /**
+     * The MacroExpander to use.
+     */
+    private final MacroExpander expander = new MacroExpander();
+
+    /**
+     * Generates the source.
+     */
+    @Setup
+    public void generate() {
+        lines = new SourceGenerator(macroInterval).generate(640 * 1024).split("\n");
+    }
+
+    /**
+     * Replaces the macros using {@link String#replaceAll(String, String)}.
+     *
+     * @return Total length of the lines after replacement.
+     */
+    @Benchmark
+    public int replaceAll() {
+        int length = 0;
+        for (int i = 0; i < lines.length; i++) {
+            length += lines[i].replaceAll(MacroExpander.LINE, Integer.toString(i + 1)).length();
+        }
+        return length;
+    }
+
+    /**
+     * Replaces the macros using a {@link MacroExpander}.
+     *
+     * @return Total length of the lines after replacement.
+     */
+    @Benchmark
+    public int macroExpander() {
+        int length = 0;
+        for (int i = 0; i < lines.length; i++) {
+            length += expander.expand(lines[i], i + 1).length();
+        }
+        return length;
+    }
+}
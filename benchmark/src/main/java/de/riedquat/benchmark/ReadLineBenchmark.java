@@ -0,0 +1,85 @@
+package de.riedquat.benchmark;
+
+import de.riedquat.ReadLine;
+import de.riedquat.ReaderReadLine;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the overhead of the Iterator of {@link ReadLine.ReadLineImpl} compared to calling {@link ReadLine#readLine()} directly.
+ * The lines are read from a generated source in memory, so that I/O does not hide the overhead.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReadLineBenchmark {
+
+    /**
+     * The size of the generated source in characters: 4 KB, 256 KB and 16 MB.
+     */
+    @Param({ "4096", "262144", "16777216" })
+    public long size;
+
+    /**
+     * The generated source.
+     */
+    private String source;
+
+    /**
+     * Generates the source.
+     */
+    @Setup
+    public void generate() {
+        source = new SourceGenerator(4).generate(size);
+    }
+
+    /**
+     * Reads the lines by calling {@link ReadLine#readLine()}.
+     *
+     * @return The total length of the lines.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    @Benchmark
+    public long readLine() throws IOException {
+        final ReadLine readLine = new ReaderReadLine(new StringReader(source));
+        long length = 0;
+        for (String line; (line = readLine.readLine()) != null; ) {
+            length += line.length();
+        }
+        return length;
+    }
+
+    /**
+     * Reads the lines through the Iterator.
+     *
+     * @return The total length of the lines.
+     */
+    @Benchmark
+    public long iterator() {
+        long length = 0;
+        for (final String line : new ReaderReadLine(new StringReader(source))) {
+            length += line.length();
+        }
+        return length;
+    }
+}
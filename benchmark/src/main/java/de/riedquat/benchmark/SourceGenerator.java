@@ -0,0 +1,152 @@
+package de.riedquat.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates test sources which look like JCUnit test applets, for feeding the benchmarks with realistic input.
+ * The sources consist of test methods with assignments, calls and assertions.
+ * A configurable share of the lines contains a {@code __LINE__} macro, like the assertions of real tests.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public final class SourceGenerator {
+
+    /**
+     * The Charset of the generated files.
+     */
+    public static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The number of statement lines per test method.
+     */
+    private static final int STATEMENTS_PER_METHOD = 20;
+
+    /**
+     * Every how many lines one contains a macro, 0 for no macros.
+     */
+    private final int macroInterval;
+
+    /**
+     * The number of lines generated so far.
+     */
+    private int lineCount;
+
+    /**
+     * Creates a SourceGenerator.
+     *
+     * @param macroInterval
+     *         Every how many statement lines one contains a {@code __LINE__} macro, 1 for every line, 0 for no macros.
+     */
+    public SourceGenerator(final int macroInterval) {
+        if (macroInterval < 0) {
+            throw new IllegalArgumentException("Invalid macro interval: " + macroInterval);
+        }
+        this.macroInterval = macroInterval;
+    }
+
+    /**
+     * Generates a source of about the given size.
+     *
+     * @param size
+     *         Size in characters, the source is larger by at most one test method.
+     * @return The generated source.
+     */
+    public String generate(final long size) {
+        final StringBuilder out = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8, size + 4096));
+        try {
+            generate(out, size);
+        } catch (final IOException e) {
+            throw new AssertionError(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Generates a source file of about the given size.
+     *
+     * @param file
+     *         File to write.
+     * @param size
+     *         Size in bytes, the file is larger by at most one test method.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    public void generate(final Path file, final long size) throws IOException {
+        final Writer out = Files.newBufferedWriter(file, UTF_8);
+        try {
+            generate(out, size);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Generates a source of about the given size.
+     *
+     * @param out
+     *         Appendable to which to write the source.
+     * @param size
+     *         Size in characters.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private void generate(final Appendable out, final long size) throws IOException {
+        lineCount = 0;
+        long written = line(out, "package de.riedquat.generated;");
+        written += line(out, "");
+        written += line(out, "import static org.jcunit.Assert.assertEquals;");
+        written += line(out, "");
+        written += line(out, "public class GeneratedTest {");
+        for (int method = 0; written < size; method++) {
+            written += line(out, "");
+            written += line(out, "    @org.jcunit.Test");
+            written += line(out, "    public void test" + method + "() {");
+            written += line(out, "        short value = (short) " + method + ";");
+            for (int i = 0; i < STATEMENTS_PER_METHOD; i++) {
+                if (macroInterval != 0 && i % macroInterval == 0) {
+                    written += line(out, "        assertEquals(__LINE__, (short) (value + " + i + "), compute(value, (short) " + i + "));");
+                } else {
+                    written += line(out, "        value = compute(value, (short) " + i + "); // step " + i);
+                }
+            }
+            written += line(out, "    }");
+        }
+        line(out, "");
+        line(out, "    private static short compute(final short value, final short step) {");
+        line(out, "        return (short) (value + step);");
+        line(out, "    }");
+        line(out, "}");
+    }
+
+    /**
+     * Writes a line.
+     *
+     * @param out
+     *         Appendable to which to write the line.
+     * @param text
+     *         Text of the line.
+     * @return The number of characters written.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private int line(final Appendable out, final String text) throws IOException {
+        out.append(text).append('\n');
+        lineCount++;
+        return text.length() + 1;
+    }
+
+    /**
+     * Returns the number of lines of the last generated source.
+     *
+     * @return The number of lines of the last generated source.
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+}
@@ -0,0 +1,186 @@
+package de.riedquat.jcunitdemo.benchmark;
+
+import javacard.framework.Applet;
+import javacard.framework.ISOException;
+import javacard.framework.JCSystem;
+import javacard.framework.Util;
+import org.jcunit.Assert;
+import org.jcunit.BenchmarkApplet;
+
+import static javacard.framework.ISO7816.SW_WARNING_STATE_UNCHANGED;
+
+/**
+ * Compares comparing byte arrays the way {@code Assert.assertArrayEquals} did before, with one assertion per element,
+ * with {@link Assert#assertArrayEquals(short, byte[], byte[])}, which uses {@link Util#arrayCompare(byte[], short, byte[], short, short)}.
+ * The old assertion path is copied below, so that its nested calls per element are measured, too.
+ * The arrays are equal, so both compare all elements.
+ * Persistent arrays are compared with up to 4096 bytes, transient arrays, of which cards have less, with up to 256 bytes.
+ * Run it with {@code de.riedquat.runner.BenchmarkRunner AID
+ * elementAsserts16 arrayCompare16 elementAsserts256 arrayCompare256 elementAsserts1024 arrayCompare1024 elementAsserts4096 arrayCompare4096
+ * elementAssertsTransient16 arrayCompareTransient16 elementAssertsTransient256 arrayCompareTransient256}.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class CompareBenchmark extends BenchmarkApplet {
+
+    /**
+     * The line number passed to the assertions, which never fail.
+     */
+    private static final short LINE = 1;
+
+    /**
+     * The mask for making sure the lineNumber does not overflow the status word, copied from the old Assert.
+     */
+    private static final short LINE_NUMBER_MASK = 0x3FF;
+
+    /**
+     * The number of pairs of arrays.
+     */
+    private static final byte PAIRS = 6;
+
+    /**
+     * The first arrays of the pairs to compare, byte arrays.
+     */
+    private final Object[] expecteds = new Object[PAIRS];
+
+    /**
+     * The second arrays of the pairs to compare, byte arrays.
+     */
+    private final Object[] actuals = new Object[PAIRS];
+
+    /**
+     * Creates a CompareBenchmark.
+     */
+    private CompareBenchmark() {
+        createPair((byte) 0, (short) 16, false);
+        createPair((byte) 1, (short) 256, false);
+        createPair((byte) 2, (short) 1024, false);
+        createPair((byte) 3, (short) 4096, false);
+        createPair((byte) 4, (short) 16, true);
+        createPair((byte) 5, (short) 256, true);
+    }
+
+    /**
+     * Creates a pair of arrays to compare.
+     *
+     * @param pair
+     *         Index of the pair.
+     * @param size
+     *         Length of the arrays.
+     * @param isTransient
+     *         {@code true} for transient arrays, {@code false} for persistent arrays.
+     */
+    private void createPair(final byte pair, final short size, final boolean isTransient) {
+        expecteds[pair] = isTransient ? JCSystem.makeTransientByteArray(size, JCSystem.CLEAR_ON_DESELECT) : new byte[size];
+        actuals[pair] = isTransient ? JCSystem.makeTransientByteArray(size, JCSystem.CLEAR_ON_DESELECT) : new byte[size];
+    }
+
+    /**
+     * Installs this applet.
+     *
+     * @param bArray
+     *         the array containing the installation parameters.
+     * @param bOffset
+     *         the starting offset in bArray.
+     * @param bLength
+     *         the length in bytes of the parameter data in bArray.
+     * @throws ISOException
+     *         if the install method failed.
+     * @see Applet#install(byte[], short, byte)
+     */
+    @SuppressWarnings({"UnusedParameters", "UnnecessaryJavaDocLink", "UnusedDeclaration"})
+    public static void install(final byte[] bArray, final short bOffset, final byte bLength) throws ISOException {
+        new CompareBenchmark().register();
+    }
+
+    @Override
+    protected byte getOperationCount() {
+        return 2 * PAIRS;
+    }
+
+    @Override
+    protected void runOperation(final byte index) {
+        final byte pair = (byte) (index >> 1);
+        final byte[] a = (byte[]) expecteds[pair];
+        final byte[] b = (byte[]) actuals[pair];
+        if ((index & 1) == 0) {
+            oldAssertArrayEquals(LINE, a, b);
+        } else {
+            Assert.assertArrayEquals(LINE, a, b);
+        }
+    }
+
+    // The following methods are Assert.assertArrayEquals(short, byte[], byte[]) and the methods it called before it used Util.arrayCompare.
+    // The only change is that the lengths are compared as short, the old code boxed them into Integer, which Java Card does not support.
+
+    /**
+     * Asserts that two byte arrays are equal, one element after the other.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param expecteds
+     *         byte array with expected values.
+     * @param actuals
+     *         byte array with actual values.
+     */
+    private static void oldAssertArrayEquals(final short lineNumber, final byte[] expecteds, final byte[] actuals) {
+        oldAssertEquals(lineNumber, (short) expecteds.length, (short) actuals.length);
+        for (short index = 0; index < expecteds.length; index++) {
+            oldAssertEquals(lineNumber, expecteds[index], actuals[index]);
+        }
+    }
+
+    /**
+     * Asserts that the two given byte values are equal.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param expected
+     *         Expected value.
+     * @param actual
+     *         Actual value.
+     */
+    private static void oldAssertEquals(final short lineNumber, final byte expected, final byte actual) {
+        oldAssertTrue(lineNumber, expected == actual);
+    }
+
+    /**
+     * Asserts that the two given short values are equal.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param expected
+     *         Expected value.
+     * @param actual
+     *         Actual value.
+     */
+    private static void oldAssertEquals(final short lineNumber, final short expected, final short actual) {
+        oldAssertTrue(lineNumber, expected == actual);
+    }
+
+    /**
+     * Asserts that the given condition is true.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param condition
+     *         Condition to assert true.
+     */
+    private static void oldAssertTrue(final short lineNumber, final boolean condition) {
+        if (!condition) {
+            oldFail(lineNumber);
+        }
+    }
+
+    /**
+     * Makes the test fail.
+     *
+     * @param lineNumber
+     *         Line number in which the test failed.
+     */
+    private static void oldFail(final short lineNumber) {
+        ISOException.throwIt((short) (SW_WARNING_STATE_UNCHANGED + (short) (lineNumber & LINE_NUMBER_MASK)));
+    }
+}
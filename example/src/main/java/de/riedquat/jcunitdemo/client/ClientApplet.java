@@ -1,13 +1,24 @@
 package de.riedquat.jcunitdemo.client;
 
 import de.riedquat.jcunitdemo.server.MemoryAccess;
+import javacard.framework.AID;
 import javacard.framework.APDU;
 import javacard.framework.Applet;
+import javacard.framework.ISO7816;
 import javacard.framework.ISOException;
 import javacard.framework.JCSystem;
+import javacard.framework.Util;
 
 /**
  * Accesses the array of another applet.
+ * The AID of the {@link de.riedquat.jcunitdemo.server.ServerApplet} is given as application specific install parameters.
+ * Its {@link MemoryAccess} is looked up once, on the first command which needs it, and then kept.
+ * <p>
+ * For measuring the cost of crossing the firewall, the array can be read element by element or copied in one call.
+ * The commands for that take the offset, the length and the number of iterations as three shorts in the command data,
+ * and respond with the bytes read.
+ * The baseline command takes the same data and runs the same loop without reading, so it makes no Shareable call,
+ * and responds with as many bytes.
  *
  * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
  * @version 1.0
@@ -15,6 +26,51 @@ import javacard.framework.JCSystem;
  */
 public class ClientApplet extends Applet {
 
+    /**
+     * Instruction byte for reading the array of the server element by element.
+     */
+    private static final byte GET_ELEMENTS = 0x01;
+
+    /**
+     * Instruction byte for copying the array of the server in one call.
+     */
+    private static final byte COPY_BULK = 0x02;
+
+    /**
+     * Instruction byte for running the loop without reading, the baseline for {@link #GET_ELEMENTS} and {@link #COPY_BULK}.
+     */
+    private static final byte EMPTY_LOOP = 0x03;
+
+    /**
+     * The maximum length which can be read, the most {@link APDU#setOutgoingAndSend(short, short)} sends.
+     */
+    private static final short MAX_LENGTH = 256;
+
+    /**
+     * The AID of the server.
+     */
+    private final byte[] serverAid;
+
+    /**
+     * The MemoryAccess of the server, {@code null} until it is looked up.
+     */
+    private MemoryAccess memoryAccess;
+
+    /**
+     * Creates a ClientApplet.
+     *
+     * @param bArray
+     *         Array with the AID of the server.
+     * @param bOffset
+     *         Offset of the AID of the server in bArray.
+     * @param bLength
+     *         Length of the AID of the server.
+     */
+    private ClientApplet(final byte[] bArray, final short bOffset, final byte bLength) {
+        serverAid = new byte[bLength];
+        Util.arrayCopyNonAtomic(bArray, bOffset, serverAid, (short) 0, bLength);
+    }
+
     /**
      * Installs this applet.
      *
@@ -30,7 +86,11 @@ public class ClientApplet extends Applet {
      */
     @SuppressWarnings({"UnusedParameters", "UnnecessaryJavaDocLink", "UnusedDeclaration", "OverloadedMethodsWithSameNumberOfParameters"})
     public static void install(final byte[] bArray, final short bOffset, final byte bLength) throws ISOException {
-        new ClientApplet().register();
+        // Skip the instance AID and the control information to get to the application specific parameters.
+        short offset = bOffset;
+        offset += (short) (bArray[offset] + 1);
+        offset += (short) (bArray[offset] + 1);
+        new ClientApplet(bArray, (short) (offset + 1), bArray[offset]).register();
     }
 
     @Override
@@ -38,6 +98,58 @@ public class ClientApplet extends Applet {
         if (selectingApplet()) {
             return;
         }
-        //final MemoryAccess memoryAccess = JCSystem.getAppletShareableInterfaceObject(JCSystem.lookupAID(...));
+        final byte[] buffer = apdu.getBuffer();
+        final byte ins = buffer[ISO7816.OFFSET_INS];
+        if (ins != GET_ELEMENTS && ins != COPY_BULK && ins != EMPTY_LOOP) {
+            ISOException.throwIt(ISO7816.SW_INS_NOT_SUPPORTED);
+        }
+        if (apdu.setIncomingAndReceive() != 0x06) {
+            ISOException.throwIt(ISO7816.SW_WRONG_LENGTH);
+        }
+        final short offset = Util.getShort(buffer, ISO7816.OFFSET_CDATA);
+        final short length = Util.getShort(buffer, (short) (ISO7816.OFFSET_CDATA + 2));
+        final short iterations = Util.getShort(buffer, (short) (ISO7816.OFFSET_CDATA + 4));
+        if (length < 0 || length > MAX_LENGTH || length > buffer.length) {
+            ISOException.throwIt(ISO7816.SW_WRONG_DATA);
+        }
+        // Count down to 0 so that up to 65535 iterations can be given in an unsigned short.
+        if (ins == EMPTY_LOOP) {
+            for (short i = iterations; i != 0; i--) {
+            }
+        } else if (ins == GET_ELEMENTS) {
+            final MemoryAccess server = getMemoryAccess();
+            for (short i = iterations; i != 0; i--) {
+                for (short index = 0; index < length; index++) {
+                    buffer[index] = server.getByte((short) (offset + index));
+                }
+            }
+        } else {
+            final MemoryAccess server = getMemoryAccess();
+            for (short i = iterations; i != 0; i--) {
+                server.copyBytes(offset, buffer, (short) 0, length);
+            }
+        }
+        apdu.setOutgoingAndSend((short) 0, length);
+    }
+
+    /**
+     * Returns the MemoryAccess of the server, looking it up on first use.
+     *
+     * @return The MemoryAccess of the server.
+     * @throws ISOException
+     *         If the server is not installed or does not grant access.
+     */
+    private MemoryAccess getMemoryAccess() {
+        if (memoryAccess == null) {
+            final AID aid = JCSystem.lookupAID(serverAid, (short) 0, (byte) serverAid.length);
+            if (aid == null) {
+                ISOException.throwIt(ISO7816.SW_FILE_NOT_FOUND);
+            }
+            memoryAccess = (MemoryAccess) JCSystem.getAppletShareableInterfaceObject(aid, (byte) 0);
+            if (memoryAccess == null) {
+                ISOException.throwIt(ISO7816.SW_CONDITIONS_NOT_SATISFIED);
+            }
+        }
+        return memoryAccess;
     }
 }
@@ -19,4 +19,34 @@ public interface MemoryAccess extends Shareable {
      * @return The array to play with or {@code null} if there currently is no array.
      */
     Object getArray();
+
+    /**
+     * Returns an element of the array, which must be a byte array.
+     * Every call crosses the firewall, so this is the slow way to read the array from another applet.
+     *
+     * @param index
+     *         Index of the element to return.
+     * @return The element.
+     * @throws javacard.framework.ISOException
+     *         If there is no array or it is not a byte array.
+     */
+    byte getByte(short index);
+
+    /**
+     * Copies a range of the array, which must be a byte array, in one call.
+     * The firewall only allows copying into global arrays, like the APDU buffer.
+     *
+     * @param offset
+     *         Offset of the range in the array.
+     * @param destination
+     *         Global byte array into which to copy the range.
+     * @param destinationOffset
+     *         Offset in destination at which to copy the range.
+     * @param length
+     *         Length of the range.
+     * @return {@code destinationOffset + length}.
+     * @throws javacard.framework.ISOException
+     *         If there is no array or it is not a byte array.
+     */
+    short copyBytes(short offset, byte[] destination, short destinationOffset, short length);
 }
@@ -13,6 +13,10 @@ import javacardx.framework.util.intx.JCint;
 
 /**
  * Creates an array and provides access to it.
+ * For measuring how fast the different types of memory are, it can also read, write, fill and copy the array repeatedly.
+ * The commands for that take the number of elements to access and the number of iterations as two shorts in the command data.
+ * The copy command copies the first elements of the array to the elements following them, so the array must be twice as long.
+ * The delete command drops the array and requests its deletion, so that arrays can be created again and again.
  *
  * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
  * @version 1.0
@@ -30,6 +34,31 @@ public class ServerApplet extends Applet implements MemoryAccess {
      */
     private static final byte CREATE_GLOBAL_ARRAY = 0x02;
 
+    /**
+     * Instruction byte for reading the array element by element.
+     */
+    private static final byte READ_ARRAY = 0x03;
+
+    /**
+     * Instruction byte for writing the array element by element.
+     */
+    private static final byte WRITE_ARRAY = 0x04;
+
+    /**
+     * Instruction byte for filling the array, natively for byte arrays.
+     */
+    private static final byte FILL_ARRAY = 0x05;
+
+    /**
+     * Instruction byte for copying within the array, natively for byte arrays.
+     */
+    private static final byte COPY_ARRAY = 0x06;
+
+    /**
+     * Instruction byte for dropping the array and requesting its deletion.
+     */
+    private static final byte DELETE_ARRAY = 0x07;
+
     /**
      * The array that is being tested.
      */
@@ -65,6 +94,15 @@ public class ServerApplet extends Applet implements MemoryAccess {
         case CREATE_GLOBAL_ARRAY:
             createGlobalArray(apdu);
             break;
+        case READ_ARRAY:
+        case WRITE_ARRAY:
+        case FILL_ARRAY:
+        case COPY_ARRAY:
+            accessArray(apdu);
+            break;
+        case DELETE_ARRAY:
+            deleteArray();
+            break;
         default:
             ISOException.throwIt(ISO7816.SW_INS_NOT_SUPPORTED);
         }
@@ -114,6 +152,221 @@ public class ServerApplet extends Applet implements MemoryAccess {
         array = JCSystem.makeGlobalArray(type, length);
     }
 
+    /**
+     * Drops the current array and requests its deletion, which happens after this command.
+     */
+    private void deleteArray() {
+        array = null;
+        if (JCSystem.isObjectDeletionSupported()) {
+            JCSystem.requestObjectDeletion();
+        }
+    }
+
+    /**
+     * Reads, writes, fills or copies the array repeatedly.
+     *
+     * @param apdu
+     *         APDU with the instruction, the number of elements to access and the number of iterations.
+     */
+    private void accessArray(final APDU apdu) {
+        final byte[] buffer = apdu.getBuffer();
+        final byte ins = buffer[ISO7816.OFFSET_INS];
+        final short bytesReceived = apdu.setIncomingAndReceive();
+        if (bytesReceived != 0x04) {
+            ISOException.throwIt(ISO7816.SW_WRONG_LENGTH);
+        }
+        final short length = Util.getShort(buffer, ISO7816.OFFSET_CDATA);
+        final short iterations = Util.getShort(buffer, (short) (ISO7816.OFFSET_CDATA + 2));
+        if (array == null) {
+            ISOException.throwIt(ISO7816.SW_CONDITIONS_NOT_SATISFIED);
+        }
+        // Count down to 0 so that up to 65535 iterations can be given in an unsigned short.
+        for (short i = iterations; i != 0; i--) {
+            if (array instanceof byte[]) {
+                accessByteArray((byte[]) array, ins, length);
+            } else if (array instanceof short[]) {
+                accessShortArray((short[]) array, ins, length);
+            } else if (array instanceof boolean[]) {
+                accessBooleanArray((boolean[]) array, ins, length);
+            } else if (array instanceof Object[]) {
+                accessObjectArray((Object[]) array, ins, length);
+            } else {
+                accessIntArray((int[]) array, ins, length);
+            }
+        }
+    }
+
+    /**
+     * Reads, writes, fills or copies a byte array once.
+     *
+     * @param bytes
+     *         Array to access.
+     * @param ins
+     *         Instruction byte which tells how to access the array.
+     * @param length
+     *         Number of elements to access.
+     */
+    private static void accessByteArray(final byte[] bytes, final byte ins, final short length) {
+        switch (ins) {
+        case READ_ARRAY:
+            byte sum = 0;
+            for (short index = 0; index < length; index++) {
+                sum += bytes[index];
+            }
+            break;
+        case WRITE_ARRAY:
+            for (short index = 0; index < length; index++) {
+                bytes[index] = (byte) index;
+            }
+            break;
+        case FILL_ARRAY:
+            Util.arrayFillNonAtomic(bytes, (short) 0, length, (byte) 0x55);
+            break;
+        default:
+            Util.arrayCopyNonAtomic(bytes, (short) 0, bytes, length, length);
+        }
+    }
+
+    /**
+     * Reads, writes, fills or copies a short array once.
+     *
+     * @param shorts
+     *         Array to access.
+     * @param ins
+     *         Instruction byte which tells how to access the array.
+     * @param length
+     *         Number of elements to access.
+     */
+    private static void accessShortArray(final short[] shorts, final byte ins, final short length) {
+        switch (ins) {
+        case READ_ARRAY:
+            short sum = 0;
+            for (short index = 0; index < length; index++) {
+                sum += shorts[index];
+            }
+            break;
+        case WRITE_ARRAY:
+            for (short index = 0; index < length; index++) {
+                shorts[index] = index;
+            }
+            break;
+        case FILL_ARRAY:
+            for (short index = 0; index < length; index++) {
+                shorts[index] = 0x5555;
+            }
+            break;
+        default:
+            for (short index = 0; index < length; index++) {
+                shorts[(short) (length + index)] = shorts[index];
+            }
+        }
+    }
+
+    /**
+     * Reads, writes, fills or copies a boolean array once.
+     *
+     * @param booleans
+     *         Array to access.
+     * @param ins
+     *         Instruction byte which tells how to access the array.
+     * @param length
+     *         Number of elements to access.
+     */
+    private static void accessBooleanArray(final boolean[] booleans, final byte ins, final short length) {
+        switch (ins) {
+        case READ_ARRAY:
+            boolean any = false;
+            for (short index = 0; index < length; index++) {
+                any |= booleans[index];
+            }
+            break;
+        case WRITE_ARRAY:
+            for (short index = 0; index < length; index++) {
+                booleans[index] = (short) (index & 1) != 0;
+            }
+            break;
+        case FILL_ARRAY:
+            for (short index = 0; index < length; index++) {
+                booleans[index] = true;
+            }
+            break;
+        default:
+            for (short index = 0; index < length; index++) {
+                booleans[(short) (length + index)] = booleans[index];
+            }
+        }
+    }
+
+    /**
+     * Reads, writes, fills or copies an Object array once.
+     *
+     * @param objects
+     *         Array to access.
+     * @param ins
+     *         Instruction byte which tells how to access the array.
+     * @param length
+     *         Number of elements to access.
+     */
+    private void accessObjectArray(final Object[] objects, final byte ins, final short length) {
+        switch (ins) {
+        case READ_ARRAY:
+            Object last = null;
+            for (short index = 0; index < length; index++) {
+                last = objects[index];
+            }
+            break;
+        case WRITE_ARRAY:
+            for (short index = 0; index < length; index++) {
+                objects[index] = (short) (index & 1) != 0 ? this : null;
+            }
+            break;
+        case FILL_ARRAY:
+            for (short index = 0; index < length; index++) {
+                objects[index] = this;
+            }
+            break;
+        default:
+            for (short index = 0; index < length; index++) {
+                objects[(short) (length + index)] = objects[index];
+            }
+        }
+    }
+
+    /**
+     * Reads, writes, fills or copies an int array once.
+     *
+     * @param ints
+     *         Array to access.
+     * @param ins
+     *         Instruction byte which tells how to access the array.
+     * @param length
+     *         Number of elements to access.
+     */
+    private static void accessIntArray(final int[] ints, final byte ins, final short length) {
+        switch (ins) {
+        case READ_ARRAY:
+            int sum = 0;
+            for (short index = 0; index < length; index++) {
+                sum += ints[index];
+            }
+            break;
+        case WRITE_ARRAY:
+            for (short index = 0; index < length; index++) {
+                ints[index] = index;
+            }
+            break;
+        case FILL_ARRAY:
+            for (short index = 0; index < length; index++) {
+                ints[index] = 0x55555555;
+            }
+            break;
+        default:
+            for (short index = 0; index < length; index++) {
+                ints[(short) (length + index)] = ints[index];
+            }
+        }
+    }
+
     /**
      * Creates the specified type of transient array.
      *
@@ -218,4 +471,28 @@ public class ServerApplet extends Applet implements MemoryAccess {
     public Object getArray() {
         return array;
     }
+
+    @Override
+    public byte getByte(final short index) {
+        return getByteArray()[index];
+    }
+
+    @Override
+    public short copyBytes(final short offset, final byte[] destination, final short destinationOffset, final short length) {
+        return Util.arrayCopyNonAtomic(getByteArray(), offset, destination, destinationOffset, length);
+    }
+
+    /**
+     * Returns the array, which must be a byte array.
+     *
+     * @return The array.
+     * @throws ISOException
+     *         If there is no array or it is not a byte array.
+     */
+    private byte[] getByteArray() {
+        if (!(array instanceof byte[])) {
+            ISOException.throwIt(ISO7816.SW_CONDITIONS_NOT_SATISFIED);
+        }
+        return (byte[]) array;
+    }
 }
@@ -0,0 +1,220 @@
+package de.riedquat.jcunitdemo.offcard;
+
+import de.riedquat.runner.BenchmarkResult;
+import de.riedquat.runner.BenchmarkRunner;
+import de.riedquat.runner.CardTransport;
+import de.riedquat.runner.ChannelTransport;
+import de.riedquat.runner.StatusWords;
+import de.riedquat.runner.TestRunner;
+import java.io.PrintStream;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * Measures how fast the ServerApplet reads, writes, fills and copies arrays of every type in every type of memory.
+ * For every array type, memory type and size, the ServerApplet creates an array, then each operation is timed, then the array is deleted again,
+ * so that the next array fits into memory.
+ * Each operation is also timed with 0 elements, which is subtracted as baseline by {@link BenchmarkRunner}, so the result is the time per element.
+ * The results are printed as CSV.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class ArrayThroughput {
+
+    /**
+     * The names of the array types, indexed by {@code JCSystem.ARRAY_TYPE_*}.
+     */
+    private static final String[] TYPES = { null, "boolean", "byte", "short", "int", "Object" };
+
+    /**
+     * The names of the memory types, indexed by {@code JCSystem.MEMORY_TYPE_*}, followed by global memory.
+     */
+    private static final String[] MEMORIES = { "persistent", "transientReset", "transientDeselect", "global" };
+
+    /**
+     * The names of the operations, indexed by their INS.
+     */
+    private static final String[] OPERATIONS = { null, null, null, "read", "write", "fill", "copy" };
+
+    /**
+     * The numbers of elements to access.
+     */
+    private static final int[] SIZES = { 16, 64, 256 };
+
+    /**
+     * INS for creating a non-global array.
+     */
+    private static final int CREATE_NON_GLOBAL_ARRAY = 0x01;
+
+    /**
+     * INS for creating a global array.
+     */
+    private static final int CREATE_GLOBAL_ARRAY = 0x02;
+
+    /**
+     * INS for deleting the array.
+     */
+    private static final int DELETE_ARRAY = 0x07;
+
+    /**
+     * The index of global memory in {@link #MEMORIES}.
+     */
+    private static final int GLOBAL = 3;
+
+    /**
+     * The number of warm-up commands per operation.
+     */
+    private static final int WARMUPS = 2;
+
+    /**
+     * The number of measured commands per operation.
+     */
+    private static final int SAMPLES = 10;
+
+    /**
+     * The number of times the operation is run per command.
+     */
+    private static final int ITERATIONS = 10;
+
+    /**
+     * The transport to the card.
+     */
+    private final CardTransport transport;
+
+    /**
+     * The runner which measures the operations.
+     */
+    private final BenchmarkRunner runner;
+
+    /**
+     * Creates an ArrayThroughput.
+     *
+     * @param transport
+     *         Transport to the card.
+     */
+    public ArrayThroughput(final CardTransport transport) {
+        this.transport = transport;
+        runner = new BenchmarkRunner(transport, WARMUPS, SAMPLES, ITERATIONS);
+    }
+
+    /**
+     * Measures the ServerApplet on the first card found.
+     *
+     * @param args
+     *         Command line arguments: the AID of the ServerApplet in hexadecimal notation.
+     * @throws CardException
+     *         In case of communication problems.
+     */
+    public static void main(final String... args) throws CardException {
+        if (args.length != 1) {
+            System.err.println("Usage: java " + ArrayThroughput.class.getName() + " AID");
+            System.exit(2);
+        }
+        final CardTransport transport = ChannelTransport.connect(null);
+        try {
+            new ArrayThroughput(transport).sweep(TestRunner.parseHex(args[0]), System.out);
+        } finally {
+            transport.close();
+        }
+    }
+
+    /**
+     * Measures all combinations of array type, memory type, size and operation.
+     * Combinations which the card does not support are reported as such.
+     *
+     * @param aid
+     *         AID of the ServerApplet.
+     * @param out
+     *         PrintStream to which to print the results.
+     * @throws CardException
+     *         In case of communication problems or if the ServerApplet cannot be selected.
+     */
+    public void sweep(final byte[] aid, final PrintStream out) throws CardException {
+        check(transport.transmit(TestRunner.createSelectCommand(aid)), "select");
+        out.println("type,memory,size,operation,nsPerElement,elementsPerSecond");
+        for (int type = 1; type < TYPES.length; type++) {
+            for (int memory = 0; memory < MEMORIES.length; memory++) {
+                for (final int size : SIZES) {
+                    final String prefix = TYPES[type] + ',' + MEMORIES[memory] + ',' + size + ',';
+                    final int createSw = transport.transmit(createArray(type, memory, 2 * size)).getSW();
+                    if (createSw != StatusWords.SW_NO_ERROR) {
+                        out.println(prefix + "create,unsupported " + StatusWords.toString(createSw) + ',');
+                        continue;
+                    }
+                    for (int ins = 3; ins < OPERATIONS.length; ins++) {
+                        final BenchmarkResult result = measure(ins, size);
+                        if (result.isBelowResolution()) {
+                            out.printf("%s%s,%.1f,below resolution%n", prefix, OPERATIONS[ins], result.getMeanNanos());
+                        } else {
+                            out.printf("%s%s,%.1f,%.0f%n", prefix, OPERATIONS[ins], result.getMeanNanos(), result.getOperationsPerSecond());
+                        }
+                    }
+                    check(transport.transmit(new CommandAPDU(0x80, DELETE_ARRAY, 0x00, 0x00)), "delete");
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the command which makes the ServerApplet create an array.
+     *
+     * @param type
+     *         Array type.
+     * @param memory
+     *         Index of the memory type in {@link #MEMORIES}.
+     * @param length
+     *         Length of the array.
+     * @return The command.
+     */
+    private static CommandAPDU createArray(final int type, final int memory, final int length) {
+        final byte[] data = { (byte) (length >> 8), (byte) length };
+        return memory == GLOBAL ? new CommandAPDU(0x80, CREATE_GLOBAL_ARRAY, type, 0x00, data) : new CommandAPDU(0x80, CREATE_NON_GLOBAL_ARRAY, type, memory, data);
+    }
+
+    /**
+     * Measures an operation on the current array.
+     *
+     * @param ins
+     *         INS of the operation.
+     * @param size
+     *         Number of elements to access.
+     * @return The result, per element.
+     * @throws CardException
+     *         In case of communication problems or if the operation fails.
+     */
+    private BenchmarkResult measure(final int ins, final int size) throws CardException {
+        return runner.measure(OPERATIONS[ins], accessArray(ins, size), accessArray(ins, 0), ITERATIONS * size);
+    }
+
+    /**
+     * Creates the command which makes the ServerApplet access its array.
+     *
+     * @param ins
+     *         INS of the operation.
+     * @param size
+     *         Number of elements to access.
+     * @return The command.
+     */
+    private static CommandAPDU accessArray(final int ins, final int size) {
+        return new CommandAPDU(0x80, ins, 0x00, 0x00, new byte[] { (byte) (size >> 8), (byte) size, (byte) (ITERATIONS >> 8), (byte) ITERATIONS });
+    }
+
+    /**
+     * Checks that a command succeeded.
+     *
+     * @param response
+     *         Response to the command.
+     * @param what
+     *         Description of the command, for the error message.
+     * @throws CardException
+     *         If the command failed.
+     */
+    private static void check(final ResponseAPDU response, final String what) throws CardException {
+        if (response.getSW() != StatusWords.SW_NO_ERROR) {
+            throw new CardException(what + " failed: " + StatusWords.describe(response.getSW()));
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package de.riedquat.jcunitdemo.offcard;
+
+import de.riedquat.runner.BenchmarkResult;
+import de.riedquat.runner.BenchmarkRunner;
+import de.riedquat.runner.CardTransport;
+import de.riedquat.runner.ChannelTransport;
+import de.riedquat.runner.StatusWords;
+import de.riedquat.runner.TestRunner;
+import java.io.PrintStream;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * Compares reading the array of the ServerApplet from the ClientApplet element by element with copying it in one Shareable call.
+ * The ServerApplet is made to create a persistent byte array, then the ClientApplet reads ranges of different sizes from it.
+ * Both are measured by {@link BenchmarkRunner} against the same baseline, a command which runs the loop of the ClientApplet without reading,
+ * so it makes no Shareable call, and which responds with as many bytes.
+ * The time per read is printed as CSV for every size.
+ * Then the time per Shareable call and the time per byte are printed for both methods, fitted over all sizes with least squares:
+ * the time of a read is the time per call plus the number of bytes times the time per byte.
+ * For copying in one call, the time per call is the fixed cost of crossing the firewall.
+ * For reading element by element, it is about 0, because every byte costs a call.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class FirewallBenchmark {
+
+    /**
+     * The numbers of bytes to read.
+     */
+    private static final int[] SIZES = { 1, 16, 64, 255 };
+
+    /**
+     * INS of the ServerApplet for creating a non-global array.
+     */
+    private static final int CREATE_NON_GLOBAL_ARRAY = 0x01;
+
+    /**
+     * Array type byte, see {@code JCSystem.ARRAY_TYPE_BYTE}.
+     */
+    private static final int ARRAY_TYPE_BYTE = 2;
+
+    /**
+     * INS of the ClientApplet for reading element by element.
+     */
+    private static final int GET_ELEMENTS = 0x01;
+
+    /**
+     * INS of the ClientApplet for copying in one call.
+     */
+    private static final int COPY_BULK = 0x02;
+
+    /**
+     * INS of the ClientApplet for running its loop without reading, the baseline.
+     */
+    private static final int EMPTY_LOOP = 0x03;
+
+    /**
+     * The names of the methods, indexed by INS.
+     */
+    private static final String[] METHODS = { null, "element", "bulk" };
+
+    /**
+     * The number of warm-up commands per measurement.
+     */
+    private static final int WARMUPS = 2;
+
+    /**
+     * The number of measured commands per measurement.
+     */
+    private static final int SAMPLES = 10;
+
+    /**
+     * The number of times the range is read per command.
+     */
+    private static final int ITERATIONS = 10;
+
+    /**
+     * The transport to the card.
+     */
+    private final CardTransport transport;
+
+    /**
+     * The runner which measures the commands.
+     */
+    private final BenchmarkRunner runner;
+
+    /**
+     * Creates a FirewallBenchmark.
+     *
+     * @param transport
+     *         Transport to the card.
+     */
+    public FirewallBenchmark(final CardTransport transport) {
+        this.transport = transport;
+        runner = new BenchmarkRunner(transport, WARMUPS, SAMPLES, ITERATIONS);
+    }
+
+    /**
+     * Measures on the first card found.
+     *
+     * @param args
+     *         Command line arguments: the AIDs of the ServerApplet and the ClientApplet in hexadecimal notation.
+     *         The ClientApplet must have been installed with the AID of the ServerApplet as application specific parameters.
+     * @throws CardException
+     *         In case of communication problems.
+     */
+    public static void main(final String... args) throws CardException {
+        if (args.length != 2) {
+            System.err.println("Usage: java " + FirewallBenchmark.class.getName() + " SERVER_AID CLIENT_AID");
+            System.exit(2);
+        }
+        final CardTransport transport = ChannelTransport.connect(null);
+        try {
+            new FirewallBenchmark(transport).run(TestRunner.parseHex(args[0]), TestRunner.parseHex(args[1]), System.out);
+        } finally {
+            transport.close();
+        }
+    }
+
+    /**
+     * Measures reading element by element and copying in one call for all sizes.
+     *
+     * @param serverAid
+     *         AID of the ServerApplet.
+     * @param clientAid
+     *         AID of the ClientApplet.
+     * @param out
+     *         PrintStream to which to print the results.
+     * @throws CardException
+     *         In case of communication problems or if a command fails.
+     */
+    public void run(final byte[] serverAid, final byte[] clientAid, final PrintStream out) throws CardException {
+        final int maxSize = SIZES[SIZES.length - 1];
+        check(transport.transmit(TestRunner.createSelectCommand(serverAid)), "select server");
+        check(transport.transmit(new CommandAPDU(0x80, CREATE_NON_GLOBAL_ARRAY, ARRAY_TYPE_BYTE, 0x00, new byte[] { (byte) (maxSize >> 8), (byte) maxSize })), "create array");
+        check(transport.transmit(TestRunner.createSelectCommand(clientAid)), "select client");
+        final double[][] nanos = new double[METHODS.length][SIZES.length];
+        out.println("size,method,nsPerRead");
+        for (int i = 0; i < SIZES.length; i++) {
+            for (int ins = GET_ELEMENTS; ins < METHODS.length; ins++) {
+                nanos[ins][i] = measure(ins, SIZES[i]).getMeanNanos();
+                out.printf("%d,%s,%.1f%n", SIZES[i], METHODS[ins], nanos[ins][i]);
+            }
+        }
+        out.println();
+        out.println("method,nsPerCall,nsPerByte");
+        for (int ins = GET_ELEMENTS; ins < METHODS.length; ins++) {
+            final double[] line = fit(SIZES, nanos[ins]);
+            out.printf("%s,%.1f,%.1f%n", METHODS[ins], line[0], line[1]);
+        }
+    }
+
+    /**
+     * Fits a straight line through measured times with least squares.
+     *
+     * @param sizes
+     *         Numbers of bytes read.
+     * @param nanos
+     *         Times of the reads, in nanoseconds.
+     * @return The time at 0 bytes and the time per byte, in nanoseconds.
+     */
+    private static double[] fit(final int[] sizes, final double[] nanos) {
+        double meanSize = 0;
+        double meanNanos = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            meanSize += sizes[i];
+            meanNanos += nanos[i];
+        }
+        meanSize /= sizes.length;
+        meanNanos /= sizes.length;
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            covariance += (sizes[i] - meanSize) * (nanos[i] - meanNanos);
+            variance += (sizes[i] - meanSize) * (sizes[i] - meanSize);
+        }
+        final double perByte = covariance / variance;
+        return new double[] { meanNanos - perByte * meanSize, perByte };
+    }
+
+    /**
+     * Measures reading a range of the array of the ServerApplet.
+     *
+     * @param ins
+     *         INS of the ClientApplet for reading.
+     * @param size
+     *         Number of bytes to read.
+     * @return The result, per read.
+     * @throws CardException
+     *         In case of communication problems or if a command fails.
+     */
+    private BenchmarkResult measure(final int ins, final int size) throws CardException {
+        return runner.measure(METHODS[ins], read(ins, size), read(EMPTY_LOOP, size), ITERATIONS);
+    }
+
+    /**
+     * Creates the command which makes the ClientApplet read a range of the array of the ServerApplet.
+     *
+     * @param ins
+     *         INS of the ClientApplet for reading, or {@link #EMPTY_LOOP}.
+     * @param size
+     *         Number of bytes to read.
+     * @return The command.
+     */
+    private static CommandAPDU read(final int ins, final int size) {
+        final byte[] data = { 0, 0, (byte) (size >> 8), (byte) size, (byte) (ITERATIONS >> 8), (byte) ITERATIONS };
+        return size > 0 ? new CommandAPDU(0x80, ins, 0x00, 0x00, data, size) : new CommandAPDU(0x80, ins, 0x00, 0x00, data);
+    }
+
+    /**
+     * Checks that a command succeeded.
+     *
+     * @param response
+     *         Response to the command.
+     * @param what
+     *         Description of the command, for the error message.
+     * @throws CardException
+     *         If the command failed.
+     */
+    private static void check(final ResponseAPDU response, final String what) throws CardException {
+        if (response.getSW() != StatusWords.SW_NO_ERROR) {
+            throw new CardException(what + " failed: " + StatusWords.describe(response.getSW()));
+        }
+    }
+}
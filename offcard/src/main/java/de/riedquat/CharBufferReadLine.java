@@ -0,0 +1,140 @@
+package de.riedquat;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * A base class for ReadLines which split the characters of a {@link CharBuffer} into lines.
+ * Subclasses only need to refill the CharBuffer.
+ * Line terminators and line numbers are handled like in {@link java.io.LineNumberReader}.
+ * Lines are read into a reusable buffer, so {@link #readLine(StringBuilder)} does not allocate.
+ * <p>
+ * Unlike {@link java.io.LineNumberReader}, a carriage return makes a CharBufferReadLine read ahead to see whether a line feed follows.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public abstract class CharBufferReadLine extends ReadLine.ReadLineImpl implements LineTerminatorReadLine {
+
+    /**
+     * The default size of the buffer for characters.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * The characters that were not yet consumed, in read mode.
+     */
+    private final CharBuffer chars;
+
+    /**
+     * The line that is being read by {@link #readLine()}.
+     */
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * The current line number.
+     */
+    private int lineNumber;
+
+    /**
+     * The line terminator of the last line read.
+     */
+    private String lineTerminator = "";
+
+    /**
+     * Creates a CharBufferReadLine.
+     *
+     * @param bufferSize
+     *         Size of the buffer for characters.
+     * @param lineNumber
+     *         Line number of the line before the first line to read, usually 0.
+     */
+    protected CharBufferReadLine(final int bufferSize, final int lineNumber) {
+        chars = CharBuffer.allocate(bufferSize);
+        chars.flip();
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * Reads more characters.
+     *
+     * @param chars
+     *         Empty CharBuffer in write mode into which to put the characters.
+     * @return {@code false} at the end of the input, otherwise {@code true}.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    protected abstract boolean fill(CharBuffer chars) throws IOException;
+
+    @Override
+    public String readLine() throws IOException {
+        return readLine(line) >= 0 ? line.toString() : null;
+    }
+
+    @Override
+    public int readLine(final StringBuilder buffer) throws IOException {
+        buffer.setLength(0);
+        lineTerminator = "";
+        boolean started = false;
+        while (chars.hasRemaining() || refill()) {
+            started = true;
+            final char[] array = chars.array();
+            final int offset = chars.arrayOffset();
+            final int limit = offset + chars.limit();
+            final int lineStart = offset + chars.position();
+            int index = lineStart;
+            while (index < limit && array[index] != '\n' && array[index] != '\r') {
+                index++;
+            }
+            buffer.append(array, lineStart, index - lineStart);
+            if (index < limit) {
+                chars.position(index + 1 - offset);
+                if (array[index] == '\n') {
+                    lineTerminator = "\n";
+                } else if ((chars.hasRemaining() || refill()) && chars.get(chars.position()) == '\n') {
+                    chars.get();
+                    lineTerminator = "\r\n";
+                } else {
+                    lineTerminator = "\r";
+                }
+                break;
+            }
+            chars.position(limit - offset);
+        }
+        if (!started) {
+            return -1;
+        }
+        lineNumber++;
+        return buffer.length();
+    }
+
+    @Override
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public String getLineTerminator() {
+        return lineTerminator;
+    }
+
+    /**
+     * Refills {@link #chars}.
+     *
+     * @return {@code true} if characters were read, {@code false} at the end of the input.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private boolean refill() throws IOException {
+        chars.clear();
+        try {
+            //noinspection StatementWithEmptyBody
+            while (fill(chars) && chars.position() == 0) {
+            }
+        } finally {
+            chars.flip();
+        }
+        return chars.hasRemaining();
+    }
+}
@@ -0,0 +1,535 @@
+package de.riedquat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Preprocesses a whole source tree with {@link JCReader}.
+ * The source files are processed in parallel in a {@link ForkJoinPool}.
+ * A manifest with the content hashes of the source files is kept in the target directory,
+ * so that files which did not change since the last run are skipped.
+ * Preprocessed files whose source files were deleted since the last run are deleted, too.
+ * Symbolic links to directories are not followed, so that links which form a cycle cannot make the preprocessor loop.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class JCPreprocessor {
+
+    /**
+     * The name of the manifest file in the target directory.
+     */
+    public static final String MANIFEST_NAME = ".jcpreprocessor";
+
+    /**
+     * The file name extension of the files to preprocess.
+     */
+    private static final String SOURCE_EXTENSION = ".java";
+
+    /**
+     * The algorithm for hashing the contents of the source files.
+     */
+    private static final String HASH_ALGORITHM = "SHA-1";
+
+    /**
+     * The size of the buffer for copying the preprocessed sources.
+     */
+    private static final int TRANSFER_BUFFER_SIZE = 8192;
+
+    /**
+     * Hexadecimal digits for printing hashes.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The directory with the sources to preprocess.
+     */
+    private final Path sourceDirectory;
+
+    /**
+     * The directory to which the preprocessed sources are written.
+     */
+    private final Path targetDirectory;
+
+    /**
+     * The Charset of the source files.
+     */
+    private final Charset charset;
+
+    /**
+     * Creates a JCPreprocessor for sources in the platform default charset.
+     *
+     * @param sourceDirectory
+     *         Directory with the sources to preprocess.
+     * @param targetDirectory
+     *         Directory to which the preprocessed sources are written.
+     */
+    public JCPreprocessor(final Path sourceDirectory, final Path targetDirectory) {
+        this(sourceDirectory, targetDirectory, Charset.defaultCharset());
+    }
+
+    /**
+     * Creates a JCPreprocessor.
+     *
+     * @param sourceDirectory
+     *         Directory with the sources to preprocess.
+     * @param targetDirectory
+     *         Directory to which the preprocessed sources are written.
+     * @param charset
+     *         Charset of the source files.
+     */
+    public JCPreprocessor(final Path sourceDirectory, final Path targetDirectory, final Charset charset) {
+        this.sourceDirectory = sourceDirectory;
+        this.targetDirectory = targetDirectory;
+        this.charset = charset;
+    }
+
+    /**
+     * Preprocesses a source tree.
+     * Usage: {@code java de.riedquat.JCPreprocessor sourceDirectory targetDirectory}
+     *
+     * @param args
+     *         Command line arguments.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    public static void main(final String... args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java " + JCPreprocessor.class.getName() + " sourceDirectory targetDirectory");
+            System.exit(1);
+        }
+        final Result result = new JCPreprocessor(Paths.get(args[0]), Paths.get(args[1])).preprocess();
+        System.err.println(result.getPreprocessed() + " files preprocessed, " + result.getUpToDate() + " files up to date, " + result.getPruned() + " stale files deleted.");
+    }
+
+    /**
+     * Preprocesses all source files which changed since the last run and deletes the preprocessed files of deleted source files.
+     * If some files cannot be preprocessed, the others are still preprocessed, and the first problem is thrown afterwards.
+     * Nothing is deleted then, because a source file which could not be read is not known to be deleted.
+     *
+     * @return The Result of preprocessing.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    public Result preprocess() throws IOException {
+        final Path manifestFile = targetDirectory.resolve(MANIFEST_NAME);
+        final Map<String, String> oldManifest = readManifest(manifestFile);
+        final Run run = new Run(oldManifest);
+        final ForkJoinPool pool = new ForkJoinPool();
+        try {
+            pool.invoke(new DirectoryTask(run, sourceDirectory));
+        } finally {
+            pool.shutdown();
+        }
+        Files.createDirectories(targetDirectory);
+        int pruned = 0;
+        for (final Map.Entry<String, String> entry : oldManifest.entrySet()) {
+            if (!run.newManifest.containsKey(entry.getKey())) {
+                if (run.problems.isEmpty()) {
+                    pruned += prune(entry.getKey()) ? 1 : 0;
+                } else {
+                    // Keep the entry so that its preprocessed file is deleted by the next run which succeeds.
+                    run.newManifest.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        writeManifest(manifestFile, run.newManifest);
+        if (!run.problems.isEmpty()) {
+            final IOException problem = run.problems.remove();
+            for (final IOException other : run.problems) {
+                problem.addSuppressed(other);
+            }
+            throw problem;
+        }
+        return new Result(run.preprocessed.get(), run.upToDate.get(), pruned);
+    }
+
+    /**
+     * Deletes the preprocessed file of a deleted source file and the directories which become empty by that.
+     *
+     * @param name
+     *         Name of the source file in the manifest.
+     * @return {@code true} if the preprocessed file was deleted, {@code false} if it did not exist.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private boolean prune(final String name) throws IOException {
+        final Path root = targetDirectory.toAbsolutePath().normalize();
+        final Path targetFile = root.resolve(name).normalize();
+        if (!targetFile.startsWith(root) || !Files.deleteIfExists(targetFile)) {
+            return false;
+        }
+        for (Path parent = targetFile.getParent(); !parent.equals(root); parent = parent.getParent()) {
+            try {
+                Files.delete(parent);
+            } catch (final DirectoryNotEmptyException ignore) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Preprocesses a single source file if it changed since the last run.
+     *
+     * @param run
+     *         The current run.
+     * @param sourceFile
+     *         Source file to preprocess.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private void preprocessFile(final Run run, final Path sourceFile) throws IOException {
+        final Path relativePath = sourceDirectory.relativize(sourceFile);
+        final String name = relativePath.toString().replace(relativePath.getFileSystem().getSeparator(), "/");
+        final Path targetFile = targetDirectory.resolve(relativePath.toString());
+        final byte[] content = Files.readAllBytes(sourceFile);
+        final String hash = hash(content);
+        if (hash.equals(run.oldManifest.get(name)) && Files.exists(targetFile)) {
+            run.upToDate.incrementAndGet();
+        } else {
+            Files.createDirectories(targetFile.getParent());
+            final Reader in = new JCReader(new InputStreamReader(new ByteArrayInputStream(content), charset));
+            final Writer out = Files.newBufferedWriter(targetFile, charset);
+            try {
+                transfer(in, out);
+            } finally {
+                out.close();
+            }
+            run.preprocessed.incrementAndGet();
+        }
+        run.newManifest.put(name, hash);
+    }
+
+    /**
+     * Copies all characters from a Reader to a Writer.
+     *
+     * @param in
+     *         Reader from which to read the characters.
+     * @param out
+     *         Writer to which to write the characters.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private static void transfer(final Reader in, final Writer out) throws IOException {
+        final char[] buffer = new char[TRANSFER_BUFFER_SIZE];
+        for (int count; (count = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, count);
+        }
+    }
+
+    /**
+     * Reads the manifest of the last run.
+     *
+     * @param manifestFile
+     *         File from which to read the manifest.
+     * @return The hashes of the source files by their name, empty if there is no manifest.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private Map<String, String> readManifest(final Path manifestFile) throws IOException {
+        final Map<String, String> manifest = new ConcurrentHashMap<String, String>();
+        if (Files.exists(manifestFile)) {
+            for (final String line : Files.readAllLines(manifestFile, charset)) {
+                final int separator = line.indexOf("  ");
+                if (separator > 0) {
+                    manifest.put(line.substring(separator + 2), line.substring(0, separator));
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Writes the manifest of this run.
+     * The manifest has the same format as the output of {@code sha1sum}.
+     *
+     * @param manifestFile
+     *         File to which to write the manifest.
+     * @param manifest
+     *         The hashes of the source files by their name.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private void writeManifest(final Path manifestFile, final Map<String, String> manifest) throws IOException {
+        final SortedMap<String, String> sortedManifest = new TreeMap<String, String>(manifest);
+        final Path tempFile = Files.createTempFile(targetDirectory, MANIFEST_NAME, ".tmp");
+        final Writer out = Files.newBufferedWriter(tempFile, charset);
+        try {
+            for (final Map.Entry<String, String> entry : sortedManifest.entrySet()) {
+                out.write(entry.getValue() + "  " + entry.getKey() + "\n");
+            }
+        } finally {
+            out.close();
+        }
+        Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns whether a directory is the target directory, which must not be preprocessed if it is inside the source directory.
+     *
+     * @param directory
+     *         Directory to check.
+     * @return {@code true} if directory is the target directory, otherwise {@code false}.
+     */
+    private boolean isTargetDirectory(final Path directory) {
+        return directory.toAbsolutePath().normalize().equals(targetDirectory.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Calculates the hash of a file's content.
+     *
+     * @param content
+     *         Content to hash.
+     * @return The hash in hexadecimal notation.
+     */
+    private static String hash(final byte[] content) {
+        final byte[] digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM).digest(content);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        final char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * The Result of preprocessing a source tree.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    public static class Result {
+
+        /**
+         * The number of files that were preprocessed.
+         */
+        private final int preprocessed;
+
+        /**
+         * The number of files that were skipped because they were up to date.
+         */
+        private final int upToDate;
+
+        /**
+         * The number of preprocessed files that were deleted because their source files were deleted.
+         */
+        private final int pruned;
+
+        /**
+         * Creates a Result.
+         *
+         * @param preprocessed
+         *         The number of files that were preprocessed.
+         * @param upToDate
+         *         The number of files that were skipped because they were up to date.
+         * @param pruned
+         *         The number of preprocessed files that were deleted because their source files were deleted.
+         */
+        Result(final int preprocessed, final int upToDate, final int pruned) {
+            this.preprocessed = preprocessed;
+            this.upToDate = upToDate;
+            this.pruned = pruned;
+        }
+
+        /**
+         * Returns the number of files that were preprocessed.
+         *
+         * @return The number of files that were preprocessed.
+         */
+        public int getPreprocessed() {
+            return preprocessed;
+        }
+
+        /**
+         * Returns the number of files that were skipped because they were up to date.
+         *
+         * @return The number of files that were skipped because they were up to date.
+         */
+        public int getUpToDate() {
+            return upToDate;
+        }
+
+        /**
+         * Returns the number of preprocessed files that were deleted because their source files were deleted.
+         *
+         * @return The number of preprocessed files that were deleted because their source files were deleted.
+         */
+        public int getPruned() {
+            return pruned;
+        }
+    }
+
+    /**
+     * The state of a single run, shared by all tasks of that run.
+     */
+    private static class Run {
+
+        /**
+         * The manifest of the last run.
+         */
+        private final Map<String, String> oldManifest;
+
+        /**
+         * The manifest of this run.
+         */
+        private final Map<String, String> newManifest = new ConcurrentHashMap<String, String>();
+
+        /**
+         * The problems that occurred.
+         */
+        private final Queue<IOException> problems = new ConcurrentLinkedQueue<IOException>();
+
+        /**
+         * The number of files that were preprocessed.
+         */
+        private final AtomicInteger preprocessed = new AtomicInteger();
+
+        /**
+         * The number of files that were skipped because they were up to date.
+         */
+        private final AtomicInteger upToDate = new AtomicInteger();
+
+        /**
+         * Creates a Run.
+         *
+         * @param oldManifest
+         *         The manifest of the last run.
+         */
+        Run(final Map<String, String> oldManifest) {
+            this.oldManifest = oldManifest;
+        }
+    }
+
+    /**
+     * Task which preprocesses the source files of a directory and forks tasks for its subdirectories.
+     */
+    private class DirectoryTask extends RecursiveAction {
+
+        /**
+         * Serial version of this class.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The current run.
+         */
+        private final Run run;
+
+        /**
+         * The directory to preprocess.
+         */
+        private final Path directory;
+
+        /**
+         * Creates a DirectoryTask.
+         *
+         * @param run
+         *         The current run.
+         * @param directory
+         *         The directory to preprocess.
+         */
+        DirectoryTask(final Run run, final Path directory) {
+            this.run = run;
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            final List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+            try {
+                final DirectoryStream<Path> entries = Files.newDirectoryStream(directory);
+                try {
+                    for (final Path entry : entries) {
+                        if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                            if (!isTargetDirectory(entry)) {
+                                tasks.add(new DirectoryTask(run, entry));
+                            }
+                        } else if (entry.getFileName().toString().endsWith(SOURCE_EXTENSION)) {
+                            tasks.add(new FileTask(run, entry));
+                        }
+                    }
+                } finally {
+                    entries.close();
+                }
+            } catch (final IOException e) {
+                run.problems.add(e);
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Task which preprocesses a single source file.
+     */
+    private class FileTask extends RecursiveAction {
+
+        /**
+         * Serial version of this class.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The current run.
+         */
+        private final Run run;
+
+        /**
+         * The source file to preprocess.
+         */
+        private final Path sourceFile;
+
+        /**
+         * Creates a FileTask.
+         *
+         * @param run
+         *         The current run.
+         * @param sourceFile
+         *         The source file to preprocess.
+         */
+        FileTask(final Run run, final Path sourceFile) {
+            this.run = run;
+            this.sourceFile = sourceFile;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                preprocessFile(run, sourceFile);
+            } catch (final IOException e) {
+                run.problems.add(e);
+            }
+        }
+    }
+}
@@ -1,56 +1,191 @@
 package de.riedquat;
 
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.io.Reader;
-import org.jetbrains.annotations.Nullable;
+import java.util.Iterator;
 
 /**
- * LineNumberReader that can replace the __LINE__ macro.
+ * Reader that can replace the __LINE__ macro and other macros of a {@link MacroExpander}.
+ * It can be used as {@link Reader}, which keeps the original line terminators, or as {@link ReadLine}, which drops them.
+ * With {@link #read(char[], int, int)} and {@link #readLine(StringBuilder)}, the text is expanded without allocating anything per line.
+ * <p>
+ * A JCReader is not thread-safe.
  *
  * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
  * @version 1.0
  * @since 1.0
  */
 @SuppressWarnings("UnusedDeclaration")
-public class JCReader extends ReadLine.ReadLineImpl {
+public class JCReader extends Reader implements ReadLine {
 
-    // Currently intentionally does not extend Reader.
-    // read() etc. are not implemented properly.
+    /**
+     * The ReadLine to read from, usually a {@link CharBufferReadLine} or a {@link ReadAheadReadLine}.
+     */
+    private final LineTerminatorReadLine source;
 
     /**
-     * The LineNumberReader to read from.
+     * The MacroExpander which replaces the macros.
      */
-    private final LineNumberReader reader;
+    private final MacroExpander expander;
 
     /**
-     * Creates a JCReader.
+     * The line read from {@link #source}, before replacing the macros.
+     */
+    private final StringBuilder rawLine = new StringBuilder();
+
+    /**
+     * The line that is being read by {@link #readLine()}.
+     */
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * The expanded line including its line terminator which is being read by {@link #read(char[], int, int)}.
+     */
+    private final StringBuilder pending = new StringBuilder();
+
+    /**
+     * The index of the next character in {@link #pending} to read.
+     */
+    private int pendingPosition;
+
+    /**
+     * The length of the line terminator at the end of {@link #pending}.
+     */
+    private int pendingTerminatorLength;
+
+    /**
+     * Creates a JCReader which replaces the __LINE__ macro.
      *
      * @param in
      *         Reader to read from.
+     *         If it is a {@link java.io.LineNumberReader}, line numbers continue from its current line number.
      */
     public JCReader(final Reader in) {
-        reader = in instanceof LineNumberReader ? (LineNumberReader) in : new LineNumberReader(in);
+        this(in, new MacroExpander());
+    }
+
+    /**
+     * Creates a JCReader.
+     *
+     * @param in
+     *         Reader to read from.
+     *         If it is a {@link java.io.LineNumberReader}, line numbers continue from its current line number.
+     * @param expander
+     *         MacroExpander which replaces the macros.
+     */
+    public JCReader(final Reader in, final MacroExpander expander) {
+        this(new ReaderReadLine(in), expander);
+    }
+
+    /**
+     * Creates a JCReader.
+     * With a {@link ReadAheadReadLine} as source, lines are expanded while the next lines are read ahead.
+     *
+     * @param source
+     *         ReadLine to read from.
+     * @param expander
+     *         MacroExpander which replaces the macros.
+     */
+    public JCReader(final LineTerminatorReadLine source, final MacroExpander expander) {
+        this.source = source;
+        this.expander = expander;
     }
 
     @Override
     public String readLine() throws IOException {
-        return replaceMacros(reader.readLine());
+        return readLine(line) >= 0 ? line.toString() : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * If the current line was partially read with {@link #read(char[], int, int)}, the rest of it is returned.
+     */
+    @Override
+    public int readLine(final StringBuilder buffer) throws IOException {
+        final int pendingLineEnd = pending.length() - pendingTerminatorLength;
+        if (pendingPosition < pendingLineEnd) {
+            buffer.setLength(0);
+            buffer.append(pending, pendingPosition, pendingLineEnd);
+            pendingPosition = pending.length();
+            return buffer.length();
+        }
+        pendingPosition = pending.length();
+        buffer.setLength(0);
+        final int length = source.readLine(rawLine);
+        if (length < 0) {
+            return -1;
+        }
+        expander.expand(rawLine, 0, length, getLineNumber(), buffer);
+        return buffer.length();
     }
 
     @Override
     public int getLineNumber() {
-        return reader.getLineNumber();
+        return source.getLineNumber();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new ReadLineImpl() {
+            @Override
+            public String readLine() throws IOException {
+                return JCReader.this.readLine();
+            }
+
+            @Override
+            public int getLineNumber() {
+                return JCReader.this.getLineNumber();
+            }
+        }.iterator();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return pendingPosition < pending.length() || readPendingLine() ? pending.charAt(pendingPosition++) : -1;
+    }
+
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+        if (off < 0 || len < 0 || len > cbuf.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        int total = 0;
+        while (total < len && (pendingPosition < pending.length() || readPendingLine())) {
+            final int count = Math.min(len - total, pending.length() - pendingPosition);
+            pending.getChars(pendingPosition, pendingPosition + count, cbuf, off + total);
+            pendingPosition += count;
+            total += count;
+        }
+        return total > 0 || len == 0 ? total : -1;
+    }
+
+    @Override
+    public boolean ready() {
+        return pendingPosition < pending.length();
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
     }
 
     /**
-     * Replaces the macros that the JCReader supports with their values.
+     * Reads the next line with its line terminator into {@link #pending}.
      *
-     * @param text
-     *         Text for which to replace the macros.
-     * @return The line with all macros replaced.
+     * @return {@code true} if a line was read, {@code false} at the end of the input.
+     * @throws IOException
+     *         In case of I/O problems.
      */
-    private String replaceMacros(@Nullable final String text) {
-        return text != null ? text.replaceAll("__LINE__", Integer.toString(getLineNumber())) : null;
+    private boolean readPendingLine() throws IOException {
+        pending.setLength(0);
+        pendingPosition = 0;
+        pendingTerminatorLength = 0;
+        if (readLine(pending) < 0) {
+            return false;
+        }
+        final String terminator = source.getLineTerminator();
+        pending.append(terminator);
+        pendingTerminatorLength = terminator.length();
+        return true;
     }
 }
@@ -0,0 +1,112 @@
+package de.riedquat;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A line of text together with its line number, so that the line number is not lost when lines are passed on or processed in parallel.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public final class Line {
+
+    /**
+     * The line number.
+     */
+    private final int lineNumber;
+
+    /**
+     * The text of the line, without line terminator.
+     */
+    private final String text;
+
+    /**
+     * Creates a Line.
+     *
+     * @param lineNumber
+     *         Line number.
+     * @param text
+     *         Text of the line, without line terminator.
+     */
+    public Line(final int lineNumber, final String text) {
+        this.lineNumber = lineNumber;
+        this.text = text;
+    }
+
+    /**
+     * Returns the lines of a ReadLine with their line numbers.
+     * The Iterator rethrows {@link IOException}s wrapped in a {@link ReadLineException}.
+     *
+     * @param readLine
+     *         ReadLine from which to read the lines.
+     * @return The lines of readLine, which can be iterated once.
+     */
+    public static Iterable<Line> of(final ReadLine readLine) {
+        return new Iterable<Line>() {
+            @Override
+            public Iterator<Line> iterator() {
+                final Iterator<String> lines = readLine.iterator();
+                return new Iterator<Line>() {
+                    @Override
+                    public boolean hasNext() {
+                        return lines.hasNext();
+                    }
+
+                    @Override
+                    public Line next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        final String text = lines.next();
+                        return new Line(readLine.getLineNumber(), text);
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Returns the line number.
+     *
+     * @return The line number.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the text of the line.
+     *
+     * @return The text of the line, without line terminator.
+     */
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof Line)) {
+            return false;
+        }
+        final Line other = (Line) obj;
+        return lineNumber == other.lineNumber && text.equals(other.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return lineNumber * 31 + text.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return lineNumber + ": " + text;
+    }
+}
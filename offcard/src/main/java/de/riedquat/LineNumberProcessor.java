@@ -0,0 +1,341 @@
+package de.riedquat;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.LineMap;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.TreeInfo;
+import com.sun.tools.javac.tree.TreeMaker;
+import com.sun.tools.javac.tree.TreeTranslator;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.ListBuffer;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor which replaces the __LINE__ macro during compilation, so that no separate {@link JCReader} pass is needed.
+ * Every identifier {@code __LINE__} is replaced by the expression {@code (short) lineNumber}, for example
+ * {@code Assert.assertEquals(__LINE__, expected, actual);} becomes {@code Assert.assertEquals((short) 42, expected, actual);}.
+ * Sources that were written for {@link JCReader} compile unchanged.
+ * <p>
+ * The processor rewrites the syntax trees of javac before they are attributed, therefore it only works with javac.
+ * It is registered as service, so it is active whenever the offcard classes are on the annotation processor path.
+ * On Java 9 and newer, javac must be run with {@code -J--add-exports} for the {@code com.sun.tools.javac} packages used here,
+ * and on Java 16 and newer also with {@code -J--add-opens} for them.
+ * Without access to them, the processor only warns and the compilation continues without replacing __LINE__.
+ * <p>
+ * With {@code -Ajcunit.coverage}, the processor also inserts a coverage probe, {@code org.jcunit.Coverage.hit((short) probe);},
+ * before the first statement of every line in every block, except in the {@code org.jcunit} packages, in initializer blocks
+ * and before explicit constructor calls.
+ * The probes are numbered in the order in which they are inserted, and the probe map {@value #PROBE_MAP} is written to the class output.
+ * It has one line per probe: the probe number, the path of the source file relative to the source root, and the line number.
+ * All sources which are put on the same card must be compiled together, so that their probe numbers do not overlap.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions(LineNumberProcessor.COVERAGE_OPTION)
+public class LineNumberProcessor extends AbstractProcessor {
+
+    /**
+     * The option which switches on the insertion of coverage probes.
+     */
+    public static final String COVERAGE_OPTION = "jcunit.coverage";
+
+    /**
+     * The name of the probe map resource.
+     */
+    public static final String PROBE_MAP = "coverage.jcprobes";
+
+    /**
+     * The package of JCUnit itself, which is not instrumented, so that the probes do not call themselves.
+     */
+    private static final String JCUNIT_PACKAGE = "org.jcunit";
+
+    /**
+     * The javac Trees of the current compilation.
+     */
+    private Trees trees;
+
+    /**
+     * The TreeMaker for creating the replacement expressions.
+     */
+    private TreeMaker make;
+
+    /**
+     * The symbol table which provides the type {@code short}.
+     */
+    private Symtab symtab;
+
+    /**
+     * The name table for creating the probes.
+     */
+    private Names names;
+
+    /**
+     * Whether coverage probes are inserted.
+     */
+    private boolean coverage;
+
+    /**
+     * The probe map, one line per probe inserted so far.
+     */
+    private final StringBuilder probeMap = new StringBuilder();
+
+    /**
+     * The number of probes inserted so far.
+     */
+    private int probeCount;
+
+    /**
+     * The compilation units which were already processed.
+     */
+    private final Set<CompilationUnitTree> processedUnits = new HashSet<CompilationUnitTree>();
+
+    @Override
+    public synchronized void init(final ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        try {
+            if (processingEnv instanceof JavacProcessingEnvironment) {
+                final Context context = ((JavacProcessingEnvironment) processingEnv).getContext();
+                make = TreeMaker.instance(context);
+                symtab = Symtab.instance(context);
+                names = Names.instance(context);
+                coverage = processingEnv.getOptions().containsKey(COVERAGE_OPTION);
+                trees = Trees.instance(processingEnv);
+            } else {
+                warnInactive("only works with javac");
+            }
+        } catch (final LinkageError e) {
+            // Thrown as IllegalAccessError when the com.sun.tools.javac packages are not exported to this processor.
+            warnInactive("cannot access javac (" + e + ")");
+        } catch (final RuntimeException e) {
+            warnInactive("cannot access javac (" + e + ")");
+        }
+    }
+
+    /**
+     * Warns that this processor is inactive, so that compilation continues without replacing the __LINE__ macro.
+     *
+     * @param reason
+     *         Reason why this processor is inactive.
+     */
+    private void warnInactive(final String reason) {
+        trees = null;
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, getClass().getName() + ' ' + reason + ", " + MacroExpander.LINE + " is not replaced.");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        if (trees != null) {
+            for (final Element element : roundEnv.getRootElements()) {
+                final TreePath path = trees.getPath(element);
+                if (path != null && processedUnits.add(path.getCompilationUnit())) {
+                    replaceLineNumbers(path.getCompilationUnit());
+                    if (coverage && !isJCUnit(path.getCompilationUnit())) {
+                        insertProbes(path.getCompilationUnit());
+                    }
+                }
+            }
+            if (coverage && roundEnv.processingOver()) {
+                writeProbeMap();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the __LINE__ macro in a compilation unit.
+     *
+     * @param unit
+     *         Compilation unit in which to replace the __LINE__ macro.
+     */
+    private void replaceLineNumbers(final CompilationUnitTree unit) {
+        final LineMap lineMap = unit.getLineMap();
+        new TreeTranslator() {
+            @Override
+            public void visitIdent(final JCTree.JCIdent tree) {
+                if (tree.name.contentEquals(MacroExpander.LINE)) {
+                    final int lineNumber = (int) lineMap.getLineNumber(tree.pos);
+                    result = make.at(tree.pos).TypeCast(symtab.shortType, make.Literal(lineNumber));
+                } else {
+                    result = tree;
+                }
+            }
+        }.translate((JCTree) unit);
+    }
+
+    /**
+     * Returns whether a compilation unit belongs to JCUnit itself.
+     *
+     * @param unit
+     *         Compilation unit to check.
+     * @return {@code true} if unit is in a package of JCUnit, otherwise {@code false}.
+     */
+    private static boolean isJCUnit(final CompilationUnitTree unit) {
+        final String packageName = unit.getPackageName() != null ? unit.getPackageName().toString() : "";
+        return packageName.equals(JCUNIT_PACKAGE) || packageName.startsWith(JCUNIT_PACKAGE + '.');
+    }
+
+    /**
+     * Returns the path of the source file of a compilation unit relative to the source root.
+     *
+     * @param unit
+     *         Compilation unit of which to return the path.
+     * @return The path of the source file of unit, like {@code pkg/Foo.java}.
+     */
+    private static String getSourcePath(final CompilationUnitTree unit) {
+        final String name = unit.getSourceFile().getName();
+        final String fileName = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+        return unit.getPackageName() != null ? unit.getPackageName().toString().replace('.', '/') + '/' + fileName : fileName;
+    }
+
+    /**
+     * Inserts coverage probes into a compilation unit.
+     *
+     * @param unit
+     *         Compilation unit into which to insert the probes.
+     */
+    private void insertProbes(final CompilationUnitTree unit) {
+        final LineMap lineMap = unit.getLineMap();
+        final String sourcePath = getSourcePath(unit);
+        // The probes are numbered afterwards in the order of the source, which differs from the order in which blocks are visited.
+        final SortedMap<Integer, JCTree.JCLiteral> probes = new TreeMap<Integer, JCTree.JCLiteral>();
+        new TreeTranslator() {
+            /**
+             * The initializer blocks, which are not probed because static initializers are restricted on Java Card.
+             */
+            private final Set<JCTree> initializers = new HashSet<JCTree>();
+
+            @Override
+            public void visitClassDef(final JCTree.JCClassDecl tree) {
+                for (final JCTree def : tree.defs) {
+                    if (def instanceof JCTree.JCBlock) {
+                        initializers.add(def);
+                    }
+                }
+                super.visitClassDef(tree);
+            }
+
+            @Override
+            public void visitBlock(final JCTree.JCBlock tree) {
+                if (!initializers.contains(tree)) {
+                    tree.stats = probe(tree.stats);
+                }
+                super.visitBlock(tree);
+            }
+
+            @Override
+            public void visitCase(final JCTree.JCCase tree) {
+                tree.stats = probe(tree.stats);
+                super.visitCase(tree);
+            }
+
+            /**
+             * Inserts a probe before the first statement of every line.
+             *
+             * @param stats
+             *         Statements into which to insert the probes.
+             * @return The statements with the probes.
+             */
+            private List<JCTree.JCStatement> probe(final List<JCTree.JCStatement> stats) {
+                final ListBuffer<JCTree.JCStatement> probed = new ListBuffer<JCTree.JCStatement>();
+                long lastLine = -1;
+                for (final JCTree.JCStatement stat : stats) {
+                    final int pos = TreeInfo.getStartPos(stat);
+                    final long line = lineMap.getLineNumber(pos);
+                    if (line != lastLine && !isConstructorCall(stat) && !(stat instanceof JCTree.JCClassDecl)) {
+                        final JCTree.JCLiteral probe = make.at(pos).Literal(0);
+                        probes.put(pos, probe);
+                        probed.append(createProbe(pos, probe));
+                        lastLine = line;
+                    }
+                    probed.append(stat);
+                }
+                return probed.toList();
+            }
+        }.translate((JCTree) unit);
+        for (final Map.Entry<Integer, JCTree.JCLiteral> probe : probes.entrySet()) {
+            probe.getValue().value = probeCount;
+            probeMap.append(probeCount++).append(' ').append(sourcePath).append(' ').append(lineMap.getLineNumber(probe.getKey())).append('\n');
+        }
+    }
+
+    /**
+     * Returns whether a statement is an explicit constructor call, before which no statement may be inserted.
+     *
+     * @param stat
+     *         Statement to check.
+     * @return {@code true} if stat is a call of {@code this(...)} or {@code super(...)}, otherwise {@code false}.
+     */
+    private boolean isConstructorCall(final JCTree.JCStatement stat) {
+        if (!(stat instanceof JCTree.JCExpressionStatement) || !(((JCTree.JCExpressionStatement) stat).expr instanceof JCTree.JCMethodInvocation)) {
+            return false;
+        }
+        final Name name = TreeInfo.name(((JCTree.JCMethodInvocation) ((JCTree.JCExpressionStatement) stat).expr).meth);
+        return name == names._this || name == names._super;
+    }
+
+    /**
+     * Creates a coverage probe.
+     *
+     * @param pos
+     *         Position of the statement before which the probe is inserted.
+     * @param probe
+     *         Literal for the number of the probe.
+     * @return The probe statement.
+     */
+    private JCTree.JCStatement createProbe(final int pos, final JCTree.JCLiteral probe) {
+        make.at(pos);
+        final JCTree.JCExpression coverageClass = make.Select(make.Select(make.Ident(names.fromString("org")), names.fromString("jcunit")), names.fromString("Coverage"));
+        return make.Exec(make.Apply(List.<JCTree.JCExpression>nil(), make.Select(coverageClass, names.fromString("hit")), List.<JCTree.JCExpression>of(make.TypeCast(symtab.shortType, probe))));
+    }
+
+    /**
+     * Writes the probe map to the class output.
+     */
+    private void writeProbeMap() {
+        if (probeCount > Short.MAX_VALUE) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Too many coverage probes: " + probeCount);
+            return;
+        }
+        try {
+            final PrintWriter out = new PrintWriter(processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", PROBE_MAP).openWriter());
+            try {
+                out.print(probeMap);
+            } finally {
+                out.close();
+            }
+        } catch (final IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write probe map: " + e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package de.riedquat;
+
+import java.io.Closeable;
+
+/**
+ * A {@link ReadLine} which has to be closed and which knows the line terminator of the last line read.
+ * {@link JCReader} reads from it, so that it can reproduce the original line terminators.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public interface LineTerminatorReadLine extends ReadLine, Closeable {
+
+    /**
+     * Returns the line terminator of the last line read.
+     *
+     * @return The line terminator of the last line read, one of {@code "\n"}, {@code "\r\n"} or {@code "\r"},
+     *         or {@code ""} if the last line was not terminated or no line was read yet.
+     */
+    String getLineTerminator();
+}
@@ -0,0 +1,301 @@
+package de.riedquat;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Expands macros like {@code __LINE__} in a single pass over the characters of a line.
+ * The macro names are precompiled into a table of start characters, so no regular expressions are involved.
+ * Lines which contain no macro are returned unchanged, without allocating anything.
+ * <p>
+ * A MacroExpander reuses its internal buffer and therefore is not thread-safe.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class MacroExpander {
+
+    /**
+     * The name of the line number macro.
+     */
+    public static final String LINE = "__LINE__";
+
+    /**
+     * Macro which expands to the current line number.
+     */
+    public static final Macro LINE_NUMBER = new Macro() {
+        @Override
+        public void expand(final StringBuilder out, final int lineNumber) {
+            out.append(lineNumber);
+        }
+    };
+
+    /**
+     * The number of characters for which the start character table is maintained.
+     */
+    private static final int START_TABLE_SIZE = 128;
+
+    /**
+     * The names of the macros, longest first, so that the longest macro wins.
+     */
+    private final String[] names;
+
+    /**
+     * The macros, in the same order as {@link #names}.
+     */
+    private final Macro[] macros;
+
+    /**
+     * Whether a character below {@link #START_TABLE_SIZE} is the start character of a macro name.
+     */
+    private final boolean[] startChars = new boolean[START_TABLE_SIZE];
+
+    /**
+     * Whether any macro name starts with a character not covered by {@link #startChars}.
+     */
+    private final boolean nonTableStartChars;
+
+    /**
+     * The buffer into which lines are expanded, reused for all lines.
+     */
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * The macro found by the last successful call to {@link #findMacro(CharSequence, int, int)}.
+     */
+    private int foundMacro;
+
+    /**
+     * Creates a MacroExpander which expands {@link #LINE} only.
+     */
+    public MacroExpander() {
+        this(LINE, LINE_NUMBER);
+    }
+
+    /**
+     * Creates a MacroExpander which expands a single macro.
+     *
+     * @param name
+     *         Name of the macro.
+     * @param macro
+     *         Macro to expand.
+     */
+    public MacroExpander(final String name, final Macro macro) {
+        this(new String[] { name }, new Macro[] { macro });
+    }
+
+    /**
+     * Creates a MacroExpander which expands the specified macros.
+     *
+     * @param macros
+     *         Macros to expand, by name.
+     */
+    public MacroExpander(final Map<String, ? extends Macro> macros) {
+        this(macros.keySet().toArray(new String[macros.size()]), macros.values().toArray(new Macro[macros.size()]));
+    }
+
+    /**
+     * Creates a MacroExpander which expands the specified macros.
+     *
+     * @param names
+     *         Names of the macros.
+     * @param macros
+     *         Macros, in the same order as names.
+     * @throws IllegalArgumentException
+     *         in case a name is empty or the number of names and macros differs.
+     */
+    private MacroExpander(final String[] names, final Macro[] macros) {
+        if (names.length != macros.length) {
+            throw new IllegalArgumentException("Number of names and macros differ.");
+        }
+        final Integer[] order = new Integer[names.length];
+        for (int i = 0; i < order.length; i++) {
+            if (names[i].length() == 0) {
+                throw new IllegalArgumentException("Empty macro name.");
+            }
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer o1, final Integer o2) {
+                return names[o2].length() - names[o1].length();
+            }
+        });
+        this.names = new String[names.length];
+        this.macros = new Macro[names.length];
+        boolean nonTableStartChars = false;
+        for (int i = 0; i < order.length; i++) {
+            this.names[i] = names[order[i]];
+            this.macros[i] = macros[order[i]];
+            final char startChar = this.names[i].charAt(0);
+            if (startChar < START_TABLE_SIZE) {
+                startChars[startChar] = true;
+            } else {
+                nonTableStartChars = true;
+            }
+        }
+        this.nonTableStartChars = nonTableStartChars;
+    }
+
+    /**
+     * Creates a macro which always expands to the same text, like {@code __FILE__}.
+     *
+     * @param value
+     *         Text to which the macro expands.
+     * @return Macro which expands to value.
+     */
+    public static Macro constant(final String value) {
+        return new Macro() {
+            @Override
+            public void expand(final StringBuilder out, final int lineNumber) {
+                out.append(value);
+            }
+        };
+    }
+
+    /**
+     * Replaces the macros in a line with their values.
+     *
+     * @param text
+     *         Text for which to replace the macros.
+     * @param lineNumber
+     *         Line number of text.
+     * @return The line with all macros replaced, text itself if it contains no macro, or {@code null} if text is {@code null}.
+     */
+    public String expand(@Nullable final String text, final int lineNumber) {
+        final int first = text != null ? findMacro(text, 0, text.length()) : -1;
+        if (first < 0) {
+            return text;
+        }
+        buffer.setLength(0);
+        buffer.append(text, 0, first);
+        expand(text, first, text.length(), lineNumber, buffer);
+        return buffer.toString();
+    }
+
+    /**
+     * Appends a range of characters to a StringBuilder, replacing the macros with their values.
+     *
+     * @param text
+     *         Text for which to replace the macros.
+     * @param start
+     *         Index of the first character of text to expand.
+     * @param end
+     *         Index after the last character of text to expand.
+     * @param lineNumber
+     *         Line number of text.
+     * @param out
+     *         StringBuilder to which to append the expanded text.
+     * @return {@code true} if at least one macro was replaced, otherwise {@code false}.
+     */
+    public boolean expand(final CharSequence text, final int start, final int end, final int lineNumber, final StringBuilder out) {
+        boolean replaced = false;
+        int copied = start;
+        int index = start;
+        while ((index = findMacro(text, index, end)) >= 0) {
+            final int macro = foundMacro;
+            out.append(text, copied, index);
+            macros[macro].expand(out, lineNumber);
+            index += names[macro].length();
+            copied = index;
+            replaced = true;
+        }
+        out.append(text, copied, end);
+        return replaced;
+    }
+
+    /**
+     * Finds the next macro in a range of characters.
+     *
+     * @param text
+     *         Text in which to search.
+     * @param start
+     *         Index from which to search.
+     * @param end
+     *         Index at which to stop searching.
+     * @return Index of the next macro or {@code -1} if there is none.
+     *         If a macro is found, {@link #foundMacro} is set to it.
+     */
+    private int findMacro(final CharSequence text, final int start, final int end) {
+        for (int index = start; index < end; index++) {
+            final char c = text.charAt(index);
+            if (c < START_TABLE_SIZE ? startChars[c] : nonTableStartChars) {
+                final int macro = matchMacro(text, index, end);
+                if (macro >= 0) {
+                    foundMacro = macro;
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Determines which macro starts at the specified index.
+     *
+     * @param text
+     *         Text in which to match.
+     * @param index
+     *         Index at which the macro would start.
+     * @param end
+     *         Index at which the text ends.
+     * @return Index of the longest macro which starts at index or {@code -1} if there is none.
+     */
+    private int matchMacro(final CharSequence text, final int index, final int end) {
+        for (int macro = 0; macro < names.length; macro++) {
+            if (regionMatches(text, index, end, names[macro])) {
+                return macro;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether a name occurs at the specified index of the text.
+     *
+     * @param text
+     *         Text in which to match.
+     * @param index
+     *         Index at which the name would start.
+     * @param end
+     *         Index at which the text ends.
+     * @param name
+     *         Name to match.
+     * @return {@code true} if text contains name at index, otherwise {@code false}.
+     */
+    private static boolean regionMatches(final CharSequence text, final int index, final int end, final String name) {
+        final int length = name.length();
+        if (end - index < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(index + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A macro that can be expanded.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    public interface Macro {
+
+        /**
+         * Appends the value of this macro.
+         *
+         * @param out
+         *         StringBuilder to which to append the value.
+         * @param lineNumber
+         *         Line number in which the macro is expanded.
+         */
+        void expand(StringBuilder out, int lineNumber);
+    }
+}
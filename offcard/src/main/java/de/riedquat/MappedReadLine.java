@@ -0,0 +1,271 @@
+package de.riedquat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ReadLine which memory-maps a file and decodes the lines straight from the mapped bytes.
+ * The file is mapped in windows, so files of any size can be read.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class MappedReadLine extends CharBufferReadLine {
+
+    /**
+     * The default size of the windows in which the file is mapped.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The FileChannel from which to read.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Whether {@link #channel} is closed when this MappedReadLine is closed.
+     */
+    private final boolean closeChannel;
+
+    /**
+     * The decoder for converting bytes to characters.
+     */
+    private final CharsetDecoder decoder;
+
+    /**
+     * The maximum size of the windows in which the file is mapped.
+     */
+    private final int windowSize;
+
+    /**
+     * The file position at which reading ends.
+     */
+    private final long end;
+
+    /**
+     * The file position after the current window.
+     */
+    private long position;
+
+    /**
+     * The current window, {@code null} before the first window is mapped.
+     */
+    private ByteBuffer bytes;
+
+    /**
+     * Whether the decoder was flushed at the end of the input.
+     */
+    private boolean flushed;
+
+    /**
+     * Creates a MappedReadLine which reads from a file in the platform default charset.
+     *
+     * @param file
+     *         File to read.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    public MappedReadLine(final Path file) throws IOException {
+        this(file, Charset.defaultCharset());
+    }
+
+    /**
+     * Creates a MappedReadLine which reads from a file.
+     *
+     * @param file
+     *         File to read.
+     * @param charset
+     *         Charset of the file.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    public MappedReadLine(final Path file, final Charset charset) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.READ), true, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates a MappedReadLine which reads from the current position to the end of a FileChannel.
+     * The channel is not closed when this MappedReadLine is closed.
+     *
+     * @param channel
+     *         FileChannel to read.
+     * @param charset
+     *         Charset of the file.
+     * @param windowSize
+     *         Maximum size of the windows in which the file is mapped.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    public MappedReadLine(final FileChannel channel, final Charset charset, final int windowSize) throws IOException {
+        this(channel, false, charset, windowSize);
+    }
+
+    /**
+     * Creates a MappedReadLine which reads from the current position to the end of a FileChannel.
+     *
+     * @param channel
+     *         FileChannel to read.
+     * @param closeChannel
+     *         Whether channel is closed when this MappedReadLine is closed.
+     * @param charset
+     *         Charset of the file.
+     * @param windowSize
+     *         Maximum size of the windows in which the file is mapped.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private MappedReadLine(final FileChannel channel, final boolean closeChannel, final Charset charset, final int windowSize) throws IOException {
+        this(channel, closeChannel, charset, windowSize, channel.position(), channel.size(), 0);
+    }
+
+    /**
+     * Creates a MappedReadLine which reads a range of a FileChannel.
+     * The channel is not closed when this MappedReadLine is closed.
+     * The range must start at the beginning of a line, see {@link ParallelLines}.
+     *
+     * @param channel
+     *         FileChannel to read.
+     * @param charset
+     *         Charset of the file.
+     * @param windowSize
+     *         Maximum size of the windows in which the file is mapped.
+     * @param start
+     *         File position at which to start reading.
+     * @param end
+     *         File position at which to end reading.
+     * @param lineNumber
+     *         Line number of the line before the first line to read, the number of lines before start.
+     */
+    public MappedReadLine(final FileChannel channel, final Charset charset, final int windowSize, final long start, final long end, final int lineNumber) {
+        this(channel, false, charset, windowSize, start, end, lineNumber);
+    }
+
+    /**
+     * Creates a MappedReadLine which reads a range of a FileChannel.
+     *
+     * @param channel
+     *         FileChannel to read.
+     * @param closeChannel
+     *         Whether channel is closed when this MappedReadLine is closed.
+     * @param charset
+     *         Charset of the file.
+     * @param windowSize
+     *         Maximum size of the windows in which the file is mapped.
+     * @param start
+     *         File position at which to start reading.
+     * @param end
+     *         File position at which to end reading.
+     * @param lineNumber
+     *         Line number of the line before the first line to read.
+     */
+    private MappedReadLine(final FileChannel channel, final boolean closeChannel, final Charset charset, final int windowSize, final long start, final long end, final int lineNumber) {
+        super(DEFAULT_BUFFER_SIZE, lineNumber);
+        if (windowSize < 16) {
+            throw new IllegalArgumentException("Window size too small: " + windowSize);
+        }
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        this.windowSize = windowSize;
+        decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        position = start;
+        this.end = end;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closeChannel) {
+            channel.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Decodes the characters from the current window, mapping the next window of the file if necessary.
+     */
+    @Override
+    protected boolean fill(final CharBuffer chars) throws IOException {
+        while (chars.position() == 0 && !flushed) {
+            if (bytes == null || !bytes.hasRemaining() && position < end) {
+                mapNextWindow();
+            }
+            final boolean endOfInput = position >= end;
+            final CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (endOfInput && result.isUnderflow()) {
+                flushed = decoder.flush(chars).isUnderflow();
+            } else if (result.isUnderflow() && bytes.hasRemaining()) {
+                mapNextWindow();
+            }
+        }
+        return !flushed || chars.position() > 0;
+    }
+
+    /**
+     * Maps the next window of the file.
+     * Bytes of the current window which were not decoded yet, like an incomplete multi-byte character, are mapped again.
+     *
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private void mapNextWindow() throws IOException {
+        final long windowStart = bytes != null ? position - bytes.remaining() : position;
+        final long size = Math.min(windowSize, end - windowStart);
+        bytes = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+        position = windowStart + size;
+    }
+
+    /**
+     * Provides {@link MappedReadLine}s for files.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    public static class PathFactory extends ReadLine.Factory<Path> {
+
+        /**
+         * Creates a PathFactory.
+         */
+        public PathFactory() {
+            super(Path.class);
+        }
+
+        @Override
+        public ReadLine createReadLineImpl(final Path objectToWrap) throws IOException {
+            return new MappedReadLine(objectToWrap);
+        }
+    }
+
+    /**
+     * Provides {@link MappedReadLine}s for FileChannels.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    public static class FileChannelFactory extends ReadLine.Factory<FileChannel> {
+
+        /**
+         * Creates a FileChannelFactory.
+         */
+        public FileChannelFactory() {
+            super(FileChannel.class);
+        }
+
+        @Override
+        public ReadLine createReadLineImpl(final FileChannel objectToWrap) throws IOException {
+            return new MappedReadLine(objectToWrap, Charset.defaultCharset(), DEFAULT_WINDOW_SIZE);
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package de.riedquat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Processes the lines of a file in parallel on a {@link ForkJoinPool}, keeping the exact line number of every line.
+ * The file is split into chunks at line boundaries.
+ * First, the line terminators of all chunks are counted in parallel, which gives the line number at which each chunk starts.
+ * Then, the lines of all chunks are read in parallel with {@link MappedReadLine}s and passed to a {@link LineHandler}.
+ * <p>
+ * Splitting at the bytes of {@code '\n'} and {@code '\r'} requires a charset in which these bytes always are line terminators,
+ * like US-ASCII, ISO-8859-1 or UTF-8.
+ * Files in other charsets, like UTF-16, are read as one chunk.
+ * <p>
+ * The LineHandler is called concurrently for different chunks, so it must be thread-safe.
+ * The lines of one chunk are passed in order, the chunks in no particular order.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ParallelLines {
+
+    /**
+     * The default size of the chunks, which is also the maximum size.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The size of the buffer for finding line boundaries.
+     */
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    /**
+     * Utility class - do not instantiate.
+     */
+    private ParallelLines() {
+    }
+
+    /**
+     * Handles the lines of a file.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    public interface LineHandler {
+
+        /**
+         * Handles a line.
+         * Called concurrently by the threads of the ForkJoinPool.
+         *
+         * @param line
+         *         Line to handle.
+         * @throws IOException
+         *         In case of I/O problems, which stops processing.
+         */
+        void handle(Line line) throws IOException;
+    }
+
+    /**
+     * Processes the lines of a file in parallel on a new ForkJoinPool with as many threads as processors.
+     *
+     * @param file
+     *         File to read.
+     * @param charset
+     *         Charset of the file.
+     * @param handler
+     *         LineHandler to which to pass the lines.
+     * @throws IOException
+     *         In case of I/O problems or if the handler threw an IOException.
+     */
+    public static void forEach(final Path file, final Charset charset, final LineHandler handler) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        final ForkJoinPool pool = new ForkJoinPool();
+        try {
+            forEach(channel, charset, handler, pool, DEFAULT_CHUNK_SIZE);
+        } finally {
+            pool.shutdown();
+            channel.close();
+        }
+    }
+
+    /**
+     * Processes the lines of a FileChannel in parallel, from its current position to its end.
+     *
+     * @param channel
+     *         FileChannel to read, which is not closed.
+     * @param charset
+     *         Charset of the file.
+     * @param handler
+     *         LineHandler to which to pass the lines.
+     * @param pool
+     *         ForkJoinPool on which to process the lines.
+     * @param chunkSize
+     *         Size of the chunks in bytes, at most {@link MappedReadLine#DEFAULT_WINDOW_SIZE}.
+     *         Chunks are larger by the rest of the line in which they would end.
+     * @throws IOException
+     *         In case of I/O problems or if the handler threw an IOException.
+     */
+    public static void forEach(final FileChannel channel, final Charset charset, final LineHandler handler, final ForkJoinPool pool, final int chunkSize) throws IOException {
+        if (chunkSize < 1 || chunkSize > MappedReadLine.DEFAULT_WINDOW_SIZE) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        final long[] bounds = split(channel, channel.position(), channel.size(), isSplittable(charset) ? chunkSize : Long.MAX_VALUE);
+        final int chunkCount = bounds.length - 1;
+        final int[] firstLineNumbers = new int[chunkCount];
+        try {
+            pool.invoke(new CountTask(channel, bounds, firstLineNumbers, 0, chunkCount - 1));
+            // The last chunk needs no count, the line numbers are the counts of the chunks before.
+            int lineNumber = 0;
+            for (int i = 0; i < chunkCount; i++) {
+                final int count = firstLineNumbers[i];
+                firstLineNumbers[i] = lineNumber;
+                lineNumber += count;
+            }
+            pool.invoke(new ReadTask(channel, charset, handler, bounds, firstLineNumbers, 0, chunkCount));
+        } catch (final ReadLineException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Returns whether a file in a charset can be split at the bytes of {@code '\r'} and {@code '\n'}.
+     *
+     * @param charset
+     *         Charset to check.
+     * @return {@code true} if the charset encodes {@code '\r'} and {@code '\n'} as single ASCII bytes, otherwise {@code false}.
+     */
+    static boolean isSplittable(final Charset charset) {
+        if (!charset.canEncode()) {
+            return false;
+        }
+        final ByteBuffer encoded = charset.encode("\r\n");
+        final byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        return Arrays.equals(new byte[] { '\r', '\n' }, bytes) && !charset.name().startsWith("UTF-16") && !charset.name().startsWith("UTF-32");
+    }
+
+    /**
+     * Splits a range of a file into chunks which start at the beginning of a line.
+     *
+     * @param channel
+     *         FileChannel to split.
+     * @param start
+     *         File position at which the range starts.
+     * @param end
+     *         File position at which the range ends.
+     * @param chunkSize
+     *         Minimum size of the chunks, except the last.
+     * @return The bounds of the chunks, the start of the first chunk, followed by the end of every chunk.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private static long[] split(final FileChannel channel, final long start, final long end, final long chunkSize) throws IOException {
+        final List<Long> bounds = new ArrayList<Long>();
+        bounds.add(start);
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        for (long position = start; position < end; ) {
+            position = end - position > chunkSize ? findLineStart(channel, buffer, position + chunkSize, end) : end;
+            bounds.add(position);
+        }
+        if (bounds.size() == 1) {
+            bounds.add(end);
+        }
+        final long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the start of the next line.
+     * A {@code "\r\n"} is not split.
+     *
+     * @param channel
+     *         FileChannel to scan.
+     * @param buffer
+     *         Buffer for reading.
+     * @param position
+     *         File position from which to scan.
+     * @param end
+     *         File position at which to stop scanning.
+     * @return The file position after the next line terminator, or end if there is none.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private static long findLineStart(final FileChannel channel, final ByteBuffer buffer, final long position, final long end) throws IOException {
+        boolean afterCr = false;
+        for (long offset = position; offset < end; ) {
+            buffer.clear();
+            final int count = channel.read(buffer, offset);
+            if (count < 0) {
+                break;
+            }
+            for (int i = 0; i < count; i++) {
+                final byte b = buffer.get(i);
+                if (b == '\n') {
+                    return offset + i + 1;
+                }
+                if (afterCr) {
+                    return offset + i;
+                }
+                afterCr = b == '\r';
+            }
+            offset += count;
+        }
+        return end;
+    }
+
+    /**
+     * Counts the line terminators in the chunks of a file.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    private static final class CountTask extends RecursiveAction {
+
+        /**
+         * Serial version of this class.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The FileChannel to read.
+         */
+        private final transient FileChannel channel;
+
+        /**
+         * The bounds of the chunks.
+         */
+        private final long[] bounds;
+
+        /**
+         * The numbers of line terminators per chunk, which are set by this task.
+         */
+        private final int[] counts;
+
+        /**
+         * The index of the first chunk to count.
+         */
+        private final int from;
+
+        /**
+         * The index after the last chunk to count.
+         */
+        private final int to;
+
+        /**
+         * Creates a CountTask.
+         *
+         * @param channel
+         *         FileChannel to read.
+         * @param bounds
+         *         Bounds of the chunks.
+         * @param counts
+         *         Array to which to write the numbers of line terminators per chunk.
+         * @param from
+         *         Index of the first chunk to count.
+         * @param to
+         *         Index after the last chunk to count.
+         */
+        CountTask(final FileChannel channel, final long[] bounds, final int[] counts, final int from, final int to) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.counts = counts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new CountTask(channel, bounds, counts, from, middle), new CountTask(channel, bounds, counts, middle, to));
+            } else if (to > from) {
+                try {
+                    counts[from] = count(channel.map(FileChannel.MapMode.READ_ONLY, bounds[from], bounds[from + 1] - bounds[from]));
+                } catch (final IOException e) {
+                    throw new ReadLineException(e);
+                }
+            }
+        }
+
+        /**
+         * Counts the line terminators in a chunk.
+         * A {@code '\r'} at the end of the chunk is a line terminator, because chunks never end between {@code '\r'} and {@code '\n'}.
+         *
+         * @param bytes
+         *         Bytes of the chunk.
+         * @return The number of line terminators.
+         */
+        private static int count(final ByteBuffer bytes) {
+            int count = 0;
+            final int limit = bytes.limit();
+            for (int i = 0; i < limit; i++) {
+                final byte b = bytes.get(i);
+                if (b == '\n' || b == '\r' && (i + 1 == limit || bytes.get(i + 1) != '\n')) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Reads the lines of the chunks of a file and passes them to a LineHandler.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    private static final class ReadTask extends RecursiveAction {
+
+        /**
+         * Serial version of this class.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The FileChannel to read.
+         */
+        private final transient FileChannel channel;
+
+        /**
+         * The charset of the file.
+         */
+        private final transient Charset charset;
+
+        /**
+         * The LineHandler to which to pass the lines.
+         */
+        private final transient LineHandler handler;
+
+        /**
+         * The bounds of the chunks.
+         */
+        private final long[] bounds;
+
+        /**
+         * The line numbers of the lines before the chunks.
+         */
+        private final int[] lineNumbers;
+
+        /**
+         * The index of the first chunk to read.
+         */
+        private final int from;
+
+        /**
+         * The index after the last chunk to read.
+         */
+        private final int to;
+
+        /**
+         * Creates a ReadTask.
+         *
+         * @param channel
+         *         FileChannel to read.
+         * @param charset
+         *         Charset of the file.
+         * @param handler
+         *         LineHandler to which to pass the lines.
+         * @param bounds
+         *         Bounds of the chunks.
+         * @param lineNumbers
+         *         Line numbers of the lines before the chunks.
+         * @param from
+         *         Index of the first chunk to read.
+         * @param to
+         *         Index after the last chunk to read.
+         */
+        ReadTask(final FileChannel channel, final Charset charset, final LineHandler handler, final long[] bounds, final int[] lineNumbers, final int from, final int to) {
+            this.channel = channel;
+            this.charset = charset;
+            this.handler = handler;
+            this.bounds = bounds;
+            this.lineNumbers = lineNumbers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new ReadTask(channel, charset, handler, bounds, lineNumbers, from, middle), new ReadTask(channel, charset, handler, bounds, lineNumbers, middle, to));
+            } else if (to > from) {
+                final long size = bounds[from + 1] - bounds[from];
+                final int windowSize = (int) Math.max(16, Math.min(MappedReadLine.DEFAULT_WINDOW_SIZE, size));
+                final MappedReadLine readLine = new MappedReadLine(channel, charset, windowSize, bounds[from], bounds[from + 1], lineNumbers[from]);
+                try {
+                    for (String line; (line = readLine.readLine()) != null; ) {
+                        handler.handle(new Line(readLine.getLineNumber(), line));
+                    }
+                } catch (final IOException e) {
+                    throw new ReadLineException(e);
+                }
+            }
+        }
+    }
+}
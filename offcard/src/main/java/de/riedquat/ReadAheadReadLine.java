@@ -0,0 +1,356 @@
+package de.riedquat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * ReadLine which reads the lines of another ReadLine ahead on a background thread, so that slow I/O overlaps with processing the lines.
+ * The lines are passed in batches through a ring of a fixed number of batches, which are reused,
+ * so the background thread reads at most that many batches ahead.
+ * Each line is kept together with its line number and, if the source is a {@link CharBufferReadLine}, its line terminator.
+ * <p>
+ * An exception of the source is rethrown to the consumer after the lines read before it.
+ * {@link #close()} stops the background thread and closes the source if it is {@link Closeable}.
+ * The background thread is created by a {@link ThreadFactory}, by default a daemon thread.
+ * On Java 21 and newer, {@code Thread.ofVirtual().factory()} can be given to read ahead on a virtual thread.
+ * <p>
+ * Like the other ReadLines, a ReadAheadReadLine must only be read by one thread at a time.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReadAheadReadLine extends ReadLine.ReadLineImpl implements LineTerminatorReadLine {
+
+    /**
+     * The default number of lines per batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * The default number of batches in the ring.
+     */
+    public static final int DEFAULT_BATCH_COUNT = 4;
+
+    /**
+     * ThreadFactory which creates daemon threads, so that an unclosed ReadAheadReadLine does not keep the VM alive.
+     */
+    private static final ThreadFactory DAEMON_THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, ReadAheadReadLine.class.getSimpleName());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    /**
+     * Marker batch which is passed to the consumer when the ReadAheadReadLine is closed.
+     */
+    private static final Batch CLOSED = new Batch(0);
+
+    /**
+     * The ReadLine to read from.
+     */
+    private final ReadLine source;
+
+    /**
+     * The batches which can be filled by the background thread.
+     */
+    private final BlockingQueue<Batch> free;
+
+    /**
+     * The batches which were filled by the background thread and not yet taken by the consumer.
+     */
+    private final BlockingQueue<Batch> filled;
+
+    /**
+     * The background thread.
+     */
+    private final Thread thread;
+
+    /**
+     * The batch which is being read by the consumer, {@code null} before the first line.
+     */
+    private Batch batch;
+
+    /**
+     * The index of the next line in {@link #batch}.
+     */
+    private int index;
+
+    /**
+     * The line number of the last line read by the consumer.
+     */
+    private int lineNumber;
+
+    /**
+     * The line terminator of the last line read by the consumer.
+     */
+    private String lineTerminator = "";
+
+    /**
+     * Whether this ReadAheadReadLine was closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates a ReadAheadReadLine with the default settings and starts reading ahead.
+     *
+     * @param source
+     *         ReadLine to read from.
+     *         It must not be read by anything else while this ReadAheadReadLine is open.
+     */
+    public ReadAheadReadLine(final ReadLine source) {
+        this(source, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_COUNT, DAEMON_THREAD_FACTORY);
+    }
+
+    /**
+     * Creates a ReadAheadReadLine and starts reading ahead.
+     *
+     * @param source
+     *         ReadLine to read from.
+     *         It must not be read by anything else while this ReadAheadReadLine is open.
+     * @param batchSize
+     *         Number of lines per batch.
+     * @param batchCount
+     *         Number of batches in the ring, at least 2 so that reading ahead and processing can overlap.
+     * @param threadFactory
+     *         ThreadFactory which creates the background thread.
+     */
+    public ReadAheadReadLine(final ReadLine source, final int batchSize, final int batchCount, final ThreadFactory threadFactory) {
+        if (batchSize < 1 || batchCount < 2) {
+            throw new IllegalArgumentException("Invalid batch size or count: " + batchSize + ", " + batchCount);
+        }
+        this.source = source;
+        // One more slot than batches, so that the CLOSED marker always fits.
+        filled = new ArrayBlockingQueue<Batch>(batchCount + 1);
+        free = new ArrayBlockingQueue<Batch>(batchCount);
+        for (int i = 0; i < batchCount; i++) {
+            free.add(new Batch(batchSize));
+        }
+        thread = threadFactory.newThread(new ReadAhead(source, free, filled));
+        thread.start();
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (closed) {
+            throw new IOException("ReadLine closed");
+        }
+        while (batch == null || index == batch.count) {
+            if (batch != null) {
+                batch.rethrow();
+                if (batch.end) {
+                    return null;
+                }
+                free.add(batch);
+            }
+            batch = null;
+            try {
+                batch = filled.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for lines");
+            }
+            if (batch == CLOSED) {
+                filled.add(CLOSED);
+                batch = null;
+                throw new IOException("ReadLine closed");
+            }
+            index = 0;
+        }
+        lineNumber = batch.lineNumbers[index];
+        lineTerminator = batch.lineTerminators[index];
+        return batch.lines[index++];
+    }
+
+    @Override
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * {@inheritDoc}
+     * If the source is no LineTerminatorReadLine, every line is terminated with {@code "\n"}.
+     */
+    @Override
+    public String getLineTerminator() {
+        return lineTerminator;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Stops the background thread and closes the source if it is {@link Closeable}.
+     * A consumer which is waiting for lines gets an IOException.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        thread.interrupt();
+        filled.clear();
+        filled.add(CLOSED);
+        if (source instanceof Closeable) {
+            ((Closeable) source).close();
+        }
+    }
+
+    /**
+     * A batch of lines with their line numbers and line terminators.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    private static final class Batch {
+
+        /**
+         * The lines.
+         */
+        final String[] lines;
+
+        /**
+         * The line numbers of the lines.
+         */
+        final int[] lineNumbers;
+
+        /**
+         * The line terminators of the lines.
+         */
+        final String[] lineTerminators;
+
+        /**
+         * The number of lines in this batch.
+         */
+        int count;
+
+        /**
+         * Whether the source ended after the lines of this batch.
+         */
+        boolean end;
+
+        /**
+         * The exception with which the source ended, {@code null} if it ended normally or did not end.
+         */
+        Throwable error;
+
+        /**
+         * Creates a Batch.
+         *
+         * @param size
+         *         Maximum number of lines.
+         */
+        Batch(final int size) {
+            lines = new String[size];
+            lineNumbers = new int[size];
+            lineTerminators = new String[size];
+        }
+
+        /**
+         * Rethrows the exception with which the source ended, if any.
+         *
+         * @throws IOException
+         *         If the source ended with an IOException.
+         */
+        void rethrow() throws IOException {
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            }
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            }
+            if (error instanceof Error) {
+                throw (Error) error;
+            }
+        }
+    }
+
+    /**
+     * Reads the lines of the source into batches on the background thread.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    private static final class ReadAhead implements Runnable {
+
+        /**
+         * The ReadLine to read from.
+         */
+        private final ReadLine source;
+
+        /**
+         * The batches which can be filled.
+         */
+        private final BlockingQueue<Batch> free;
+
+        /**
+         * The batches which were filled.
+         */
+        private final BlockingQueue<Batch> filled;
+
+        /**
+         * Creates a ReadAhead.
+         *
+         * @param source
+         *         ReadLine to read from.
+         * @param free
+         *         Batches which can be filled.
+         * @param filled
+         *         Queue to which to put the filled batches.
+         */
+        ReadAhead(final ReadLine source, final BlockingQueue<Batch> free, final BlockingQueue<Batch> filled) {
+            this.source = source;
+            this.free = free;
+            this.filled = filled;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (boolean end = false; !end; ) {
+                    final Batch batch = free.take();
+                    fill(batch);
+                    end = batch.end;
+                    filled.put(batch);
+                }
+            } catch (final InterruptedException ignore) {
+                // Closed, the consumer gets the CLOSED marker.
+            }
+        }
+
+        /**
+         * Fills a batch with the next lines of the source.
+         *
+         * @param batch
+         *         Batch to fill.
+         */
+        private void fill(final Batch batch) {
+            batch.count = 0;
+            try {
+                while (batch.count < batch.lines.length) {
+                    final String line = source.readLine();
+                    if (line == null) {
+                        batch.end = true;
+                        return;
+                    }
+                    batch.lines[batch.count] = line;
+                    batch.lineNumbers[batch.count] = source.getLineNumber();
+                    batch.lineTerminators[batch.count] = source instanceof LineTerminatorReadLine ? ((LineTerminatorReadLine) source).getLineTerminator() : "\n";
+                    batch.count++;
+                }
+            } catch (final Throwable e) {
+                // Rethrown on the consumer's thread after the lines read before.
+                batch.error = e;
+                batch.end = true;
+            }
+        }
+    }
+}
@@ -3,9 +3,22 @@ package de.riedquat;
 import com.sun.istack.internal.Nullable;
 import java.io.IOException;
 import java.io.LineNumberReader;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Provides lines usually read from an {@link java.io.InputStream} or a {@link java.io.Reader}.
@@ -24,6 +37,17 @@ public interface ReadLine extends Iterable<String> {
      */
     String readLine() throws IOException;
 
+    /**
+     * Reads a line into a reusable buffer, without allocating a String for the line.
+     *
+     * @param buffer
+     *         StringBuilder which is cleared and then filled with the line read, without line terminator.
+     * @return The length of the line read or {@code -1} at the end of the input.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    int readLine(StringBuilder buffer) throws IOException;
+
     /**
      * Returns the current line number.
      * @return The current line number.
@@ -32,6 +56,7 @@ public interface ReadLine extends Iterable<String> {
 
     /**
      * A base class that implements the Iterable part.
+     * The Iterator rethrows {@link IOException}s wrapped in a {@link ReadLineException}.
      *
      * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
      * @version 1.0
@@ -39,41 +64,58 @@ public interface ReadLine extends Iterable<String> {
      */
     abstract class ReadLineImpl implements ReadLine {
 
+        /**
+         * {@inheritDoc}
+         * This implementation delegates to {@link #readLine()}, subclasses should override it to avoid allocating a String per line.
+         */
+        @Override
+        public int readLine(final StringBuilder buffer) throws IOException {
+            final String line = readLine();
+            buffer.setLength(0);
+            if (line == null) {
+                return -1;
+            }
+            buffer.append(line);
+            return line.length();
+        }
+
         @Override
         public Iterator<String> iterator() {
             return new Iterator<String>() {
+                @Nullable
                 private String nextLine;
-                private Throwable exception;
-                {
-                    prefetchNextLine();
-                }
+                private boolean fetched;
 
-                /** Fetches the next line. */
-                @Nullable
-                private void prefetchNextLine() {
-                    try {
-                        nextLine = readLine();
-                    } catch (final IOException e) {
-                        exception = e;
-                        nextLine = null;
+                /**
+                 * Fetches the next line unless it already was fetched.
+                 *
+                 * @throws ReadLineException
+                 *         In case of I/O problems.
+                 */
+                private void fetchNextLine() throws ReadLineException {
+                    if (!fetched) {
+                        try {
+                            nextLine = readLine();
+                        } catch (final IOException e) {
+                            throw new ReadLineException(e);
+                        }
+                        fetched = true;
                     }
                 }
 
                 @Override
                 public boolean hasNext() {
+                    fetchNextLine();
                     return nextLine != null;
                 }
 
                 @Override
                 public String next() {
-                    if (nextLine == null) {
+                    if (!hasNext()) {
                         throw new NoSuchElementException();
                     }
-                    try {
-                        return nextLine;
-                    } finally {
-                        prefetchNextLine();
-                    }
+                    fetched = false;
+                    return nextLine;
                 }
 
                 @Override
@@ -86,6 +128,8 @@ public interface ReadLine extends Iterable<String> {
 
     /**
      * Provides {@link ReadLine}s.
+     * Factories are found using the {@link ServiceLoader} mechanism.
+     * They are loaded once per class loader and indexed by the type they accept.
      *
      * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
      * @version 1.0
@@ -93,32 +137,210 @@ public interface ReadLine extends Iterable<String> {
      */
     abstract class Factory<T> {
 
+        /**
+         * The type of objects which this Factory wraps.
+         */
+        private final Class<T> type;
+
+        /**
+         * Creates a Factory.
+         *
+         * @param type
+         *      The type of objects which this Factory wraps.
+         *      The Factory is also used for subtypes of type, unless there is a Factory for a more specific type.
+         */
+        protected Factory(final Class<T> type) {
+            this.type = type;
+        }
+
+        /**
+         * Returns the type of objects which this Factory wraps.
+         *
+         * @return The type of objects which this Factory wraps.
+         */
+        public final Class<T> getType() {
+            return type;
+        }
+
         /**
          * Creates a ReadLine by wrapping the specified object.
          *
          * @param objectToWrap
          *      Object to wrap for creating the ReadLine.
          * @return ReadLine wrapping that object.
-         * @throws ClassCastException in case the Factory does not support the type of objectToWrap.
+         * @throws IOException in case the ReadLine cannot be created because of I/O problems.
          */
-        public abstract ReadLine createReadLineImpl(T objectToWrap) throws ClassCastException;
+        public abstract ReadLine createReadLineImpl(T objectToWrap) throws IOException;
 
         /**
-         * Returns a Factory that can create a ReadLine from the specified object.
+         * Creates a ReadLine by wrapping the specified object, using the Factory registered for the type of that object.
+         * Factories are looked up with the context class loader of the current thread.
          *
          * @param objectToWrap
          *      Object to wrap for creating the ReadLine.
-         * @return Factory for that class.
+         * @return ReadLine wrapping that object or {@code null} if no Factory supports the type of objectToWrap.
+         * @throws IOException in case the ReadLine cannot be created because of I/O problems.
+         */
+        @Nullable
+        public static ReadLine createReadLine(final Object objectToWrap) throws IOException {
+            final Factory<?> factory = Registry.forClassLoader(Thread.currentThread().getContextClassLoader()).getFactory(objectToWrap.getClass());
+            return factory != null ? createReadLine(factory, objectToWrap) : null;
+        }
+
+        /**
+         * Creates a ReadLine by wrapping the specified object with the specified Factory.
+         *
+         * @param factory
+         *      Factory which supports the type of objectToWrap.
+         * @param objectToWrap
+         *      Object to wrap for creating the ReadLine.
+         * @param <T>
+         *      Type of objects which the Factory wraps.
+         * @return ReadLine wrapping that object.
+         * @throws IOException in case the ReadLine cannot be created because of I/O problems.
          */
-        public static ReadLine createReadLine(final Object objectToWrap) {
-            final ServiceLoader<Factory> serviceLoader = ServiceLoader.load(Factory.class);
-            for (final Factory factory : serviceLoader) {
-                try {
-                    return factory.createReadLineImpl(objectToWrap);
-                } catch (final ClassCastException ignore) {
+        private static <T> ReadLine createReadLine(final Factory<T> factory, final Object objectToWrap) throws IOException {
+            return factory.createReadLineImpl(factory.type.cast(objectToWrap));
+        }
+
+        /**
+         * The Factories of a class loader, indexed by the type they accept.
+         *
+         * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+         * @version 1.0
+         * @since 1.0
+         */
+        private static final class Registry {
+
+            /**
+             * The Registries by class loader.
+             * The Registries are softly referenced because they strongly reference their class loader through the Factories.
+             */
+            private static final Map<ClassLoader, Reference<Registry>> REGISTRIES = new WeakHashMap<ClassLoader, Reference<Registry>>();
+
+            /**
+             * The most recently used Registry, for finding it without locking in the common case of a single class loader.
+             * It is weakly referenced, so that it does not keep its class loader alive after {@link #REGISTRIES} released it.
+             */
+            @Nullable
+            private static volatile Reference<Registry> lastRegistry;
+
+            /**
+             * Marker for types for which there is no Factory.
+             */
+            private static final Factory<?> NO_FACTORY = new Factory<Object>(Object.class) {
+                @Override
+                public ReadLine createReadLineImpl(final Object objectToWrap) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+
+            /**
+             * The class loader from which the Factories were loaded.
+             */
+            private final ClassLoader classLoader;
+
+            /**
+             * The Factories by the type they declare.
+             */
+            private final Map<Class<?>, Factory<?>> factoriesByType = new HashMap<Class<?>, Factory<?>>();
+
+            /**
+             * The Factories by the classes for which they were looked up, including {@link #NO_FACTORY}.
+             */
+            private final ConcurrentMap<Class<?>, Factory<?>> factoriesByClass = new ConcurrentHashMap<Class<?>, Factory<?>>();
+
+            /**
+             * Creates a Registry and loads its Factories.
+             * If multiple Factories declare the same type, the first one wins.
+             *
+             * @param classLoader
+             *      The class loader from which to load the Factories.
+             */
+            private Registry(final ClassLoader classLoader) {
+                this.classLoader = classLoader;
+                for (final Factory<?> factory : ServiceLoader.load(Factory.class, classLoader)) {
+                    if (!factoriesByType.containsKey(factory.type)) {
+                        factoriesByType.put(factory.type, factory);
+                    }
+                }
+            }
+
+            /**
+             * Returns the Registry for a class loader.
+             *
+             * @param classLoader
+             *      The class loader or {@code null} for the system class loader.
+             * @return The Registry for that class loader.
+             */
+            static Registry forClassLoader(@Nullable final ClassLoader classLoader) {
+                final ClassLoader loader = classLoader != null ? classLoader : ClassLoader.getSystemClassLoader();
+                final Reference<Registry> lastReference = lastRegistry;
+                final Registry last = lastReference != null ? lastReference.get() : null;
+                if (last != null && last.classLoader == loader) {
+                    return last;
+                }
+                synchronized (REGISTRIES) {
+                    final Reference<Registry> reference = REGISTRIES.get(loader);
+                    Registry registry = reference != null ? reference.get() : null;
+                    if (registry == null) {
+                        registry = new Registry(loader);
+                        REGISTRIES.put(loader, new SoftReference<Registry>(registry));
+                    }
+                    lastRegistry = new WeakReference<Registry>(registry);
+                    return registry;
+                }
+            }
+
+            /**
+             * Returns the Factory for a class.
+             *
+             * @param clazz
+             *      Class for which to find a Factory.
+             * @return The Factory for clazz or {@code null} if there is none.
+             */
+            @Nullable
+            Factory<?> getFactory(final Class<?> clazz) {
+                Factory<?> factory = factoriesByClass.get(clazz);
+                if (factory == null) {
+                    factory = findFactory(clazz);
+                    factoriesByClass.putIfAbsent(clazz, factory);
+                }
+                return factory != NO_FACTORY ? factory : null;
+            }
+
+            /**
+             * Finds the Factory for the most specific type of a class.
+             * Superclasses are searched before interfaces, interfaces are searched breadth-first.
+             *
+             * @param clazz
+             *      Class for which to find a Factory.
+             * @return The Factory for clazz or {@link #NO_FACTORY} if there is none.
+             */
+            private Factory<?> findFactory(final Class<?> clazz) {
+                for (Class<?> type = clazz; type != null; type = type.getSuperclass()) {
+                    final Factory<?> factory = factoriesByType.get(type);
+                    if (factory != null) {
+                        return factory;
+                    }
+                }
+                final Queue<Class<?>> interfaces = new ArrayDeque<Class<?>>();
+                final Set<Class<?>> visited = new HashSet<Class<?>>();
+                for (Class<?> type = clazz; type != null; type = type.getSuperclass()) {
+                    interfaces.addAll(Arrays.asList(type.getInterfaces()));
+                }
+                while (!interfaces.isEmpty()) {
+                    final Class<?> type = interfaces.remove();
+                    if (visited.add(type)) {
+                        final Factory<?> factory = factoriesByType.get(type);
+                        if (factory != null) {
+                            return factory;
+                        }
+                        interfaces.addAll(Arrays.asList(type.getInterfaces()));
+                    }
                 }
+                return NO_FACTORY;
             }
-            return null;
         }
     }
 
@@ -131,8 +353,15 @@ public interface ReadLine extends Iterable<String> {
      */
     class LineNumberFactory extends Factory<LineNumberReader> {
 
+        /**
+         * Creates a LineNumberFactory.
+         */
+        public LineNumberFactory() {
+            super(LineNumberReader.class);
+        }
+
         @Override
-        public ReadLine createReadLineImpl(final LineNumberReader objectToWrap) throws ClassCastException {
+        public ReadLine createReadLineImpl(final LineNumberReader objectToWrap) {
             return new ReadLineImpl() {
                 private final LineNumberReader reader = objectToWrap;
 
@@ -0,0 +1,34 @@
+package de.riedquat;
+
+import java.io.IOException;
+
+/**
+ * Unchecked exception which wraps an {@link IOException} of a {@link ReadLine} where no checked exception can be thrown,
+ * like in its {@link java.util.Iterator}.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReadLineException extends RuntimeException {
+
+    /**
+     * Serial version of this class.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a ReadLineException.
+     *
+     * @param cause
+     *         The IOException to wrap.
+     */
+    public ReadLineException(final IOException cause) {
+        super(cause);
+    }
+
+    @Override
+    public IOException getCause() {
+        return (IOException) super.getCause();
+    }
+}
@@ -0,0 +1,71 @@
+package de.riedquat;
+
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * ReadLine which reads from a {@link Reader} into its own buffer.
+ * Unlike {@link LineNumberReader}, it does not copy the characters through additional buffers and does not synchronize.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReaderReadLine extends CharBufferReadLine {
+
+    /**
+     * The Reader to read from.
+     */
+    private final Reader reader;
+
+    /**
+     * Creates a ReaderReadLine.
+     * If in is a {@link LineNumberReader}, line numbers continue from its current line number.
+     *
+     * @param in
+     *         Reader to read from.
+     */
+    public ReaderReadLine(final Reader in) {
+        super(DEFAULT_BUFFER_SIZE, in instanceof LineNumberReader ? ((LineNumberReader) in).getLineNumber() : 0);
+        reader = in;
+    }
+
+    @Override
+    protected boolean fill(final CharBuffer chars) throws IOException {
+        final int read = reader.read(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        if (read < 0) {
+            return false;
+        }
+        chars.position(chars.position() + read);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Provides {@link ReaderReadLine}s for Readers.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    public static class ReaderFactory extends ReadLine.Factory<Reader> {
+
+        /**
+         * Creates a ReaderFactory.
+         */
+        public ReaderFactory() {
+            super(Reader.class);
+        }
+
+        @Override
+        public ReadLine createReadLineImpl(final Reader objectToWrap) {
+            return new ReaderReadLine(objectToWrap);
+        }
+    }
+}
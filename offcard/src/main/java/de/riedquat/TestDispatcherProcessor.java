@@ -0,0 +1,334 @@
+package de.riedquat;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Annotation processor which generates the dispatcher applets for classes with {@code org.jcunit.Test} methods.
+ * For a test class {@code FooTest}, the applet {@code FooTestDispatcher} is generated.
+ * It extends {@code org.jcunit.TestApplet} and runs each test for a command with its own INS, using a plain {@code switch} on the INS byte.
+ * The tests can also be run in batches by their index, see {@code org.jcunit.TestApplet}.
+ * <p>
+ * For the off-card side, the manifest {@code FooTest.jctests} is generated next to the class files.
+ * It lists the INS of each test in the order of their indices and is read by {@code de.riedquat.runner.TestSuite#load}.
+ * The manifest has one entry per line:
+ * <pre>
+ * suite pkg.FooTest
+ * source FooTest.java
+ * dispatcher pkg.FooTestDispatcher
+ * test 10 testSomething
+ * budget 10 256 -1 -1
+ * </pre>
+ * A {@code budget} line follows the {@code test} line of a test which is annotated with {@code org.jcunit.MemoryBudget}.
+ * It lists the persistent, clear on reset and clear on deselect memory which the test may consume, {@code -1} meaning unlimited.
+ * <p>
+ * Test methods must not be private, must not be abstract and must not have parameters.
+ * Instance test methods are invoked on one instance of the test class, which is created when the applet is installed.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+@SupportedAnnotationTypes(TestDispatcherProcessor.TEST_ANNOTATION)
+public class TestDispatcherProcessor extends AbstractProcessor {
+
+    /**
+     * The name of the annotation for test cases.
+     */
+    public static final String TEST_ANNOTATION = "org.jcunit.Test";
+
+    /**
+     * The name of the annotation for the memory budget of test cases.
+     */
+    public static final String MEMORY_BUDGET_ANNOTATION = "org.jcunit.MemoryBudget";
+
+    /**
+     * The elements of {@link #MEMORY_BUDGET_ANNOTATION}, in the order of the manifest.
+     */
+    private static final String[] MEMORY_BUDGET_ELEMENTS = { "persistent", "transientReset", "transientDeselect" };
+
+    /**
+     * The suffix of the names of the generated dispatcher applets.
+     */
+    public static final String DISPATCHER_SUFFIX = "Dispatcher";
+
+    /**
+     * The extension of the generated manifests.
+     */
+    public static final String MANIFEST_EXTENSION = ".jctests";
+
+    /**
+     * The INS of the first test.
+     */
+    private static final int FIRST_INS = 0x10;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        final Map<TypeElement, List<ExecutableElement>> testsByClass = new LinkedHashMap<TypeElement, List<ExecutableElement>>();
+        for (final TypeElement annotation : annotations) {
+            for (final Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.METHOD && isValidTest((ExecutableElement) element)) {
+                    final TypeElement testClass = (TypeElement) element.getEnclosingElement();
+                    if (!testsByClass.containsKey(testClass)) {
+                        testsByClass.put(testClass, new ArrayList<ExecutableElement>());
+                    }
+                    testsByClass.get(testClass).add((ExecutableElement) element);
+                }
+            }
+        }
+        for (final Map.Entry<TypeElement, List<ExecutableElement>> entry : testsByClass.entrySet()) {
+            try {
+                generate(entry.getKey(), entry.getValue());
+            } catch (final IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot generate dispatcher: " + e, entry.getKey());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the INS of a test.
+     * The INS values which are invalid in T=0 ({@code 6X} and {@code 9X}) and the INS values of SELECT, MANAGE CHANNEL and GET RESPONSE are skipped.
+     *
+     * @param index
+     *         Index of the test.
+     * @return The INS of the test or {@code -1} if there are too many tests.
+     */
+    public static int getIns(final int index) {
+        int remaining = index;
+        for (int ins = FIRST_INS; ins <= 0xFF; ins++) {
+            if (isReservedIns(ins)) {
+                continue;
+            }
+            if (remaining-- == 0) {
+                return ins;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether an INS must not be used for tests.
+     *
+     * @param ins
+     *         INS to check.
+     * @return {@code true} if ins must not be used for tests, otherwise {@code false}.
+     */
+    private static boolean isReservedIns(final int ins) {
+        return (ins & 0xF0) == 0x60 || (ins & 0xF0) == 0x90 || ins == 0x70 || ins == 0xA4 || ins == 0xC0;
+    }
+
+    /**
+     * Checks that a method can be used as test.
+     *
+     * @param method
+     *         Method to check.
+     * @return {@code true} if method can be used as test, otherwise {@code false}.
+     */
+    private boolean isValidTest(final ExecutableElement method) {
+        final Set<Modifier> modifiers = method.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.ABSTRACT) || !method.getParameters().isEmpty()) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Test methods must not be private or abstract and must not have parameters.", method);
+            return false;
+        }
+        if (method.getReturnType().getKind() != TypeKind.VOID) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "The return value of test methods is ignored.", method);
+        }
+        return true;
+    }
+
+    /**
+     * Generates the dispatcher applet and the manifest for a test class.
+     *
+     * @param testClass
+     *         Test class for which to generate the dispatcher applet and the manifest.
+     * @param tests
+     *         Test methods of the test class.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private void generate(final TypeElement testClass, final List<ExecutableElement> tests) throws IOException {
+        if (getIns(tests.size() - 1) < 0) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Too many tests: " + tests.size(), testClass);
+            return;
+        }
+        final String packageName = processingEnv.getElementUtils().getPackageOf(testClass).getQualifiedName().toString();
+        final String className = processingEnv.getElementUtils().getBinaryName(testClass).toString().substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+        final String dispatcherName = className.replace('$', '_') + DISPATCHER_SUFFIX;
+        final String qualifiedName = packageName.isEmpty() ? dispatcherName : packageName + '.' + dispatcherName;
+        final PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, testClass).openWriter());
+        try {
+            writeDispatcher(out, packageName, testClass, dispatcherName, tests);
+        } finally {
+            out.close();
+        }
+        final FileObject manifest = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, packageName, className + MANIFEST_EXTENSION, testClass);
+        final PrintWriter manifestOut = new PrintWriter(manifest.openWriter());
+        try {
+            manifestOut.println("suite " + processingEnv.getElementUtils().getBinaryName(testClass));
+            manifestOut.println("source " + getSourceFileName(testClass));
+            manifestOut.println("dispatcher " + qualifiedName);
+            for (int i = 0; i < tests.size(); i++) {
+                manifestOut.println(String.format("test %02X %s", getIns(i), tests.get(i).getSimpleName()));
+                final AnnotationMirror budget = getAnnotation(tests.get(i), MEMORY_BUDGET_ANNOTATION);
+                if (budget != null) {
+                    manifestOut.println(String.format("budget %02X %s", getIns(i), getMemoryBudget(budget)));
+                }
+            }
+        } finally {
+            manifestOut.close();
+        }
+    }
+
+    /**
+     * Returns an annotation of an element, looked up by name because the annotation classes are not available to the processor.
+     *
+     * @param element
+     *         Element of which to return the annotation.
+     * @param annotationName
+     *         Qualified name of the annotation.
+     * @return The annotation or {@code null} if element is not annotated with it.
+     */
+    @Nullable
+    private static AnnotationMirror getAnnotation(final Element element, final String annotationName) {
+        for (final AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the values of a memory budget annotation for the manifest, including defaults.
+     *
+     * @param budget
+     *         Memory budget annotation.
+     * @return The values of budget, separated by spaces.
+     */
+    private String getMemoryBudget(final AnnotationMirror budget) {
+        final Map<? extends ExecutableElement, ? extends AnnotationValue> values = processingEnv.getElementUtils().getElementValuesWithDefaults(budget);
+        final StringBuilder result = new StringBuilder();
+        for (final String name : MEMORY_BUDGET_ELEMENTS) {
+            for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : values.entrySet()) {
+                if (value.getKey().getSimpleName().contentEquals(name)) {
+                    result.append(result.length() == 0 ? "" : " ").append(((Number) value.getValue().getValue()).intValue());
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Writes the source code of a dispatcher applet.
+     *
+     * @param out
+     *         Writer to which to write the source code.
+     * @param packageName
+     *         Name of the package of the dispatcher applet.
+     * @param testClass
+     *         Test class for which to generate the dispatcher applet.
+     * @param dispatcherName
+     *         Simple name of the dispatcher applet.
+     * @param tests
+     *         Test methods of the test class.
+     */
+    private static void writeDispatcher(final PrintWriter out, final String packageName, final TypeElement testClass, final String dispatcherName, final List<ExecutableElement> tests) {
+        final String testClassName = testClass.getQualifiedName().toString();
+        boolean hasInstanceTests = false;
+        for (final ExecutableElement test : tests) {
+            hasInstanceTests |= !test.getModifiers().contains(Modifier.STATIC);
+        }
+        if (!packageName.isEmpty()) {
+            out.println("package " + packageName + ";");
+            out.println();
+        }
+        out.println("/**");
+        out.println(" * Dispatcher applet for the tests of {@link " + testClassName + "}, generated by " + TestDispatcherProcessor.class.getName() + ".");
+        out.println(" */");
+        out.println("public class " + dispatcherName + " extends org.jcunit.TestApplet {");
+        if (hasInstanceTests) {
+            out.println();
+            out.println("    private final " + testClassName + " tests = new " + testClassName + "();");
+        }
+        out.println();
+        out.println("    public static void install(final byte[] bArray, final short bOffset, final byte bLength) {");
+        out.println("        new " + dispatcherName + "().register(bArray, (short) (bOffset + 1), bArray[bOffset]);");
+        out.println("    }");
+        out.println();
+        out.println("    @Override");
+        out.println("    protected short getTestCount() {");
+        out.println("        return " + tests.size() + ";");
+        out.println("    }");
+        out.println();
+        out.println("    @Override");
+        out.println("    protected short getTestIndex(final byte ins) {");
+        out.println("        switch (ins) {");
+        for (int i = 0; i < tests.size(); i++) {
+            out.println(String.format("        case (byte) 0x%02X:", getIns(i)));
+            out.println("            return " + i + ";");
+        }
+        out.println("        default:");
+        out.println("            return -1;");
+        out.println("        }");
+        out.println("    }");
+        out.println();
+        out.println("    @Override");
+        out.println("    protected void runTest(final short index) {");
+        out.println("        switch (index) {");
+        for (int i = 0; i < tests.size(); i++) {
+            final ExecutableElement test = tests.get(i);
+            final String target = test.getModifiers().contains(Modifier.STATIC) ? testClassName : "tests";
+            out.println("        case " + i + ":");
+            out.println("            " + target + "." + test.getSimpleName() + "();");
+            out.println("            break;");
+        }
+        out.println("        default:");
+        out.println("            javacard.framework.ISOException.throwIt(javacard.framework.ISO7816.SW_WRONG_P1P2);");
+        out.println("        }");
+        out.println("    }");
+        out.println("}");
+    }
+
+    /**
+     * Returns the name of the source file of a class, assuming that it follows the naming convention for top level classes.
+     *
+     * @param type
+     *         Class of which to return the source file name.
+     * @return The name of the source file of type.
+     */
+    private static String getSourceFileName(final TypeElement type) {
+        Element topLevel = type;
+        while (!(topLevel.getEnclosingElement() instanceof PackageElement)) {
+            topLevel = topLevel.getEnclosingElement();
+        }
+        return topLevel.getSimpleName() + ".java";
+    }
+}
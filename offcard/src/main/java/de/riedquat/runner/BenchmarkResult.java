@@ -0,0 +1,151 @@
+package de.riedquat.runner;
+
+import java.util.Arrays;
+
+/**
+ * The result of measuring an operation with {@link BenchmarkRunner}.
+ * Each sample is the time of one command which ran the operation {@link #getIterations()} times,
+ * minus the median time of the commands which ran the empty loop as often.
+ * If the operation is too fast to be told apart from the noise of the baseline, the result is {@linkplain #isBelowResolution() below the measurement resolution}.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class BenchmarkResult {
+
+    /**
+     * The name of the operation.
+     */
+    private final String name;
+
+    /**
+     * The number of times the operation was run per command.
+     */
+    private final int iterations;
+
+    /**
+     * The times of the commands which ran the operation, in nanoseconds, sorted.
+     */
+    private final long[] samples;
+
+    /**
+     * The times of the commands which ran the empty loop, in nanoseconds, sorted.
+     */
+    private final long[] baselineSamples;
+
+    /**
+     * Creates a BenchmarkResult.
+     *
+     * @param name
+     *         Name of the operation.
+     * @param iterations
+     *         Number of times the operation was run per command.
+     * @param samples
+     *         Times of the commands which ran the operation, in nanoseconds.
+     * @param baselineSamples
+     *         Times of the commands which ran the empty loop, in nanoseconds.
+     */
+    public BenchmarkResult(final String name, final int iterations, final long[] samples, final long[] baselineSamples) {
+        if (samples.length == 0 || baselineSamples.length == 0) {
+            throw new IllegalArgumentException("No samples.");
+        }
+        this.name = name;
+        this.iterations = iterations;
+        this.samples = samples.clone();
+        this.baselineSamples = baselineSamples.clone();
+        Arrays.sort(this.samples);
+        Arrays.sort(this.baselineSamples);
+    }
+
+    /**
+     * Returns the name of the operation.
+     *
+     * @return The name of the operation.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of times the operation was run per command.
+     *
+     * @return The number of times the operation was run per command.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the median time of the commands which ran the empty loop.
+     *
+     * @return The median time of the commands which ran the empty loop, in nanoseconds.
+     */
+    public long getBaselineNanos() {
+        return percentile(baselineSamples, 50);
+    }
+
+    /**
+     * Returns the mean time of one operation, without the baseline.
+     *
+     * @return The mean time of one operation in nanoseconds.
+     */
+    public double getMeanNanos() {
+        long sum = 0;
+        for (final long sample : samples) {
+            sum += sample;
+        }
+        return (sum / (double) samples.length - getBaselineNanos()) / iterations;
+    }
+
+    /**
+     * Returns a percentile of the time of one operation, without the baseline.
+     *
+     * @param percent
+     *         Percentile to return, from 0 to 100, for example 50 for the median.
+     * @return The percentile of the time of one operation in nanoseconds.
+     */
+    public double getPercentileNanos(final int percent) {
+        return (percentile(samples, percent) - getBaselineNanos()) / (double) iterations;
+    }
+
+    /**
+     * Returns whether the operation is too fast to be measured, because its mean time is not above the baseline.
+     *
+     * @return {@code true} if the mean time without the baseline is 0 or negative, otherwise {@code false}.
+     */
+    public boolean isBelowResolution() {
+        return getMeanNanos() <= 0;
+    }
+
+    /**
+     * Returns the number of operations per second.
+     *
+     * @return The number of operations per second, based on the mean time, or {@link Double#NaN} if the result {@linkplain #isBelowResolution() is below the measurement resolution}.
+     */
+    public double getOperationsPerSecond() {
+        return isBelowResolution() ? Double.NaN : 1e9 / getMeanNanos();
+    }
+
+    @Override
+    public String toString() {
+        final String throughput = isBelowResolution() ? "below measurement resolution" : String.format("%.1f ops/s", getOperationsPerSecond());
+        return String.format("%s: %s, mean %.3f us, p50 %.3f us, p90 %.3f us, p99 %.3f us (%d samples x %d iterations, baseline %.3f ms)",
+                name, throughput, getMeanNanos() / 1e3, getPercentileNanos(50) / 1e3, getPercentileNanos(90) / 1e3, getPercentileNanos(99) / 1e3,
+                samples.length, iterations, getBaselineNanos() / 1e6);
+    }
+
+    /**
+     * Returns a percentile of sorted samples, using the nearest rank.
+     *
+     * @param sortedSamples
+     *         Sorted samples.
+     * @param percent
+     *         Percentile to return, from 0 to 100.
+     * @return The percentile.
+     */
+    private static long percentile(final long[] sortedSamples, final int percent) {
+        final int rank = (int) Math.ceil(percent / 100.0 * sortedSamples.length);
+        return sortedSamples[Math.max(rank - 1, 0)];
+    }
+}
@@ -0,0 +1,234 @@
+package de.riedquat.runner;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * Measures operations of benchmark applets, which extend {@code org.jcunit.BenchmarkApplet}.
+ * Each operation is first run in warm-up commands which are not measured.
+ * Then commands which run the operation and commands which run the empty loop alternate, so that drifts affect both alike.
+ * Other drivers measure their own commands against a baseline command in the same way with {@link #measure(String, CommandAPDU, CommandAPDU, int)}.
+ * The card is accessed through a {@link CardTransport}, so a simulator is measured in the same way as a real card.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class BenchmarkRunner {
+
+    /**
+     * INS of the command which runs an operation repeatedly, see {@code org.jcunit.BenchmarkApplet}.
+     */
+    public static final byte INS_RUN_BENCHMARK = 0x03;
+
+    /**
+     * P2 for running the empty loop instead of the operation.
+     */
+    public static final byte P2_BASELINE = 0x01;
+
+    /**
+     * The default number of warm-up commands.
+     */
+    public static final int DEFAULT_WARMUPS = 5;
+
+    /**
+     * The default number of measured commands.
+     */
+    public static final int DEFAULT_SAMPLES = 20;
+
+    /**
+     * The default number of times the operation is run per command.
+     */
+    public static final int DEFAULT_ITERATIONS = 100;
+
+    /**
+     * The transport to the card.
+     */
+    private final CardTransport transport;
+
+    /**
+     * The number of warm-up commands.
+     */
+    private final int warmups;
+
+    /**
+     * The number of measured commands.
+     */
+    private final int samples;
+
+    /**
+     * The number of times the operation is run per command.
+     */
+    private final int iterations;
+
+    /**
+     * Creates a BenchmarkRunner with the default settings.
+     *
+     * @param transport
+     *         Transport to the card.
+     */
+    public BenchmarkRunner(final CardTransport transport) {
+        this(transport, DEFAULT_WARMUPS, DEFAULT_SAMPLES, DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Creates a BenchmarkRunner.
+     *
+     * @param transport
+     *         Transport to the card.
+     * @param warmups
+     *         Number of warm-up commands.
+     * @param samples
+     *         Number of measured commands.
+     * @param iterations
+     *         Number of times the operation is run per command, at most 65535.
+     */
+    public BenchmarkRunner(final CardTransport transport, final int warmups, final int samples, final int iterations) {
+        if (samples < 1 || iterations < 1 || iterations > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid samples or iterations: " + samples + ", " + iterations);
+        }
+        this.transport = transport;
+        this.warmups = warmups;
+        this.samples = samples;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Measures the operations of a benchmark applet on the first card found and prints the results.
+     *
+     * @param args
+     *         Command line arguments: the AID of the benchmark applet in hexadecimal notation followed by the names of its operations in the order of their indices.
+     * @throws CardException
+     *         In case of communication problems.
+     */
+    public static void main(final String... args) throws CardException {
+        if (args.length < 2) {
+            System.err.println("Usage: java " + BenchmarkRunner.class.getName() + " AID OPERATION...");
+            System.exit(2);
+        }
+        final byte[] aid = TestRunner.parseHex(args[0]);
+        final CardTransport transport = ChannelTransport.connect(null);
+        try {
+            final List<String> names = new ArrayList<String>();
+            for (int i = 1; i < args.length; i++) {
+                names.add(args[i]);
+            }
+            print(new BenchmarkRunner(transport).run(aid, names), System.out);
+        } finally {
+            transport.close();
+        }
+    }
+
+    /**
+     * Prints benchmark results.
+     *
+     * @param results
+     *         Results to print.
+     * @param out
+     *         PrintStream to which to print.
+     */
+    public static void print(final List<BenchmarkResult> results, final PrintStream out) {
+        for (final BenchmarkResult result : results) {
+            out.println(result);
+        }
+    }
+
+    /**
+     * Measures the operations of a benchmark applet.
+     *
+     * @param aid
+     *         AID of the benchmark applet.
+     * @param names
+     *         Names of the operations in the order of their indices.
+     * @return The results, one per operation.
+     * @throws CardException
+     *         In case of communication problems, if the benchmark applet cannot be selected or if an operation fails.
+     */
+    public List<BenchmarkResult> run(final byte[] aid, final List<String> names) throws CardException {
+        final ResponseAPDU selectResponse = transport.transmit(TestRunner.createSelectCommand(aid));
+        if (selectResponse.getSW() != StatusWords.SW_NO_ERROR) {
+            throw new CardException("Cannot select benchmark applet: " + StatusWords.describe(selectResponse.getSW()));
+        }
+        final List<BenchmarkResult> results = new ArrayList<BenchmarkResult>(names.size());
+        for (int index = 0; index < names.size(); index++) {
+            results.add(run(index, names.get(index)));
+        }
+        return results;
+    }
+
+    /**
+     * Measures an operation of the selected benchmark applet.
+     *
+     * @param index
+     *         Index of the operation.
+     * @param name
+     *         Name of the operation.
+     * @return The result.
+     * @throws CardException
+     *         In case of communication problems or if the operation fails.
+     */
+    public BenchmarkResult run(final int index, final String name) throws CardException {
+        final byte[] data = { (byte) (iterations >> 8), (byte) iterations };
+        final CommandAPDU operation = new CommandAPDU(0x80, INS_RUN_BENCHMARK, index, 0x00, data);
+        final CommandAPDU baseline = new CommandAPDU(0x80, INS_RUN_BENCHMARK, index, P2_BASELINE, data);
+        return measure(name, operation, baseline, iterations);
+    }
+
+    /**
+     * Measures a command against a baseline command.
+     * Both are sent in warm-up commands first, then they alternate, the baseline first.
+     *
+     * @param name
+     *         Name of the operation.
+     * @param operation
+     *         Command which runs the operation.
+     * @param baseline
+     *         Command which does the same as operation except the operation, like the empty loop.
+     * @param iterations
+     *         Number of operations per command, by which the difference of the times is divided.
+     * @return The result.
+     * @throws CardException
+     *         In case of communication problems or if a command fails.
+     */
+    public BenchmarkResult measure(final String name, final CommandAPDU operation, final CommandAPDU baseline, final int iterations) throws CardException {
+        for (int i = 0; i < warmups; i++) {
+            time(baseline, name);
+            time(operation, name);
+        }
+        final long[] operationSamples = new long[samples];
+        final long[] baselineSamples = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            baselineSamples[i] = time(baseline, name);
+            operationSamples[i] = time(operation, name);
+        }
+        return new BenchmarkResult(name, iterations, operationSamples, baselineSamples);
+    }
+
+    /**
+     * Sends a command and measures the time until the response is received.
+     *
+     * @param command
+     *         Command to send.
+     * @param name
+     *         Name of the operation, for error messages.
+     * @return The time until the response was received, in nanoseconds.
+     * @throws CardException
+     *         In case of communication problems, if the command fails or if it expects response data of another length.
+     */
+    private long time(final CommandAPDU command, final String name) throws CardException {
+        final long start = System.nanoTime();
+        final ResponseAPDU response = transport.transmit(command);
+        final long nanos = System.nanoTime() - start;
+        if (response.getSW() != StatusWords.SW_NO_ERROR) {
+            throw new CardException("Benchmark " + name + " failed: " + StatusWords.describe(response.getSW()));
+        }
+        if (command.getNe() != 0 && response.getData().length != command.getNe()) {
+            throw new CardException("Benchmark " + name + " returned " + response.getData().length + " bytes instead of " + command.getNe());
+        }
+        return nanos;
+    }
+}
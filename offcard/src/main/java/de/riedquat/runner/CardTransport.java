@@ -0,0 +1,36 @@
+package de.riedquat.runner;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * Transports APDUs to a card.
+ * Implementations can talk to a real card, like {@link ChannelTransport}, or to a simulator running in the same JVM.
+ * For example, a jCardSim {@code CardSimulator} can be adapted by delegating {@link #transmit(CommandAPDU)} to its {@code transmitCommand(CommandAPDU)}.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public interface CardTransport {
+
+    /**
+     * Transmits a command APDU and returns the response APDU.
+     *
+     * @param command
+     *         Command APDU to transmit.
+     * @return The response APDU.
+     * @throws CardException
+     *         In case of communication problems.
+     */
+    ResponseAPDU transmit(CommandAPDU command) throws CardException;
+
+    /**
+     * Closes this transport.
+     *
+     * @throws CardException
+     *         In case of communication problems.
+     */
+    void close() throws CardException;
+}
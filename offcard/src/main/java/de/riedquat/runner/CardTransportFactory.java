@@ -0,0 +1,26 @@
+package de.riedquat.runner;
+
+import javax.smartcardio.CardException;
+
+/**
+ * Creates CardTransports to isolated card instances, for running tests on several cards at once with {@link ShardedTestRunner}.
+ * Usually, every transport is connected to a new simulator running in the same JVM, with all applets of the tests installed.
+ * For example, a factory can create a jCardSim {@code CardSimulator}, install the applets and adapt it as described in {@link CardTransport}.
+ * Implementations which are named on the command line of {@link ShardedTestRunner} need a public no-arg constructor.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public interface CardTransportFactory {
+
+    /**
+     * Creates a CardTransport to a new card instance which shares no state with the instances of other transports.
+     * This method may be called concurrently.
+     *
+     * @return The CardTransport.
+     * @throws CardException
+     *         If the card instance cannot be created.
+     */
+    CardTransport createTransport() throws CardException;
+}
@@ -0,0 +1,71 @@
+package de.riedquat.runner;
+
+import java.util.List;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+import javax.smartcardio.TerminalFactory;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * CardTransport which transmits APDUs to a real card using {@code javax.smartcardio}.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class ChannelTransport implements CardTransport {
+
+    /**
+     * The card to which to transmit.
+     */
+    private final Card card;
+
+    /**
+     * The channel through which to transmit.
+     */
+    private final CardChannel channel;
+
+    /**
+     * Creates a ChannelTransport which transmits through the basic channel of a card.
+     *
+     * @param card
+     *         Card to which to transmit.
+     */
+    public ChannelTransport(final Card card) {
+        this.card = card;
+        channel = card.getBasicChannel();
+    }
+
+    /**
+     * Connects to the card in a terminal.
+     *
+     * @param terminalName
+     *         Name of the terminal or {@code null} for the first terminal with a card present.
+     * @return ChannelTransport for the card in that terminal.
+     * @throws CardException
+     *         In case there is no such terminal or no card can be connected.
+     */
+    public static ChannelTransport connect(@Nullable final String terminalName) throws CardException {
+        final List<CardTerminal> terminals = TerminalFactory.getDefault().terminals().list();
+        for (final CardTerminal terminal : terminals) {
+            if (terminalName != null ? terminal.getName().equals(terminalName) : terminal.isCardPresent()) {
+                return new ChannelTransport(terminal.connect("*"));
+            }
+        }
+        throw new CardException(terminalName != null ? "No such terminal: " + terminalName : "No card present in " + terminals);
+    }
+
+    @Override
+    public ResponseAPDU transmit(final CommandAPDU command) throws CardException {
+        return channel.transmit(command);
+    }
+
+    @Override
+    public void close() throws CardException {
+        card.disconnect(false);
+    }
+}
@@ -0,0 +1,109 @@
+package de.riedquat.runner;
+
+import de.riedquat.ReaderReadLine;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The source lines of the coverage probes which {@link de.riedquat.LineNumberProcessor} inserted.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class CoverageMap {
+
+    /**
+     * The paths of the source files of the probes, indexed by probe number.
+     */
+    private final List<String> sourcePaths;
+
+    /**
+     * The line numbers of the probes, indexed by probe number.
+     */
+    private final int[] lineNumbers;
+
+    /**
+     * Creates a CoverageMap.
+     *
+     * @param sourcePaths
+     *         Paths of the source files of the probes, indexed by probe number.
+     * @param lineNumbers
+     *         Line numbers of the probes, indexed by probe number.
+     */
+    public CoverageMap(final List<String> sourcePaths, final int[] lineNumbers) {
+        if (sourcePaths.size() != lineNumbers.length) {
+            throw new IllegalArgumentException("Number of source paths and line numbers differ: " + sourcePaths.size() + ", " + lineNumbers.length);
+        }
+        this.sourcePaths = new ArrayList<String>(sourcePaths);
+        this.lineNumbers = lineNumbers.clone();
+    }
+
+    /**
+     * Loads a CoverageMap from a probe map which was generated by {@link de.riedquat.LineNumberProcessor}.
+     *
+     * @param in
+     *         Reader from which to read the probe map.
+     * @return The CoverageMap described by the probe map.
+     * @throws IOException
+     *         In case of I/O problems or if the probe map is malformed.
+     */
+    public static CoverageMap load(final Reader in) throws IOException {
+        final ReaderReadLine readLine = new ReaderReadLine(in);
+        final List<String> sourcePaths = new ArrayList<String>();
+        final List<Integer> lineNumbers = new ArrayList<Integer>();
+        for (String line; (line = readLine.readLine()) != null; ) {
+            final String[] fields = line.trim().split("\\s+");
+            if (fields[0].isEmpty()) {
+                continue;
+            }
+            try {
+                if (fields.length != 3 || Integer.parseInt(fields[0]) != sourcePaths.size()) {
+                    throw new IOException("Malformed probe map in line " + readLine.getLineNumber() + ": " + line);
+                }
+                lineNumbers.add(Integer.parseInt(fields[2]));
+            } catch (final NumberFormatException e) {
+                throw new IOException("Malformed number in line " + readLine.getLineNumber() + ": " + line, e);
+            }
+            sourcePaths.add(fields[1]);
+        }
+        final int[] lines = new int[lineNumbers.size()];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = lineNumbers.get(i);
+        }
+        return new CoverageMap(sourcePaths, lines);
+    }
+
+    /**
+     * Returns the number of probes.
+     *
+     * @return The number of probes.
+     */
+    public int getProbeCount() {
+        return lineNumbers.length;
+    }
+
+    /**
+     * Returns the path of the source file of a probe.
+     *
+     * @param probe
+     *         Number of the probe.
+     * @return The path of the source file of the probe, relative to the source root.
+     */
+    public String getSourcePath(final int probe) {
+        return sourcePaths.get(probe);
+    }
+
+    /**
+     * Returns the line number of a probe.
+     *
+     * @param probe
+     *         Number of the probe.
+     * @return The line number of the probe.
+     */
+    public int getLineNumber(final int probe) {
+        return lineNumbers[probe];
+    }
+}
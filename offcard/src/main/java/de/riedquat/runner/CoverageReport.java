@@ -0,0 +1,100 @@
+package de.riedquat.runner;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Which source lines were executed on the card, according to the coverage bitmap of {@code org.jcunit.Coverage}.
+ * A line counts as covered if any of its probes was hit, because a line can have several probes, one per block.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class CoverageReport {
+
+    /**
+     * Whether each line was covered, by source path and line number.
+     */
+    private final SortedMap<String, SortedMap<Integer, Boolean>> lines = new TreeMap<String, SortedMap<Integer, Boolean>>();
+
+    /**
+     * Creates a CoverageReport.
+     *
+     * @param map
+     *         The source lines of the probes.
+     * @param bitmap
+     *         Coverage bitmap, bit 7 of byte 0 for probe 0.
+     *         Probes for which the bitmap is too short count as not hit.
+     */
+    public CoverageReport(final CoverageMap map, final byte[] bitmap) {
+        for (int probe = 0; probe < map.getProbeCount(); probe++) {
+            final boolean hit = probe / 8 < bitmap.length && (bitmap[probe / 8] & 0x80 >> probe % 8) != 0;
+            SortedMap<Integer, Boolean> fileLines = lines.get(map.getSourcePath(probe));
+            if (fileLines == null) {
+                fileLines = new TreeMap<Integer, Boolean>();
+                lines.put(map.getSourcePath(probe), fileLines);
+            }
+            final Boolean covered = fileLines.get(map.getLineNumber(probe));
+            fileLines.put(map.getLineNumber(probe), hit || covered != null && covered);
+        }
+    }
+
+    /**
+     * Returns the paths of the source files with probes.
+     *
+     * @return The paths of the source files with probes, sorted.
+     */
+    public SortedSet<String> getSourcePaths() {
+        return new TreeSet<String>(lines.keySet());
+    }
+
+    /**
+     * Returns the lines of a source file which were covered or not.
+     *
+     * @param sourcePath
+     *         Path of the source file.
+     * @param covered
+     *         {@code true} for the covered lines, {@code false} for the lines which were not covered.
+     * @return The line numbers, sorted.
+     */
+    public SortedSet<Integer> getLines(final String sourcePath, final boolean covered) {
+        final SortedSet<Integer> result = new TreeSet<Integer>();
+        final SortedMap<Integer, Boolean> fileLines = lines.get(sourcePath);
+        if (fileLines != null) {
+            for (final Map.Entry<Integer, Boolean> entry : fileLines.entrySet()) {
+                if (entry.getValue() == covered) {
+                    result.add(entry.getKey());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Prints this report, one line per source file with the ratio of covered lines and the lines which were not covered.
+     *
+     * @param out
+     *         PrintStream to which to print.
+     */
+    public void print(final PrintStream out) {
+        int coveredTotal = 0;
+        int total = 0;
+        for (final String sourcePath : lines.keySet()) {
+            final int covered = getLines(sourcePath, true).size();
+            final SortedSet<Integer> missed = getLines(sourcePath, false);
+            final StringBuilder missedLines = new StringBuilder();
+            for (final int line : missed) {
+                missedLines.append(missedLines.length() == 0 ? ", not covered: " : ", ").append(line);
+            }
+            out.printf("%s: %d/%d lines%s%n", sourcePath, covered, covered + missed.size(), missedLines);
+            coveredTotal += covered;
+            total += covered + missed.size();
+        }
+        out.printf("Coverage: %d/%d lines (%.1f%%)%n", coveredTotal, total, total > 0 ? 100.0 * coveredTotal / total : 100.0);
+    }
+}
@@ -0,0 +1,130 @@
+package de.riedquat.runner;
+
+/**
+ * Amounts of persistent, clear on reset and clear on deselect memory, in bytes.
+ * Used both for the memory which a test consumed and for the memory which a test may consume, see {@code org.jcunit.MemoryBudget}.
+ * In a budget, a negative amount means that the memory of that type is not limited.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class MemoryUsage {
+
+    /**
+     * Budget which does not limit any type of memory.
+     */
+    public static final MemoryUsage UNLIMITED = new MemoryUsage(-1, -1, -1);
+
+    /**
+     * The amount of persistent memory.
+     */
+    private final int persistent;
+
+    /**
+     * The amount of clear on reset transient memory.
+     */
+    private final int transientReset;
+
+    /**
+     * The amount of clear on deselect transient memory.
+     */
+    private final int transientDeselect;
+
+    /**
+     * Creates a MemoryUsage.
+     *
+     * @param persistent
+     *         Amount of persistent memory.
+     * @param transientReset
+     *         Amount of clear on reset transient memory.
+     * @param transientDeselect
+     *         Amount of clear on deselect transient memory.
+     */
+    public MemoryUsage(final int persistent, final int transientReset, final int transientDeselect) {
+        this.persistent = persistent;
+        this.transientReset = transientReset;
+        this.transientDeselect = transientDeselect;
+    }
+
+    /**
+     * Returns the amount of persistent memory.
+     *
+     * @return The amount of persistent memory.
+     */
+    public int getPersistent() {
+        return persistent;
+    }
+
+    /**
+     * Returns the amount of clear on reset transient memory.
+     *
+     * @return The amount of clear on reset transient memory.
+     */
+    public int getTransientReset() {
+        return transientReset;
+    }
+
+    /**
+     * Returns the amount of clear on deselect transient memory.
+     *
+     * @return The amount of clear on deselect transient memory.
+     */
+    public int getTransientDeselect() {
+        return transientDeselect;
+    }
+
+    /**
+     * Returns whether this usage is within a budget.
+     *
+     * @param budget
+     *         Budget to check against.
+     * @return {@code true} if no type of memory exceeds its limit in budget, otherwise {@code false}.
+     */
+    public boolean isWithin(final MemoryUsage budget) {
+        return isWithin(persistent, budget.persistent) && isWithin(transientReset, budget.transientReset) && isWithin(transientDeselect, budget.transientDeselect);
+    }
+
+    /**
+     * Returns whether an amount of memory is within a limit.
+     *
+     * @param amount
+     *         Amount of memory.
+     * @param limit
+     *         Limit, negative for unlimited.
+     * @return {@code true} if amount does not exceed limit, otherwise {@code false}.
+     */
+    private static boolean isWithin(final int amount, final int limit) {
+        return limit < 0 || amount <= limit;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof MemoryUsage)) {
+            return false;
+        }
+        final MemoryUsage other = (MemoryUsage) obj;
+        return persistent == other.persistent && transientReset == other.transientReset && transientDeselect == other.transientDeselect;
+    }
+
+    @Override
+    public int hashCode() {
+        return (persistent * 31 + transientReset) * 31 + transientDeselect;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("persistent %s, reset %s, deselect %s", format(persistent), format(transientReset), format(transientDeselect));
+    }
+
+    /**
+     * Formats an amount of memory.
+     *
+     * @param amount
+     *         Amount of memory.
+     * @return amount in bytes, or {@code "unlimited"} if it is negative.
+     */
+    private static String format(final int amount) {
+        return amount < 0 ? "unlimited" : amount + " B";
+    }
+}
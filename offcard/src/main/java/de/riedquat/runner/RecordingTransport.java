@@ -0,0 +1,211 @@
+package de.riedquat.runner;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * CardTransport which records every command and response of another CardTransport to a trace file, for replaying it with {@link TraceReplayer}.
+ * <p>
+ * The trace file is binary and append-only, so the traces of several runs can be recorded into the same file.
+ * It starts with the 4 bytes {@link #MAGIC} and the version byte {@link #VERSION}, which are only written to a new file.
+ * It continues with entries, each of which starts with its type byte, all numbers are big endian:
+ * <ul>
+ *     <li>{@link #RUN}, written whenever a RecordingTransport is created, so that every run can be replayed on a new card instance:
+ *     the time at which the run started in milliseconds since the epoch, 8 bytes.</li>
+ *     <li>{@link #COMMAND}, written before the command is sent:
+ *     the time at which the command was sent in milliseconds since the epoch, 8 bytes, the length of the command, 4 bytes, and the command.</li>
+ *     <li>{@link #RESPONSE}: the time until the response was received in nanoseconds, 8 bytes, the length of the response, 4 bytes, and the response.</li>
+ *     <li>{@link #FAILURE}, written instead of the response if sending the command failed:
+ *     the time until the failure in nanoseconds, 8 bytes, the length of the description of the exception, 4 bytes, and the description in UTF-8.</li>
+ * </ul>
+ * Every entry is flushed when it was written, so that the trace survives a crash of the test run, including the command which caused it.
+ * An entry which was cut off by a crash is removed before appending, so that the entries of the next run can be read again.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class RecordingTransport implements CardTransport {
+
+    /**
+     * The first 4 bytes of a trace file, {@code "JCTR"}.
+     */
+    public static final int MAGIC = 0x4A435452;
+
+    /**
+     * The version of the trace file format.
+     */
+    public static final byte VERSION = 2;
+
+    /**
+     * The type of the entry which starts a run.
+     */
+    public static final byte RUN = 1;
+
+    /**
+     * The type of the entry with a command.
+     */
+    public static final byte COMMAND = 2;
+
+    /**
+     * The type of the entry with the response to the preceding command.
+     */
+    public static final byte RESPONSE = 3;
+
+    /**
+     * The type of the entry with the exception with which sending the preceding command failed.
+     */
+    public static final byte FAILURE = 4;
+
+    /**
+     * The length of the header, {@link #MAGIC} and {@link #VERSION}.
+     */
+    static final int HEADER_LENGTH = 5;
+
+    /**
+     * The transport to the card.
+     */
+    private final CardTransport transport;
+
+    /**
+     * The stream to which to write the trace.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Creates a RecordingTransport which appends a new run to a trace file.
+     *
+     * @param transport
+     *         Transport to the card.
+     * @param file
+     *         Trace file to which to append, which is created if it does not exist.
+     * @throws IOException
+     *         In case of I/O problems or if the file exists and is no trace file.
+     */
+    public RecordingTransport(final CardTransport transport, final Path file) throws IOException {
+        this.transport = transport;
+        final boolean exists = Files.exists(file) && Files.size(file) > 0;
+        final long end = exists ? getEndOfLastEntry(file) : 0;
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            channel.truncate(end);
+            channel.position(end);
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        if (!exists) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+        }
+        out.writeByte(RUN);
+        out.writeLong(System.currentTimeMillis());
+        out.flush();
+    }
+
+    /**
+     * Returns the position behind the last complete entry of a trace file.
+     *
+     * @param file
+     *         Trace file to read.
+     * @return The length of file without an entry which was cut off at its end.
+     * @throws IOException
+     *         In case of I/O problems or if the file is no trace file.
+     */
+    private static long getEndOfLastEntry(final Path file) throws IOException {
+        final TraceReader in = new TraceReader(file);
+        try {
+            //noinspection StatementWithEmptyBody
+            while (in.read() != null) {
+            }
+            return in.getPosition();
+        } finally {
+            in.close();
+        }
+    }
+
+    @Override
+    public ResponseAPDU transmit(final CommandAPDU command) throws CardException {
+        write(COMMAND, System.currentTimeMillis(), command.getBytes());
+        final long start = System.nanoTime();
+        final ResponseAPDU response;
+        try {
+            response = transport.transmit(command);
+        } catch (final CardException e) {
+            writeFailure(System.nanoTime() - start, e);
+            throw e;
+        } catch (final RuntimeException e) {
+            writeFailure(System.nanoTime() - start, e);
+            throw e;
+        }
+        write(RESPONSE, System.nanoTime() - start, response.getBytes());
+        return response;
+    }
+
+    /**
+     * Writes a {@link #FAILURE} entry.
+     * If that fails, too, the problem is added to the failure as suppressed exception, so that the failure is not hidden.
+     *
+     * @param nanos
+     *         Time in nanoseconds from sending the command until the failure.
+     * @param failure
+     *         Exception with which sending the command failed.
+     */
+    private void writeFailure(final long nanos, final Exception failure) {
+        try {
+            write(FAILURE, nanos, failure.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (final CardException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Writes and flushes an entry with a time and bytes.
+     *
+     * @param type
+     *         Type of the entry.
+     * @param time
+     *         Time to write.
+     * @param bytes
+     *         Bytes to write with their length.
+     * @throws CardException
+     *         In case of I/O problems.
+     */
+    private void write(final byte type, final long time, final byte[] bytes) throws CardException {
+        try {
+            out.writeByte(type);
+            out.writeLong(time);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.flush();
+        } catch (final IOException e) {
+            throw new CardException("Cannot record trace", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Closes the transport to the card and the trace file.
+     */
+    @Override
+    public void close() throws CardException {
+        try {
+            out.close();
+        } catch (final IOException e) {
+            throw new CardException("Cannot close trace", e);
+        } finally {
+            transport.close();
+        }
+    }
+}
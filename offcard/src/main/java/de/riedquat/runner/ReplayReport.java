@@ -0,0 +1,222 @@
+package de.riedquat.runner;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * The result of replaying a trace with {@link TraceReplayer}.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReplayReport {
+
+    /**
+     * The number of runs replayed.
+     */
+    private final int runCount;
+
+    /**
+     * The number of commands replayed.
+     */
+    private final long commandCount;
+
+    /**
+     * The commands for which the replayed outcome differs from the recorded one.
+     */
+    private final List<Difference> differences;
+
+    /**
+     * The time in nanoseconds spent in the replayed commands.
+     */
+    private final long nanos;
+
+    /**
+     * Creates a ReplayReport.
+     *
+     * @param runCount
+     *         Number of runs replayed.
+     * @param commandCount
+     *         Number of commands replayed.
+     * @param differences
+     *         Commands for which the replayed outcome differs from the recorded one.
+     * @param nanos
+     *         Time in nanoseconds spent in the replayed commands.
+     */
+    public ReplayReport(final int runCount, final long commandCount, final List<Difference> differences, final long nanos) {
+        this.runCount = runCount;
+        this.commandCount = commandCount;
+        this.differences = Collections.unmodifiableList(new ArrayList<Difference>(differences));
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the number of runs replayed.
+     *
+     * @return The number of runs replayed, each on a new card instance.
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Returns the number of commands replayed.
+     *
+     * @return The number of commands replayed.
+     */
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * Returns the commands for which the replayed outcome differs from the recorded one.
+     *
+     * @return The differences, in the order of the trace.
+     */
+    public List<Difference> getDifferences() {
+        return differences;
+    }
+
+    /**
+     * Returns whether all replayed outcomes are the same as the recorded ones.
+     *
+     * @return {@code true} if there are no differences, otherwise {@code false}.
+     */
+    public boolean isSame() {
+        return differences.isEmpty();
+    }
+
+    /**
+     * Returns the time spent in the replayed commands.
+     *
+     * @return The time in nanoseconds spent in the replayed commands.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Prints this report, one line per difference followed by a summary.
+     *
+     * @param out
+     *         PrintStream to which to print.
+     */
+    public void print(final PrintStream out) {
+        for (final Difference difference : differences) {
+            out.println(difference);
+        }
+        out.printf("Runs replayed: %d, Commands replayed: %d, Differences: %d, Time: %.3f ms%n", runCount, commandCount, differences.size(), nanos / 1e6);
+    }
+
+    /**
+     * A command for which the replayed outcome differs from the recorded one.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    public static class Difference {
+
+        /**
+         * The number of the run in the trace, counting from 0.
+         */
+        private final int run;
+
+        /**
+         * The index of the command in its run, counting from 0.
+         */
+        private final long index;
+
+        /**
+         * The command.
+         */
+        private final CommandAPDU command;
+
+        /**
+         * The description of the recorded outcome.
+         */
+        private final String recorded;
+
+        /**
+         * The description of the replayed outcome.
+         */
+        private final String replayed;
+
+        /**
+         * Creates a Difference.
+         *
+         * @param run
+         *         Number of the run in the trace, counting from 0.
+         * @param index
+         *         Index of the command in its run, counting from 0.
+         * @param command
+         *         The command.
+         * @param recorded
+         *         Description of the recorded outcome.
+         * @param replayed
+         *         Description of the replayed outcome.
+         */
+        public Difference(final int run, final long index, final CommandAPDU command, final String recorded, final String replayed) {
+            this.run = run;
+            this.index = index;
+            this.command = command;
+            this.recorded = recorded;
+            this.replayed = replayed;
+        }
+
+        /**
+         * Returns the number of the run in the trace.
+         *
+         * @return The number of the run in the trace, counting from 0.
+         */
+        public int getRun() {
+            return run;
+        }
+
+        /**
+         * Returns the index of the command in its run.
+         *
+         * @return The index of the command in its run, counting from 0.
+         */
+        public long getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the command.
+         *
+         * @return The command.
+         */
+        public CommandAPDU getCommand() {
+            return command;
+        }
+
+        /**
+         * Returns the description of the recorded outcome.
+         *
+         * @return The description of the recorded outcome, see {@link TraceReplayer#describe(ResponseAPDU, String)}.
+         */
+        public String getRecorded() {
+            return recorded;
+        }
+
+        /**
+         * Returns the description of the replayed outcome.
+         *
+         * @return The description of the replayed outcome, see {@link TraceReplayer#describe(ResponseAPDU, String)}.
+         */
+        public String getReplayed() {
+            return replayed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Run %d, command %d (CLA %02X INS %02X P1 %02X P2 %02X): recorded %s, replayed %s", run, index, command.getCLA(), command.getINS(), command.getP1(), command.getP2(), recorded, replayed);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package de.riedquat.runner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.smartcardio.CardException;
+
+/**
+ * Runs the tests of many test applets on isolated card instances at once, usually simulators in the same JVM.
+ * The test suites are added in groups.
+ * The test suites of a group run one after another on the same instance,
+ * so test applets which depend on each other, like a client using the {@code Shareable} of a server, stay together.
+ * Every group gets a new instance from the {@link CardTransportFactory}, which is closed after the group,
+ * so no persistent state of one group can affect another, and the results do not depend on which groups share a thread.
+ * <p>
+ * The groups are run by a fixed number of threads, so at most that many instances exist at once.
+ * The groups are distributed to the threads up front, the groups with most tests first.
+ * A thread which has run all its groups steals groups from the other threads, so long groups do not leave instances idle.
+ * The results of all groups are merged into one {@link TestReport}, in the order in which the groups were added.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class ShardedTestRunner {
+
+    /**
+     * The factory for the transports to the card instances.
+     */
+    private final CardTransportFactory transportFactory;
+
+    /**
+     * The maximum number of card instances.
+     */
+    private final int instances;
+
+    /**
+     * The groups of test suites, in the order in which they were added.
+     */
+    private final List<List<TestSuite>> groups = new ArrayList<List<TestSuite>>();
+
+    /**
+     * Creates a ShardedTestRunner.
+     *
+     * @param transportFactory
+     *         Factory for the transports to the card instances.
+     * @param instances
+     *         Maximum number of card instances which run tests at once, the number of threads.
+     */
+    public ShardedTestRunner(final CardTransportFactory transportFactory, final int instances) {
+        if (instances < 1) {
+            throw new IllegalArgumentException("Invalid number of instances: " + instances);
+        }
+        this.transportFactory = transportFactory;
+        this.instances = instances;
+    }
+
+    /**
+     * Runs the tests of the manifests generated by {@link de.riedquat.TestDispatcherProcessor} on a pool of card instances.
+     *
+     * @param args
+     *         Command line arguments: the class name of the {@link CardTransportFactory}, the number of instances,
+     *         optionally the default AID of the dispatcher applets in hexadecimal notation and the manifest files,
+     *         each optionally preceded by the AID of its dispatcher applet, see {@link TestRunner#loadManifest(String, byte[])}.
+     *         Manifests which must run on the same instance are joined with {@code +}, like {@code Server.jcunit+Client.jcunit}.
+     * @throws IOException
+     *         In case of I/O problems.
+     * @throws CardException
+     *         In case of communication problems.
+     * @throws ReflectiveOperationException
+     *         If the CardTransportFactory cannot be created.
+     */
+    public static void main(final String... args) throws IOException, CardException, ReflectiveOperationException {
+        int firstManifest = 2;
+        final byte[] defaultAid = args.length > firstManifest && TestRunner.AID_PATTERN.matcher(args[firstManifest]).matches() ? TestRunner.parseHex(args[firstManifest++]) : null;
+        if (args.length < firstManifest + 1) {
+            System.err.println("Usage: java " + ShardedTestRunner.class.getName() + " FACTORY_CLASS INSTANCES [AID] [AID=]MANIFEST[+[AID=]MANIFEST...]...");
+            System.exit(2);
+        }
+        final CardTransportFactory factory = Class.forName(args[0]).asSubclass(CardTransportFactory.class).newInstance();
+        final ShardedTestRunner runner = new ShardedTestRunner(factory, Integer.parseInt(args[1]));
+        for (int i = firstManifest; i < args.length; i++) {
+            final List<TestSuite> group = new ArrayList<TestSuite>();
+            for (final String manifest : args[i].split("\\+")) {
+                group.add(TestRunner.loadManifest(manifest, defaultAid));
+            }
+            runner.add(group.toArray(new TestSuite[group.size()]));
+        }
+        final TestReport report = runner.run();
+        report.print(System.out);
+        System.exit(report.isPassed() ? 0 : 1);
+    }
+
+    /**
+     * Adds a group of test suites which run one after another on the same card instance.
+     *
+     * @param testSuites
+     *         Test suites to run on the same card instance, in that order.
+     * @return This ShardedTestRunner.
+     */
+    public ShardedTestRunner add(final TestSuite... testSuites) {
+        groups.add(Collections.unmodifiableList(new ArrayList<TestSuite>(Arrays.asList(testSuites))));
+        return this;
+    }
+
+    /**
+     * Runs the tests of all groups.
+     *
+     * @return Report with the results of the tests of all groups, in the order in which the groups were added.
+     * @throws CardException
+     *         In case of communication problems, if a transport cannot be created or if a test applet cannot be selected.
+     *         The tests of the groups which did not start yet are not run then.
+     */
+    public TestReport run() throws CardException {
+        final int workerCount = Math.min(instances, groups.size());
+        final List<ConcurrentLinkedDeque<Integer>> queues = distribute(workerCount);
+        final TestReport[] reports = new TestReport[groups.size()];
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(workerCount, 1));
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < workerCount; i++) {
+                futures.add(executor.submit(new Worker(i, queues, reports)));
+            }
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (final ExecutionException e) {
+            for (final ConcurrentLinkedDeque<Integer> queue : queues) {
+                queue.clear();
+            }
+            if (e.getCause() instanceof CardException) {
+                throw (CardException) e.getCause();
+            }
+            throw new CardException("Cannot run tests", e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CardException("Interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        final List<TestResult> results = new ArrayList<TestResult>();
+        for (final TestReport report : reports) {
+            results.addAll(report.getResults());
+        }
+        return new TestReport(results);
+    }
+
+    /**
+     * Distributes the groups to the queues of the workers, the groups with most tests first, round robin.
+     *
+     * @param workerCount
+     *         Number of workers.
+     * @return The queues of the workers, with the indices of their groups.
+     */
+    private List<ConcurrentLinkedDeque<Integer>> distribute(final int workerCount) {
+        final List<Integer> order = new ArrayList<Integer>();
+        for (int i = 0; i < groups.size(); i++) {
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer o1, final Integer o2) {
+                return countTests(groups.get(o2)) - countTests(groups.get(o1));
+            }
+        });
+        final List<ConcurrentLinkedDeque<Integer>> queues = new ArrayList<ConcurrentLinkedDeque<Integer>>();
+        for (int i = 0; i < workerCount; i++) {
+            queues.add(new ConcurrentLinkedDeque<Integer>());
+        }
+        for (int i = 0; i < order.size(); i++) {
+            queues.get(i % workerCount).add(order.get(i));
+        }
+        return queues;
+    }
+
+    /**
+     * Returns the number of tests of a group.
+     *
+     * @param group
+     *         Group of test suites.
+     * @return The number of tests of all test suites of group.
+     */
+    private static int countTests(final List<TestSuite> group) {
+        int count = 0;
+        for (final TestSuite testSuite : group) {
+            count += testSuite.getTestCases().size();
+        }
+        return count;
+    }
+
+    /**
+     * Runs the tests of a test suite on a card instance.
+     * Override this method for running the tests differently, for example in soft assertion mode.
+     *
+     * @param runner
+     *         TestRunner for the card instance.
+     * @param testSuite
+     *         Test suite to run.
+     * @return Report with the results of the tests.
+     * @throws CardException
+     *         In case of communication problems or if the test applet cannot be selected.
+     */
+    protected TestReport run(final TestRunner runner, final TestSuite testSuite) throws CardException {
+        return runner.runBatch(testSuite);
+    }
+
+    /**
+     * Runs groups, each on a new card instance, first its own groups, then groups stolen from the other workers.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    private final class Worker implements Callable<Void> {
+
+        /**
+         * The index of the queue of this worker.
+         */
+        private final int index;
+
+        /**
+         * The queues of all workers.
+         */
+        private final List<ConcurrentLinkedDeque<Integer>> queues;
+
+        /**
+         * The reports of the groups, indexed like the groups.
+         */
+        private final TestReport[] reports;
+
+        /**
+         * Creates a Worker.
+         *
+         * @param index
+         *         Index of the queue of this worker.
+         * @param queues
+         *         Queues of all workers.
+         * @param reports
+         *         Array to which to write the reports of the groups.
+         */
+        Worker(final int index, final List<ConcurrentLinkedDeque<Integer>> queues, final TestReport[] reports) {
+            this.index = index;
+            this.queues = queues;
+            this.reports = reports;
+        }
+
+        @Override
+        public Void call() throws CardException {
+            for (Integer group; (group = next()) != null; ) {
+                final CardTransport transport = transportFactory.createTransport();
+                try {
+                    final TestRunner runner = new TestRunner(transport);
+                    final List<TestResult> results = new ArrayList<TestResult>();
+                    for (final TestSuite testSuite : groups.get(group)) {
+                        results.addAll(run(runner, testSuite).getResults());
+                    }
+                    // Written before the future completes, so run() sees it after future.get().
+                    reports[group] = new TestReport(results);
+                } finally {
+                    transport.close();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the next group to run, from the head of the own queue or, if that is empty, from the tail of another queue.
+         *
+         * @return The index of the next group to run or {@code null} if all groups were taken.
+         */
+        private Integer next() {
+            final Integer own = queues.get(index).pollFirst();
+            if (own != null) {
+                return own;
+            }
+            for (int i = 1; i < queues.size(); i++) {
+                final Integer stolen = queues.get((index + i) % queues.size()).pollLast();
+                if (stolen != null) {
+                    return stolen;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package de.riedquat.runner;
+
+/**
+ * Decodes the status words of JCUnit tests.
+ * {@code org.jcunit.Assert} reports a failure in line {@code n} with the status word {@code 0x6200 + n},
+ * so the status words {@code 0x6200} to {@code 0x65FF} represent the lines {@code 0} to {@code 0x3FF}.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public final class StatusWords {
+
+    /**
+     * Status word for success.
+     */
+    public static final int SW_NO_ERROR = 0x9000;
+
+    /**
+     * Status word for a failure in line 0.
+     */
+    public static final int SW_FIRST_LINE = 0x6200;
+
+    /**
+     * Status word for a failure in line 0x3FF.
+     */
+    public static final int SW_LAST_LINE = 0x65FF;
+
+    /**
+     * Utility class - do not instantiate.
+     */
+    private StatusWords() {
+    }
+
+    /**
+     * Returns whether a status word reports an assertion failure.
+     *
+     * @param sw
+     *         Status word to check.
+     * @return {@code true} if sw reports an assertion failure, otherwise {@code false}.
+     */
+    public static boolean isLineNumber(final int sw) {
+        return sw >= SW_FIRST_LINE && sw <= SW_LAST_LINE;
+    }
+
+    /**
+     * Returns the line number of an assertion failure.
+     *
+     * @param sw
+     *         Status word to decode.
+     * @return The line number of the assertion failure or {@code -1} if sw does not report an assertion failure.
+     */
+    public static int getLineNumber(final int sw) {
+        return isLineNumber(sw) ? sw - SW_FIRST_LINE : -1;
+    }
+
+    /**
+     * Returns a status word in hexadecimal notation.
+     *
+     * @param sw
+     *         Status word to format.
+     * @return The status word as four hexadecimal digits.
+     */
+    public static String toString(final int sw) {
+        return String.format("%04X", sw & 0xFFFF);
+    }
+
+    /**
+     * Describes a status word.
+     *
+     * @param sw
+     *         Status word to describe.
+     * @return Description of the status word.
+     */
+    public static String describe(final int sw) {
+        if (sw == SW_NO_ERROR) {
+            return "passed";
+        }
+        if (isLineNumber(sw)) {
+            return "failed in line " + getLineNumber(sw);
+        }
+        switch (sw) {
+        case 0x6700:
+            return "error " + toString(sw) + " (wrong length)";
+        case 0x6A86:
+        case 0x6B00:
+            return "error " + toString(sw) + " (wrong P1/P2)";
+        case 0x6D00:
+            return "error " + toString(sw) + " (INS not supported)";
+        case 0x6E00:
+            return "error " + toString(sw) + " (CLA not supported)";
+        case 0x6F00:
+            return "error " + toString(sw) + " (unknown)";
+        default:
+            return "error " + toString(sw);
+        }
+    }
+}
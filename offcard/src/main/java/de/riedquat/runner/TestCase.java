@@ -0,0 +1,86 @@
+package de.riedquat.runner;
+
+/**
+ * A test on the card, which is run by sending a command with its INS to the test applet.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class TestCase {
+
+    /**
+     * The name of the test.
+     */
+    private final String name;
+
+    /**
+     * The INS of the command which runs the test.
+     */
+    private final byte ins;
+
+    /**
+     * The memory which the test may consume.
+     */
+    private final MemoryUsage memoryBudget;
+
+    /**
+     * Creates a TestCase without memory budget.
+     *
+     * @param name
+     *         Name of the test.
+     * @param ins
+     *         INS of the command which runs the test.
+     */
+    public TestCase(final String name, final byte ins) {
+        this(name, ins, MemoryUsage.UNLIMITED);
+    }
+
+    /**
+     * Creates a TestCase.
+     *
+     * @param name
+     *         Name of the test.
+     * @param ins
+     *         INS of the command which runs the test.
+     * @param memoryBudget
+     *         Memory which the test may consume.
+     */
+    public TestCase(final String name, final byte ins, final MemoryUsage memoryBudget) {
+        this.name = name;
+        this.ins = ins;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns the name of the test.
+     *
+     * @return The name of the test.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the INS of the command which runs the test.
+     *
+     * @return The INS of the command which runs the test.
+     */
+    public byte getIns() {
+        return ins;
+    }
+
+    /**
+     * Returns the memory which the test may consume.
+     *
+     * @return The memory which the test may consume, {@link MemoryUsage#UNLIMITED} if the test has no memory budget.
+     */
+    public MemoryUsage getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,90 @@
+package de.riedquat.runner;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The results of running tests.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class TestReport {
+
+    /**
+     * The results.
+     */
+    private final List<TestResult> results;
+
+    /**
+     * Creates a TestReport.
+     *
+     * @param results
+     *         The results.
+     */
+    public TestReport(final List<TestResult> results) {
+        this.results = Collections.unmodifiableList(new ArrayList<TestResult>(results));
+    }
+
+    /**
+     * Returns the results.
+     *
+     * @return The results.
+     */
+    public List<TestResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Returns the results of the tests which did not pass.
+     *
+     * @return The results of the tests which did not pass.
+     */
+    public List<TestResult> getFailures() {
+        final List<TestResult> failures = new ArrayList<TestResult>();
+        for (final TestResult result : results) {
+            if (!result.isPassed()) {
+                failures.add(result);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Returns whether all tests passed.
+     *
+     * @return {@code true} if all tests passed, otherwise {@code false}.
+     */
+    public boolean isPassed() {
+        return getFailures().isEmpty();
+    }
+
+    /**
+     * Returns the total time of all tests in nanoseconds.
+     *
+     * @return The total time of all tests in nanoseconds.
+     */
+    public long getNanos() {
+        long nanos = 0;
+        for (final TestResult result : results) {
+            nanos += result.getNanos();
+        }
+        return nanos;
+    }
+
+    /**
+     * Prints this report, one line per test followed by a summary.
+     *
+     * @param out
+     *         PrintStream to which to print.
+     */
+    public void print(final PrintStream out) {
+        for (final TestResult result : results) {
+            out.println(result);
+        }
+        out.printf("Tests run: %d, Failures: %d, Time: %.3f ms%n", results.size(), getFailures().size(), getNanos() / 1e6);
+    }
+}
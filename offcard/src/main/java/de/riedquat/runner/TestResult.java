@@ -0,0 +1,242 @@
+package de.riedquat.runner;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The result of running a {@link TestCase}.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class TestResult {
+
+    /**
+     * The test suite to which the test belongs.
+     */
+    private final TestSuite testSuite;
+
+    /**
+     * The test which was run.
+     */
+    private final TestCase testCase;
+
+    /**
+     * The status word with which the card responded.
+     */
+    private final int sw;
+
+    /**
+     * The time in nanoseconds from sending the command until receiving the response.
+     */
+    private final long nanos;
+
+    /**
+     * The line numbers of all failed assertions, if the test was run in soft assertion mode.
+     */
+    private final int[] lineNumbers;
+
+    /**
+     * The memory which the test consumed, {@code null} if it was not measured.
+     */
+    @Nullable
+    private final MemoryUsage memoryUsage;
+
+    /**
+     * The largest amount of the commit buffer which the test sampled, {@code -1} if it was not measured.
+     */
+    private final int commitBufferPeak;
+
+    /**
+     * Creates a TestResult.
+     *
+     * @param testSuite
+     *         Test suite to which the test belongs.
+     * @param testCase
+     *         Test which was run.
+     * @param sw
+     *         Status word with which the card responded.
+     * @param nanos
+     *         Time in nanoseconds from sending the command until receiving the response.
+     */
+    public TestResult(final TestSuite testSuite, final TestCase testCase, final int sw, final long nanos) {
+        this(testSuite, testCase, sw, nanos, new int[0]);
+    }
+
+    /**
+     * Creates a TestResult of a test which was run in soft assertion mode.
+     *
+     * @param testSuite
+     *         Test suite to which the test belongs.
+     * @param testCase
+     *         Test which was run.
+     * @param sw
+     *         Status word with which the card responded.
+     * @param nanos
+     *         Time in nanoseconds from sending the command until receiving the response.
+     * @param lineNumbers
+     *         Line numbers of all failed assertions.
+     */
+    public TestResult(final TestSuite testSuite, final TestCase testCase, final int sw, final long nanos, final int[] lineNumbers) {
+        this(testSuite, testCase, sw, nanos, lineNumbers, null, -1);
+    }
+
+    /**
+     * Creates a TestResult of a test of which the consumed memory and commit buffer were measured.
+     *
+     * @param testSuite
+     *         Test suite to which the test belongs.
+     * @param testCase
+     *         Test which was run.
+     * @param sw
+     *         Status word of the test.
+     * @param nanos
+     *         Time in nanoseconds from sending the command until receiving the response.
+     * @param memoryUsage
+     *         Memory which the test consumed.
+     * @param commitBufferPeak
+     *         Largest amount of the commit buffer which the test sampled.
+     */
+    public TestResult(final TestSuite testSuite, final TestCase testCase, final int sw, final long nanos, final MemoryUsage memoryUsage, final int commitBufferPeak) {
+        this(testSuite, testCase, sw, nanos, new int[0], memoryUsage, commitBufferPeak);
+    }
+
+    /**
+     * Creates a TestResult.
+     *
+     * @param testSuite
+     *         Test suite to which the test belongs.
+     * @param testCase
+     *         Test which was run.
+     * @param sw
+     *         Status word of the test.
+     * @param nanos
+     *         Time in nanoseconds from sending the command until receiving the response.
+     * @param lineNumbers
+     *         Line numbers of all failed assertions.
+     * @param memoryUsage
+     *         Memory which the test consumed, {@code null} if it was not measured.
+     * @param commitBufferPeak
+     *         Largest amount of the commit buffer which the test sampled, {@code -1} if it was not measured.
+     */
+    private TestResult(final TestSuite testSuite, final TestCase testCase, final int sw, final long nanos, final int[] lineNumbers, @Nullable final MemoryUsage memoryUsage, final int commitBufferPeak) {
+        this.testSuite = testSuite;
+        this.testCase = testCase;
+        this.sw = sw;
+        this.nanos = nanos;
+        this.lineNumbers = lineNumbers.clone();
+        this.memoryUsage = memoryUsage;
+        this.commitBufferPeak = commitBufferPeak;
+    }
+
+    /**
+     * Returns the test suite to which the test belongs.
+     *
+     * @return The test suite to which the test belongs.
+     */
+    public TestSuite getTestSuite() {
+        return testSuite;
+    }
+
+    /**
+     * Returns the test which was run.
+     *
+     * @return The test which was run.
+     */
+    public TestCase getTestCase() {
+        return testCase;
+    }
+
+    /**
+     * Returns the status word with which the card responded.
+     *
+     * @return The status word with which the card responded.
+     */
+    public int getSw() {
+        return sw;
+    }
+
+    /**
+     * Returns the time in nanoseconds from sending the command until receiving the response.
+     *
+     * @return The time in nanoseconds from sending the command until receiving the response.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Returns the memory which the test consumed.
+     *
+     * @return The memory which the test consumed or {@code null} if it was not measured.
+     */
+    @Nullable
+    public MemoryUsage getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    /**
+     * Returns the largest amount of the commit buffer which the test sampled with {@code org.jcunit.CommitBuffer}.
+     *
+     * @return The largest number of bytes of the commit buffer which the test sampled, {@code 0} if the test did not sample it,
+     *         or {@code -1} if it was not measured.
+     */
+    public int getCommitBufferPeak() {
+        return commitBufferPeak;
+    }
+
+    /**
+     * Returns whether the test consumed more memory than its budget.
+     *
+     * @return {@code true} if the memory was measured and exceeds the budget of the test, otherwise {@code false}.
+     */
+    public boolean isOverBudget() {
+        return memoryUsage != null && !memoryUsage.isWithin(testCase.getMemoryBudget());
+    }
+
+    /**
+     * Returns whether the test passed.
+     * A test of which the consumed memory was measured only passes if it also stayed within its memory budget.
+     *
+     * @return {@code true} if the test passed, otherwise {@code false}.
+     */
+    public boolean isPassed() {
+        return sw == StatusWords.SW_NO_ERROR && !isOverBudget();
+    }
+
+    /**
+     * Returns the line number in which the test failed.
+     *
+     * @return The line number in which the test failed or {@code -1} if the test did not fail in an assertion.
+     */
+    public int getLineNumber() {
+        return StatusWords.getLineNumber(sw);
+    }
+
+    /**
+     * Returns the line numbers of all failed assertions.
+     *
+     * @return The line numbers of all failed assertions if the test was run in soft assertion mode,
+     *         otherwise the line number in which the test failed, if any.
+     */
+    public int[] getLineNumbers() {
+        if (lineNumbers.length > 0) {
+            return lineNumbers.clone();
+        }
+        final int lineNumber = getLineNumber();
+        return lineNumber >= 0 ? new int[] { lineNumber } : new int[0];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder location = new StringBuilder();
+        for (final int lineNumber : getLineNumbers()) {
+            location.append(location.length() == 0 ? " at " : ", ").append(testSuite.getSourceFile()).append(':').append(lineNumber);
+        }
+        if (memoryUsage != null) {
+            location.append(isOverBudget() ? ", over memory budget (" + testCase.getMemoryBudget() + ")" : "").append(", consumed ").append(memoryUsage);
+            location.append(", commit buffer peak ").append(commitBufferPeak).append(" B");
+        }
+        return String.format("%s.%s %s%s (%.3f ms)", testSuite.getName(), testCase.getName(), StatusWords.describe(sw), location, nanos / 1e6);
+    }
+}
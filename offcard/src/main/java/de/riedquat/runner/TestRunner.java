@@ -0,0 +1,451 @@
+package de.riedquat.runner;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Runs the tests of test applets on a card.
+ * The test applet is selected once, then the commands of all tests are sent back-to-back without reselecting it.
+ * The commands are created in advance, so that the time measured per test is dominated by the card.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class TestRunner {
+
+    /**
+     * INS of the command which runs a batch of tests, see {@code org.jcunit.TestApplet}.
+     */
+    public static final byte INS_RUN_TESTS = 0x01;
+
+    /**
+     * INS of the command which returns the line numbers of the failed soft assertions, see {@code org.jcunit.TestApplet}.
+     */
+    public static final byte INS_GET_FAILURES = 0x02;
+
+    /**
+     * P1 for running a test in soft assertion mode.
+     */
+    public static final byte P1_SOFT_ASSERTIONS = 0x01;
+
+    /**
+     * Pattern of an AID in hexadecimal notation, 5 to 16 bytes.
+     */
+    static final Pattern AID_PATTERN = Pattern.compile("(?:[0-9A-Fa-f]{2}){5,16}");
+
+    /**
+     * Pattern of a manifest argument with the AID of its dispatcher applet, like {@code F04A435501=FooTest.jctests}.
+     */
+    private static final Pattern AID_MANIFEST_PATTERN = Pattern.compile("(" + AID_PATTERN.pattern() + ")=(.+)");
+
+    /**
+     * P1 for running a test and measuring how much memory it consumed.
+     */
+    public static final byte P1_MEASURE_MEMORY = 0x02;
+
+    /**
+     * INS of the command which initializes and reads the coverage bitmap, see {@code org.jcunit.TestApplet}.
+     */
+    public static final byte INS_COVERAGE = 0x05;
+
+    /**
+     * P1 for initializing the coverage bitmap.
+     */
+    public static final byte P1_COVERAGE_START = 0x01;
+
+    /**
+     * The number of bytes of the coverage bitmap which the card returns per command.
+     */
+    public static final int COVERAGE_BLOCK_SIZE = 128;
+
+    /**
+     * The maximum number of tests which are run by one batch command.
+     */
+    public static final int MAX_BATCH_SIZE = 64;
+
+    /**
+     * The transport to the card.
+     */
+    private final CardTransport transport;
+
+    /**
+     * Creates a TestRunner.
+     *
+     * @param transport
+     *         Transport to the card.
+     */
+    public TestRunner(final CardTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Runs the tests of the manifests generated by {@link de.riedquat.TestDispatcherProcessor} on the first card found.
+     *
+     * @param args
+     *         Command line arguments: optionally {@code --soft} for running the tests one by one in soft assertion mode
+     *         or {@code --memory} for running the tests one by one and checking their memory budgets,
+     *         optionally {@code --coverage=PROBE_MAP} for reporting the lines covered by each manifest, see {@link de.riedquat.LineNumberProcessor},
+     *         optionally {@code --record=TRACE} for appending all commands and responses to a trace file, see {@link RecordingTransport},
+     *         optionally the default AID of the dispatcher applets in hexadecimal notation and the manifest files.
+     *         Each manifest file can be preceded by the AID of its dispatcher applet, like {@code F04A435501=FooTest.jctests},
+     *         otherwise its dispatcher applet must be installed with the default AID, see {@link #loadManifest(String, byte[])}.
+     * @throws IOException
+     *         In case of I/O problems.
+     * @throws CardException
+     *         In case of communication problems.
+     */
+    public static void main(final String... args) throws IOException, CardException {
+        boolean soft = false;
+        boolean memory = false;
+        CoverageMap coverageMap = null;
+        String trace = null;
+        int firstArg = 0;
+        for (; firstArg < args.length && args[firstArg].startsWith("--"); firstArg++) {
+            soft |= "--soft".equals(args[firstArg]);
+            memory |= "--memory".equals(args[firstArg]);
+            if (args[firstArg].startsWith("--record=")) {
+                trace = args[firstArg].substring("--record=".length());
+            }
+            if (args[firstArg].startsWith("--coverage=")) {
+                final Reader in = new InputStreamReader(Files.newInputStream(Paths.get(args[firstArg].substring("--coverage=".length()))), Charset.forName("UTF-8"));
+                try {
+                    coverageMap = CoverageMap.load(in);
+                } finally {
+                    in.close();
+                }
+            }
+        }
+        final byte[] defaultAid = firstArg < args.length && AID_PATTERN.matcher(args[firstArg]).matches() ? parseHex(args[firstArg++]) : null;
+        if (args.length < firstArg + 1 || soft && memory) {
+            System.err.println("Usage: java " + TestRunner.class.getName() + " [--soft|--memory] [--coverage=PROBE_MAP] [--record=TRACE] [AID] [AID=]MANIFEST...");
+            System.exit(2);
+        }
+        final List<TestSuite> testSuites = new ArrayList<TestSuite>();
+        for (int i = firstArg; i < args.length; i++) {
+            testSuites.add(loadManifest(args[i], defaultAid));
+        }
+        final CardTransport card = ChannelTransport.connect(null);
+        CardTransport transport = card;
+        if (trace != null) {
+            try {
+                transport = new RecordingTransport(card, Paths.get(trace));
+            } catch (final IOException e) {
+                card.close();
+                throw e;
+            }
+        }
+        boolean passed = true;
+        try {
+            final TestRunner runner = new TestRunner(transport);
+            for (final TestSuite testSuite : testSuites) {
+                if (coverageMap != null) {
+                    runner.startCoverage(testSuite, coverageMap);
+                }
+                final TestReport report = soft ? runner.runSoftly(testSuite) : memory ? runner.runMeasured(testSuite) : runner.runBatch(testSuite);
+                report.print(System.out);
+                passed &= report.isPassed();
+                if (coverageMap != null) {
+                    runner.getCoverage(testSuite, coverageMap).print(System.out);
+                }
+            }
+        } finally {
+            transport.close();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Loads a TestSuite from a manifest file given as command line argument.
+     *
+     * @param argument
+     *         Path of the manifest file, optionally preceded by the AID of its dispatcher applet in hexadecimal notation and {@code '='},
+     *         like {@code F04A435501=FooTest.jctests}.
+     * @param defaultAid
+     *         AID of the dispatcher applet if argument has none, or {@code null} if every argument must have one.
+     * @return The TestSuite described by the manifest.
+     * @throws IOException
+     *         In case of I/O problems, if the manifest is malformed or if there is no AID for it.
+     */
+    public static TestSuite loadManifest(final String argument, @Nullable final byte[] defaultAid) throws IOException {
+        final Matcher matcher = AID_MANIFEST_PATTERN.matcher(argument);
+        final byte[] aid;
+        final String manifest;
+        if (matcher.matches()) {
+            aid = parseHex(matcher.group(1));
+            manifest = matcher.group(2);
+        } else if (defaultAid != null) {
+            aid = defaultAid;
+            manifest = argument;
+        } else {
+            throw new IOException("No AID for manifest: " + argument);
+        }
+        final Reader in = new InputStreamReader(Files.newInputStream(Paths.get(manifest)), Charset.forName("UTF-8"));
+        try {
+            return TestSuite.load(in, aid);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Parses bytes in hexadecimal notation.
+     *
+     * @param hex
+     *         Bytes in hexadecimal notation, like {@code "F04A4355"}.
+     * @return The bytes.
+     * @throws NumberFormatException
+     *         If hex is not in hexadecimal notation.
+     */
+    public static byte[] parseHex(final String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new NumberFormatException("Odd number of hex digits: " + hex);
+        }
+        final byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    /**
+     * Creates the command which selects an applet.
+     *
+     * @param aid
+     *         AID of the applet to select.
+     * @return SELECT command for that applet.
+     */
+    public static CommandAPDU createSelectCommand(final byte[] aid) {
+        return new CommandAPDU(0x00, 0xA4, 0x04, 0x00, aid);
+    }
+
+    /**
+     * Selects the test applet of a test suite.
+     *
+     * @param testSuite
+     *         Test suite of which to select the test applet.
+     * @throws CardException
+     *         In case of communication problems or if the applet cannot be selected.
+     */
+    public void select(final TestSuite testSuite) throws CardException {
+        final ResponseAPDU response = transport.transmit(createSelectCommand(testSuite.getAid()));
+        if (response.getSW() != StatusWords.SW_NO_ERROR) {
+            throw new CardException("Cannot select test applet of " + testSuite + ": " + StatusWords.describe(response.getSW()));
+        }
+    }
+
+    /**
+     * Runs all tests of a test suite.
+     *
+     * @param testSuite
+     *         Test suite to run.
+     * @return Report with the results of the tests.
+     * @throws CardException
+     *         In case of communication problems or if the test applet cannot be selected.
+     */
+    public TestReport run(final TestSuite testSuite) throws CardException {
+        final List<TestCase> testCases = testSuite.getTestCases();
+        final CommandAPDU[] commands = new CommandAPDU[testCases.size()];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = new CommandAPDU(testSuite.getCla(), testCases.get(i).getIns(), 0x00, 0x00);
+        }
+        final List<TestResult> results = new ArrayList<TestResult>(commands.length);
+        select(testSuite);
+        for (int i = 0; i < commands.length; i++) {
+            final long start = System.nanoTime();
+            final ResponseAPDU response = transport.transmit(commands[i]);
+            final long nanos = System.nanoTime() - start;
+            results.add(new TestResult(testSuite, testCases.get(i), response.getSW(), nanos));
+        }
+        return new TestReport(results);
+    }
+
+    /**
+     * Runs all tests of a test suite in batches, so that only one command is sent per {@link #MAX_BATCH_SIZE} tests.
+     * The test applet must extend {@code org.jcunit.TestApplet}.
+     * Because the tests of a batch are timed together, each test is reported with the average time of its batch.
+     *
+     * @param testSuite
+     *         Test suite to run.
+     * @return Report with the results of the tests.
+     * @throws CardException
+     *         In case of communication problems, if the test applet cannot be selected or if it does not support batches.
+     */
+    public TestReport runBatch(final TestSuite testSuite) throws CardException {
+        final List<TestCase> testCases = testSuite.getTestCases();
+        if (testCases.size() > 0xFF) {
+            throw new CardException("Too many tests for batches: " + testCases.size());
+        }
+        final List<CommandAPDU> commands = new ArrayList<CommandAPDU>();
+        for (int first = 0; first < testCases.size(); first += MAX_BATCH_SIZE) {
+            commands.add(new CommandAPDU(testSuite.getCla(), INS_RUN_TESTS, first, Math.min(MAX_BATCH_SIZE, testCases.size() - first), 256));
+        }
+        final List<TestResult> results = new ArrayList<TestResult>(testCases.size());
+        select(testSuite);
+        for (final CommandAPDU command : commands) {
+            final long start = System.nanoTime();
+            final ResponseAPDU response = transport.transmit(command);
+            final long nanos = System.nanoTime() - start;
+            if (response.getSW() != StatusWords.SW_NO_ERROR) {
+                throw new CardException("Cannot run batch of " + testSuite + ": " + StatusWords.describe(response.getSW()));
+            }
+            final int first = command.getP1();
+            final int count = command.getP2();
+            final byte[] data = response.getData();
+            final int bitmapLength = (count + 7) / 8;
+            int swOffset = bitmapLength;
+            for (int i = 0; i < count; i++) {
+                int sw = StatusWords.SW_NO_ERROR;
+                if (i / 8 < data.length && (data[i / 8] & 0x80 >> i % 8) != 0) {
+                    if (swOffset + 2 > data.length) {
+                        throw new CardException("Truncated batch response of " + testSuite);
+                    }
+                    sw = (data[swOffset] & 0xFF) << 8 | data[swOffset + 1] & 0xFF;
+                    swOffset += 2;
+                }
+                results.add(new TestResult(testSuite, testCases.get(first + i), sw, nanos / count));
+            }
+        }
+        return new TestReport(results);
+    }
+
+    /**
+     * Runs all tests of a test suite in soft assertion mode, so that every failed assertion of a test is reported, not only the first one.
+     * The test applet must extend {@code org.jcunit.TestApplet}.
+     * For every failed test, the line numbers of its failed assertions are fetched with an additional command.
+     *
+     * @param testSuite
+     *         Test suite to run.
+     * @return Report with the results of the tests.
+     * @throws CardException
+     *         In case of communication problems or if the test applet cannot be selected.
+     */
+    public TestReport runSoftly(final TestSuite testSuite) throws CardException {
+        final List<TestCase> testCases = testSuite.getTestCases();
+        final CommandAPDU getFailures = new CommandAPDU(testSuite.getCla(), INS_GET_FAILURES, 0x00, 0x00, 256);
+        final List<TestResult> results = new ArrayList<TestResult>(testCases.size());
+        select(testSuite);
+        for (final TestCase testCase : testCases) {
+            final CommandAPDU command = new CommandAPDU(testSuite.getCla(), testCase.getIns(), P1_SOFT_ASSERTIONS, 0x00);
+            final long start = System.nanoTime();
+            final ResponseAPDU response = transport.transmit(command);
+            final long nanos = System.nanoTime() - start;
+            final int sw = response.getSW();
+            int[] lineNumbers = new int[0];
+            if (StatusWords.isLineNumber(sw)) {
+                final ResponseAPDU failures = transport.transmit(getFailures);
+                if (failures.getSW() != StatusWords.SW_NO_ERROR) {
+                    throw new CardException("Cannot get failures of " + testSuite + ": " + StatusWords.describe(failures.getSW()));
+                }
+                final byte[] data = failures.getData();
+                lineNumbers = new int[Math.max(data.length / 2 - 1, 0)];
+                for (int i = 0; i < lineNumbers.length; i++) {
+                    lineNumbers[i] = (data[2 * i + 2] & 0xFF) << 8 | data[2 * i + 3] & 0xFF;
+                }
+            }
+            results.add(new TestResult(testSuite, testCase, sw, nanos, lineNumbers));
+        }
+        return new TestReport(results);
+    }
+
+    /**
+     * Runs all tests of a test suite one by one and measures how much persistent and transient memory each test consumed.
+     * The peak of the commit buffer which each test sampled with {@code org.jcunit.CommitBuffer} is reported as well.
+     * The test applet must extend {@code org.jcunit.TestApplet}.
+     * A test which consumed more memory than its {@link TestCase#getMemoryBudget()} fails, even if all its assertions passed.
+     * Because allocated memory is not released until the card collects garbage, repeated allocations show up as persistent memory consumed.
+     *
+     * @param testSuite
+     *         Test suite to run.
+     * @return Report with the results of the tests.
+     * @throws CardException
+     *         In case of communication problems, if the test applet cannot be selected or if it does not support measuring memory.
+     */
+    public TestReport runMeasured(final TestSuite testSuite) throws CardException {
+        final List<TestCase> testCases = testSuite.getTestCases();
+        final List<TestResult> results = new ArrayList<TestResult>(testCases.size());
+        select(testSuite);
+        for (final TestCase testCase : testCases) {
+            final CommandAPDU command = new CommandAPDU(testSuite.getCla(), testCase.getIns(), P1_MEASURE_MEMORY, 0x00, 256);
+            final long start = System.nanoTime();
+            final ResponseAPDU response = transport.transmit(command);
+            final long nanos = System.nanoTime() - start;
+            final byte[] data = response.getData();
+            if (response.getSW() != StatusWords.SW_NO_ERROR || data.length != 16) {
+                throw new CardException("Cannot measure memory of " + testSuite + '.' + testCase + ": " + StatusWords.describe(response.getSW()));
+            }
+            final int sw = (data[0] & 0xFF) << 8 | data[1] & 0xFF;
+            results.add(new TestResult(testSuite, testCase, sw, nanos, new MemoryUsage(getInt(data, 2), getInt(data, 6), getInt(data, 10)), (data[14] & 0xFF) << 8 | data[15] & 0xFF));
+        }
+        return new TestReport(results);
+    }
+
+    /**
+     * Returns a 32 bit number in big endian byte order.
+     *
+     * @param data
+     *         Array from which to read the number.
+     * @param offset
+     *         Offset of the number in data.
+     * @return The number.
+     */
+    private static int getInt(final byte[] data, final int offset) {
+        return (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16 | (data[offset + 2] & 0xFF) << 8 | data[offset + 3] & 0xFF;
+    }
+
+    /**
+     * Selects the test applet of a test suite and initializes its coverage bitmap.
+     * The bitmap is cleared on reset, not on deselect, so it survives selecting the test applet again for running the tests.
+     *
+     * @param testSuite
+     *         Test suite of which to initialize the coverage bitmap.
+     * @param map
+     *         The source lines of the probes.
+     * @throws CardException
+     *         In case of communication problems, if the test applet cannot be selected or if it does not support coverage.
+     */
+    public void startCoverage(final TestSuite testSuite, final CoverageMap map) throws CardException {
+        select(testSuite);
+        final int probeCount = map.getProbeCount();
+        final ResponseAPDU response = transport.transmit(new CommandAPDU(testSuite.getCla(), INS_COVERAGE, P1_COVERAGE_START, 0x00, new byte[] { (byte) (probeCount >> 8), (byte) probeCount }));
+        if (response.getSW() != StatusWords.SW_NO_ERROR) {
+            throw new CardException("Cannot start coverage of " + testSuite + ": " + StatusWords.describe(response.getSW()));
+        }
+    }
+
+    /**
+     * Reads the coverage bitmap of the test applet of a test suite, which must be the currently selected applet.
+     *
+     * @param testSuite
+     *         Test suite of which to read the coverage bitmap.
+     * @param map
+     *         The source lines of the probes.
+     * @return Report of the lines covered since {@link #startCoverage(TestSuite, CoverageMap)}.
+     * @throws CardException
+     *         In case of communication problems or if the test applet does not support coverage.
+     */
+    public CoverageReport getCoverage(final TestSuite testSuite, final CoverageMap map) throws CardException {
+        final byte[] bitmap = new byte[(map.getProbeCount() + 7) / 8];
+        for (int offset = 0; offset < bitmap.length; offset += COVERAGE_BLOCK_SIZE) {
+            final ResponseAPDU response = transport.transmit(new CommandAPDU(testSuite.getCla(), INS_COVERAGE, 0x00, offset / COVERAGE_BLOCK_SIZE, COVERAGE_BLOCK_SIZE));
+            if (response.getSW() != StatusWords.SW_NO_ERROR) {
+                throw new CardException("Cannot get coverage of " + testSuite + ": " + StatusWords.describe(response.getSW()));
+            }
+            final byte[] data = response.getData();
+            System.arraycopy(data, 0, bitmap, offset, Math.min(data.length, bitmap.length - offset));
+        }
+        return new CoverageReport(map, bitmap);
+    }
+}
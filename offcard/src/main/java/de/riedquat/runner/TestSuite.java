@@ -0,0 +1,189 @@
+package de.riedquat.runner;
+
+import de.riedquat.ReaderReadLine;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The tests of a test applet.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class TestSuite {
+
+    /**
+     * The default CLA of the test commands.
+     */
+    public static final byte DEFAULT_CLA = (byte) 0x80;
+
+    /**
+     * The name of the test suite, usually the name of the test class.
+     */
+    private final String name;
+
+    /**
+     * The name of the source file of the tests, for reporting the location of failures.
+     */
+    private final String sourceFile;
+
+    /**
+     * The AID of the test applet.
+     */
+    private final byte[] aid;
+
+    /**
+     * The CLA of the test commands.
+     */
+    private final byte cla;
+
+    /**
+     * The tests.
+     */
+    private final List<TestCase> testCases;
+
+    /**
+     * Creates a TestSuite.
+     *
+     * @param name
+     *         Name of the test suite, usually the name of the test class.
+     * @param sourceFile
+     *         Name of the source file of the tests, for reporting the location of failures.
+     * @param aid
+     *         AID of the test applet.
+     * @param cla
+     *         CLA of the test commands.
+     * @param testCases
+     *         The tests.
+     */
+    public TestSuite(final String name, final String sourceFile, final byte[] aid, final byte cla, final List<TestCase> testCases) {
+        this.name = name;
+        this.sourceFile = sourceFile;
+        this.aid = aid.clone();
+        this.cla = cla;
+        this.testCases = Collections.unmodifiableList(new ArrayList<TestCase>(testCases));
+    }
+
+    /**
+     * Loads a TestSuite from a manifest which was generated by {@link de.riedquat.TestDispatcherProcessor}.
+     *
+     * @param in
+     *         Reader from which to read the manifest.
+     * @param aid
+     *         AID with which the dispatcher applet of the tests was installed.
+     * @return The TestSuite described by the manifest.
+     * @throws IOException
+     *         In case of I/O problems or if the manifest is malformed.
+     */
+    public static TestSuite load(final Reader in, final byte[] aid) throws IOException {
+        final ReaderReadLine readLine = new ReaderReadLine(in);
+        String name = null;
+        String sourceFile = null;
+        final List<TestCase> testCases = new ArrayList<TestCase>();
+        for (String line; (line = readLine.readLine()) != null; ) {
+            final String[] fields = line.trim().split("\\s+");
+            if ("suite".equals(fields[0]) && fields.length == 2) {
+                name = fields[1];
+            } else if ("source".equals(fields[0]) && fields.length == 2) {
+                sourceFile = fields[1];
+            } else if ("test".equals(fields[0]) && fields.length == 3) {
+                try {
+                    testCases.add(new TestCase(fields[2], (byte) Integer.parseInt(fields[1], 16)));
+                } catch (final NumberFormatException e) {
+                    throw new IOException("Malformed INS in line " + readLine.getLineNumber() + ": " + line, e);
+                }
+            } else if ("budget".equals(fields[0]) && fields.length == 5) {
+                try {
+                    setMemoryBudget(testCases, (byte) Integer.parseInt(fields[1], 16), new MemoryUsage(Integer.parseInt(fields[2]), Integer.parseInt(fields[3]), Integer.parseInt(fields[4])));
+                } catch (final NumberFormatException e) {
+                    throw new IOException("Malformed budget in line " + readLine.getLineNumber() + ": " + line, e);
+                } catch (final IllegalArgumentException e) {
+                    throw new IOException(e.getMessage() + " in line " + readLine.getLineNumber() + ": " + line, e);
+                }
+            } else if (!"dispatcher".equals(fields[0]) && !fields[0].isEmpty()) {
+                throw new IOException("Malformed manifest in line " + readLine.getLineNumber() + ": " + line);
+            }
+        }
+        if (name == null) {
+            throw new IOException("Manifest without suite.");
+        }
+        return new TestSuite(name, sourceFile != null ? sourceFile : name + ".java", aid, DEFAULT_CLA, testCases);
+    }
+
+    /**
+     * Replaces a test case with a copy which has a memory budget.
+     *
+     * @param testCases
+     *         Test cases in which to replace the test case.
+     * @param ins
+     *         INS of the test case to replace.
+     * @param memoryBudget
+     *         Memory which the test may consume.
+     * @throws IllegalArgumentException
+     *         If there is no test case with ins.
+     */
+    private static void setMemoryBudget(final List<TestCase> testCases, final byte ins, final MemoryUsage memoryBudget) {
+        for (int i = 0; i < testCases.size(); i++) {
+            final TestCase testCase = testCases.get(i);
+            if (testCase.getIns() == ins) {
+                testCases.set(i, new TestCase(testCase.getName(), ins, memoryBudget));
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Budget for unknown test");
+    }
+
+    /**
+     * Returns the name of the test suite.
+     *
+     * @return The name of the test suite.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the name of the source file of the tests.
+     *
+     * @return The name of the source file of the tests.
+     */
+    public String getSourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * Returns the AID of the test applet.
+     *
+     * @return The AID of the test applet.
+     */
+    public byte[] getAid() {
+        return aid.clone();
+    }
+
+    /**
+     * Returns the CLA of the test commands.
+     *
+     * @return The CLA of the test commands.
+     */
+    public byte getCla() {
+        return cla;
+    }
+
+    /**
+     * Returns the tests.
+     *
+     * @return The tests.
+     */
+    public List<TestCase> getTestCases() {
+        return testCases;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,187 @@
+package de.riedquat.runner;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads the records of a trace file written by {@link RecordingTransport}, one per command, with the number of the run it belongs to.
+ * An entry which was cut off at the end of the file, because the test run crashed while writing it, is treated as the end of the trace.
+ * A command without response or failure, because the test run crashed while sending it, is read as record without outcome.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class TraceReader implements Closeable {
+
+    /**
+     * The maximum length of a command or response, the length of an extended APDU with 65536 bytes of data.
+     */
+    private static final int MAX_APDU_LENGTH = 65536 + 9;
+
+    /**
+     * The stream from which to read the trace.
+     */
+    private final DataInputStream in;
+
+    /**
+     * The position behind the last complete entry.
+     */
+    private long position = RecordingTransport.HEADER_LENGTH;
+
+    /**
+     * The number of the current run, counting from 0, or -1 before the first run.
+     */
+    private int run = -1;
+
+    /**
+     * The type of the next entry, which was already read, or -1 if it was not read yet.
+     */
+    private int nextType = -1;
+
+    /**
+     * Whether the end of the trace was reached.
+     */
+    private boolean end;
+
+    /**
+     * Creates a TraceReader.
+     *
+     * @param in
+     *         Stream from which to read the trace, starting with its header.
+     * @throws IOException
+     *         In case of I/O problems or if the stream is no trace.
+     */
+    public TraceReader(final InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        readHeader(this.in);
+    }
+
+    /**
+     * Creates a TraceReader for a trace file.
+     *
+     * @param file
+     *         Trace file to read.
+     * @throws IOException
+     *         In case of I/O problems or if the file is no trace file.
+     */
+    public TraceReader(final Path file) throws IOException {
+        this(Files.newInputStream(file));
+    }
+
+    /**
+     * Reads and checks the header of a trace.
+     *
+     * @param in
+     *         Stream from which to read the header.
+     * @throws IOException
+     *         In case of I/O problems or if the header is not that of a trace of a supported version.
+     */
+    static void readHeader(final InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        try {
+            if (data.readInt() != RecordingTransport.MAGIC) {
+                throw new IOException("Not a trace file.");
+            }
+            final byte version = data.readByte();
+            if (version != RecordingTransport.VERSION) {
+                throw new IOException("Unsupported trace version: " + version);
+            }
+        } catch (final EOFException e) {
+            throw new IOException("Not a trace file.", e);
+        }
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return The next record or {@code null} at the end of the trace.
+     * @throws IOException
+     *         In case of I/O problems or if the trace is malformed.
+     */
+    @Nullable
+    public TraceRecord read() throws IOException {
+        long timeMillis = 0;
+        CommandAPDU command = null;
+        try {
+            while (!end) {
+                final int type = nextType != -1 ? nextType : in.read();
+                nextType = -1;
+                if (type == -1) {
+                    end = true;
+                } else if (command != null && type != RecordingTransport.RESPONSE && type != RecordingTransport.FAILURE) {
+                    nextType = type;
+                    break;
+                } else if (type == RecordingTransport.RUN) {
+                    in.readLong();
+                    run++;
+                    position += 1 + 8;
+                } else if (type == RecordingTransport.COMMAND) {
+                    timeMillis = in.readLong();
+                    final byte[] bytes = readBytes();
+                    command = new CommandAPDU(bytes);
+                    position += 1 + 8 + 4 + bytes.length;
+                } else if (type == RecordingTransport.RESPONSE && command != null) {
+                    final long nanos = in.readLong();
+                    final byte[] bytes = readBytes();
+                    position += 1 + 8 + 4 + bytes.length;
+                    return new TraceRecord(run, timeMillis, nanos, command, new ResponseAPDU(bytes), null);
+                } else if (type == RecordingTransport.FAILURE && command != null) {
+                    final long nanos = in.readLong();
+                    final byte[] bytes = readBytes();
+                    position += 1 + 8 + 4 + bytes.length;
+                    return new TraceRecord(run, timeMillis, nanos, command, null, new String(bytes, StandardCharsets.UTF_8));
+                } else {
+                    throw new IOException("Unexpected entry type in trace: " + type);
+                }
+            }
+        } catch (final EOFException ignore) {
+            end = true;
+        } catch (final IllegalArgumentException e) {
+            throw new IOException("Malformed APDU in trace: " + e.getMessage(), e);
+        }
+        return command != null ? new TraceRecord(run, timeMillis, 0, command, null, null) : null;
+    }
+
+    /**
+     * Returns the position behind the last complete entry which was read.
+     * After {@link #read()} returned {@code null}, this is the length of the trace without an entry which was cut off at its end.
+     *
+     * @return The position behind the last complete entry which was read.
+     */
+    long getPosition() {
+        return position;
+    }
+
+    /**
+     * Reads bytes with their length.
+     *
+     * @return The bytes.
+     * @throws IOException
+     *         In case of I/O problems or if the length is invalid.
+     */
+    private byte[] readBytes() throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > MAX_APDU_LENGTH) {
+            throw new IOException("Invalid APDU length in trace: " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,130 @@
+package de.riedquat.runner;
+
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A command APDU and its outcome, as recorded by {@link RecordingTransport}.
+ * The outcome is either the response or the failure with which sending the command failed.
+ * A command which has neither was the last one of a run which crashed while sending it.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class TraceRecord {
+
+    /**
+     * The number of the run in the trace, counting from 0.
+     */
+    private final int run;
+
+    /**
+     * The time at which the command was sent, in milliseconds since the epoch.
+     */
+    private final long timeMillis;
+
+    /**
+     * The time in nanoseconds from sending the command until receiving the response or the failure, 0 if there is neither.
+     */
+    private final long nanos;
+
+    /**
+     * The command.
+     */
+    private final CommandAPDU command;
+
+    /**
+     * The response, or {@code null} if there is none.
+     */
+    @Nullable
+    private final ResponseAPDU response;
+
+    /**
+     * The description of the exception with which sending the command failed, or {@code null} if it did not fail.
+     */
+    @Nullable
+    private final String failure;
+
+    /**
+     * Creates a TraceRecord.
+     *
+     * @param run
+     *         Number of the run in the trace, counting from 0.
+     * @param timeMillis
+     *         Time at which the command was sent, in milliseconds since the epoch.
+     * @param nanos
+     *         Time in nanoseconds from sending the command until receiving the response or the failure, 0 if there is neither.
+     * @param command
+     *         The command.
+     * @param response
+     *         The response, or {@code null} if there is none.
+     * @param failure
+     *         Description of the exception with which sending the command failed, or {@code null} if it did not fail.
+     */
+    public TraceRecord(final int run, final long timeMillis, final long nanos, final CommandAPDU command, @Nullable final ResponseAPDU response, @Nullable final String failure) {
+        this.run = run;
+        this.timeMillis = timeMillis;
+        this.nanos = nanos;
+        this.command = command;
+        this.response = response;
+        this.failure = failure;
+    }
+
+    /**
+     * Returns the number of the run in the trace.
+     *
+     * @return The number of the run in the trace, counting from 0.
+     */
+    public int getRun() {
+        return run;
+    }
+
+    /**
+     * Returns the time at which the command was sent.
+     *
+     * @return The time at which the command was sent, in milliseconds since the epoch.
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Returns the time from sending the command until receiving the response or the failure.
+     *
+     * @return The time in nanoseconds from sending the command until receiving the response or the failure, 0 if there is neither.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Returns the command.
+     *
+     * @return The command.
+     */
+    public CommandAPDU getCommand() {
+        return command;
+    }
+
+    /**
+     * Returns the response.
+     *
+     * @return The response, or {@code null} if there is none.
+     */
+    @Nullable
+    public ResponseAPDU getResponse() {
+        return response;
+    }
+
+    /**
+     * Returns the description of the exception with which sending the command failed.
+     *
+     * @return The description of the exception, or {@code null} if sending the command did not fail.
+     */
+    @Nullable
+    public String getFailure() {
+        return failure;
+    }
+}
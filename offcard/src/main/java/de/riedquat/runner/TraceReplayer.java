@@ -0,0 +1,152 @@
+package de.riedquat.runner;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import javax.smartcardio.CardException;
+import javax.smartcardio.ResponseAPDU;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Replays the commands of a trace recorded by {@link RecordingTransport} to cards, usually simulators, and compares the outcomes.
+ * Every run of the trace is replayed to a new card instance, so that the state left by one run does not change the outcome of the next one.
+ * The commands are sent back-to-back at full speed, the recorded timing is not reproduced.
+ * Only the status words are compared, because response data like random numbers may legitimately differ.
+ * A command which failed or crashed the recorded run is a difference unless it fails again.
+ * The differences are described with {@link StatusWords#describe(int)}, so failed assertions show their line numbers.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class TraceReplayer {
+
+    /**
+     * The factory for the transports to the cards.
+     */
+    private final CardTransportFactory factory;
+
+    /**
+     * Creates a TraceReplayer.
+     *
+     * @param factory
+     *         Factory for transports to new cards to which to replay, with the applets of the trace installed.
+     */
+    public TraceReplayer(final CardTransportFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Replays trace files, every run on a new card instance.
+     *
+     * @param args
+     *         Command line arguments: the class name of the {@link CardTransportFactory} and the trace files.
+     * @throws IOException
+     *         In case of I/O problems.
+     * @throws CardException
+     *         In case of communication problems.
+     * @throws ReflectiveOperationException
+     *         If the CardTransportFactory cannot be created.
+     */
+    public static void main(final String... args) throws IOException, CardException, ReflectiveOperationException {
+        if (args.length < 2) {
+            System.err.println("Usage: java " + TraceReplayer.class.getName() + " FACTORY_CLASS TRACE...");
+            System.exit(2);
+        }
+        final TraceReplayer replayer = new TraceReplayer(Class.forName(args[0]).asSubclass(CardTransportFactory.class).newInstance());
+        boolean same = true;
+        for (int i = 1; i < args.length; i++) {
+            final TraceReader in = new TraceReader(Paths.get(args[i]));
+            try {
+                final ReplayReport report = replayer.replay(in);
+                System.out.println(args[i] + ':');
+                report.print(System.out);
+                same &= report.isSame();
+            } finally {
+                in.close();
+            }
+        }
+        System.exit(same ? 0 : 1);
+    }
+
+    /**
+     * Replays the commands of a trace, every run on a new card instance.
+     *
+     * @param in
+     *         TraceReader from which to read the trace.
+     * @return Report with the commands whose outcome differs from the recorded one.
+     * @throws IOException
+     *         In case of I/O problems or if the trace is malformed.
+     * @throws CardException
+     *         If a card instance cannot be created or closed.
+     */
+    public ReplayReport replay(final TraceReader in) throws IOException, CardException {
+        final List<ReplayReport.Difference> differences = new ArrayList<ReplayReport.Difference>();
+        int runCount = 0;
+        long count = 0;
+        long nanos = 0;
+        CardTransport transport = null;
+        int run = -1;
+        try {
+            long index = 0;
+            for (TraceRecord record; (record = in.read()) != null; count++, index++) {
+                if (transport == null || record.getRun() != run) {
+                    if (transport != null) {
+                        final CardTransport previous = transport;
+                        transport = null;
+                        previous.close();
+                    }
+                    transport = factory.createTransport();
+                    run = record.getRun();
+                    runCount++;
+                    index = 0;
+                }
+                ResponseAPDU response = null;
+                String failure = null;
+                final long start = System.nanoTime();
+                try {
+                    response = transport.transmit(record.getCommand());
+                } catch (final CardException e) {
+                    failure = e.toString();
+                }
+                nanos += System.nanoTime() - start;
+                if (getSw(response) != getSw(record.getResponse())) {
+                    differences.add(new ReplayReport.Difference(run, index, record.getCommand(), describe(record.getResponse(), record.getFailure()), describe(response, failure)));
+                }
+            }
+        } finally {
+            if (transport != null) {
+                transport.close();
+            }
+        }
+        return new ReplayReport(runCount, count, differences, nanos);
+    }
+
+    /**
+     * Returns the status word of a response.
+     *
+     * @param response
+     *         Response, or {@code null} if there is none.
+     * @return The status word of the response, or -1 if there is no response.
+     */
+    private static int getSw(@Nullable final ResponseAPDU response) {
+        return response != null ? response.getSW() : -1;
+    }
+
+    /**
+     * Describes the outcome of a command.
+     *
+     * @param response
+     *         Response to the command, or {@code null} if there is none.
+     * @param failure
+     *         Description of the exception with which sending the command failed, or {@code null} if it did not fail.
+     * @return The description of the status word of the response, of the failure, or {@code "no response"} if there is neither.
+     */
+    static String describe(@Nullable final ResponseAPDU response, @Nullable final String failure) {
+        if (response != null) {
+            return StatusWords.describe(response.getSW());
+        }
+        return failure != null ? "exception " + failure : "no response";
+    }
+}
@@ -0,0 +1,118 @@
+package de.riedquat.runner;
+
+/**
+ * The result of streaming known-answer test vectors to a card with {@link VectorStreamer}.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class VectorReport {
+
+    /**
+     * The name of the vector file, for reporting the location of the first failed vector.
+     */
+    private final String fileName;
+
+    /**
+     * The number of vectors verified.
+     */
+    private final long vectorCount;
+
+    /**
+     * The index of the first failed vector, {@code -1} if all vectors passed.
+     */
+    private final long firstFailure;
+
+    /**
+     * The line number of the first failed vector, {@code -1} if all vectors passed.
+     */
+    private final int firstFailureLineNumber;
+
+    /**
+     * The time in nanoseconds from sending the first command until receiving the last response, summed over all commands.
+     */
+    private final long nanos;
+
+    /**
+     * Creates a VectorReport.
+     *
+     * @param fileName
+     *         Name of the vector file.
+     * @param vectorCount
+     *         Number of vectors verified.
+     * @param firstFailure
+     *         Index of the first failed vector, {@code -1} if all vectors passed.
+     * @param firstFailureLineNumber
+     *         Line number of the first failed vector, {@code -1} if all vectors passed.
+     * @param nanos
+     *         Time in nanoseconds spent in the commands.
+     */
+    public VectorReport(final String fileName, final long vectorCount, final long firstFailure, final int firstFailureLineNumber, final long nanos) {
+        this.fileName = fileName;
+        this.vectorCount = vectorCount;
+        this.firstFailure = firstFailure;
+        this.firstFailureLineNumber = firstFailureLineNumber;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the number of vectors verified.
+     *
+     * @return The number of vectors verified.
+     */
+    public long getVectorCount() {
+        return vectorCount;
+    }
+
+    /**
+     * Returns the index of the first failed vector.
+     *
+     * @return The index of the first failed vector, counting from 0, or {@code -1} if all vectors passed.
+     */
+    public long getFirstFailure() {
+        return firstFailure;
+    }
+
+    /**
+     * Returns the line number of the first failed vector in the vector file.
+     *
+     * @return The line number of the first failed vector or {@code -1} if all vectors passed.
+     */
+    public int getFirstFailureLineNumber() {
+        return firstFailureLineNumber;
+    }
+
+    /**
+     * Returns the time in nanoseconds spent in the commands.
+     *
+     * @return The time in nanoseconds spent in the commands.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Returns whether all vectors passed.
+     *
+     * @return {@code true} if all vectors passed, otherwise {@code false}.
+     */
+    public boolean isPassed() {
+        return firstFailure < 0;
+    }
+
+    /**
+     * Returns the throughput.
+     *
+     * @return The number of vectors verified per second.
+     */
+    public double getVectorsPerSecond() {
+        return nanos > 0 ? vectorCount * 1e9 / nanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        final String result = isPassed() ? "passed" : String.format("failed at vector %d at %s:%d", firstFailure, fileName, firstFailureLineNumber);
+        return String.format("%s: %d vectors %s (%.3f ms, %.1f vectors/s)", fileName, vectorCount, result, nanos / 1e6, getVectorsPerSecond());
+    }
+}
@@ -0,0 +1,301 @@
+package de.riedquat.runner;
+
+import de.riedquat.ReadLine;
+import de.riedquat.ReaderReadLine;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * Streams known-answer test vectors from a file to applets which extend {@code org.jcunit.KnownAnswerApplet}.
+ * The vector file has one vector per line in hexadecimal notation, empty lines and lines starting with {@code #} are ignored.
+ * <p>
+ * The vectors are read one at a time and packed into commands, as many as fit into the maximum command data size.
+ * With a maximum of more than 255 bytes, extended length commands are sent.
+ * Consecutive commands are chained, so that the card reports the first failed vector only once per chain,
+ * therefore the time measured is dominated by transmitting and verifying the vectors.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class VectorStreamer {
+
+    /**
+     * INS of the command which verifies vectors, see {@code org.jcunit.KnownAnswerApplet}.
+     */
+    public static final byte INS_VERIFY_VECTORS = 0x04;
+
+    /**
+     * The bit of the CLA which indicates that more commands of the chain follow.
+     */
+    public static final int CLA_COMMAND_CHAINING = 0x10;
+
+    /**
+     * The default maximum command data size, which fits into a short length command.
+     */
+    public static final int DEFAULT_MAX_COMMAND_DATA = 255;
+
+    /**
+     * The maximum number of vectors per chain, so that the card can count them and report {@code FFFF} for none failed.
+     */
+    public static final int MAX_CHAIN_VECTORS = 0xFFFE;
+
+    /**
+     * The value with which the card reports that no vector of the chain failed.
+     */
+    private static final int NO_FAILURE = 0xFFFF;
+
+    /**
+     * The transport to the card.
+     */
+    private final CardTransport transport;
+
+    /**
+     * The maximum size of the data of a command.
+     */
+    private final int maxCommandData;
+
+    /**
+     * Creates a VectorStreamer which sends short length commands.
+     *
+     * @param transport
+     *         Transport to the card.
+     */
+    public VectorStreamer(final CardTransport transport) {
+        this(transport, DEFAULT_MAX_COMMAND_DATA);
+    }
+
+    /**
+     * Creates a VectorStreamer.
+     *
+     * @param transport
+     *         Transport to the card.
+     * @param maxCommandData
+     *         Maximum size of the data of a command, more than 255 for extended length commands, at most 65535.
+     *         The applet must be able to receive commands of that size.
+     */
+    public VectorStreamer(final CardTransport transport, final int maxCommandData) {
+        if (maxCommandData < 3 || maxCommandData > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid maximum command data size: " + maxCommandData);
+        }
+        this.transport = transport;
+        this.maxCommandData = maxCommandData;
+    }
+
+    /**
+     * Streams a vector file to a known-answer applet on the first card found and prints the result.
+     *
+     * @param args
+     *         Command line arguments: the AID of the applet in hexadecimal notation, the vector set, the vector file,
+     *         and optionally the maximum command data size.
+     * @throws IOException
+     *         In case of I/O problems.
+     * @throws CardException
+     *         In case of communication problems.
+     */
+    public static void main(final String... args) throws IOException, CardException {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: java " + VectorStreamer.class.getName() + " AID SET FILE [MAX_COMMAND_DATA]");
+            System.exit(2);
+        }
+        final byte[] aid = TestRunner.parseHex(args[0]);
+        final int set = Integer.parseInt(args[1]);
+        final int maxCommandData = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAX_COMMAND_DATA;
+        final CardTransport transport = ChannelTransport.connect(null);
+        final VectorReport report;
+        try {
+            final ReaderReadLine in = new ReaderReadLine(new InputStreamReader(Files.newInputStream(Paths.get(args[2])), Charset.forName("UTF-8")));
+            try {
+                report = new VectorStreamer(transport, maxCommandData).stream(aid, set, args[2], in);
+            } finally {
+                in.close();
+            }
+        } finally {
+            transport.close();
+        }
+        System.out.println(report);
+        System.exit(report.isPassed() ? 0 : 1);
+    }
+
+    /**
+     * Streams vectors to a known-answer applet.
+     *
+     * @param aid
+     *         AID of the applet.
+     * @param set
+     *         Vector set, P1 of the commands.
+     * @param fileName
+     *         Name of the vector file, for reporting.
+     * @param in
+     *         ReadLine from which to read the vectors.
+     * @return Report with the number of vectors, the first failed vector and the time taken.
+     * @throws IOException
+     *         In case of I/O problems or if a vector is malformed or too long.
+     * @throws CardException
+     *         In case of communication problems, if the applet cannot be selected or if it rejects a command.
+     */
+    public VectorReport stream(final byte[] aid, final int set, final String fileName, final ReadLine in) throws IOException, CardException {
+        final ResponseAPDU selectResponse = transport.transmit(TestRunner.createSelectCommand(aid));
+        if (selectResponse.getSW() != StatusWords.SW_NO_ERROR) {
+            throw new CardException("Cannot select known-answer applet: " + StatusWords.describe(selectResponse.getSW()));
+        }
+        final Chain chain = new Chain(set);
+        final StringBuilder line = new StringBuilder();
+        while (in.readLine(line) >= 0) {
+            final String hex = line.toString().trim();
+            if (hex.isEmpty() || hex.charAt(0) == '#') {
+                continue;
+            }
+            final byte[] vector;
+            try {
+                vector = TestRunner.parseHex(hex);
+            } catch (final NumberFormatException e) {
+                throw new IOException("Malformed vector in line " + in.getLineNumber() + ": " + line, e);
+            }
+            if (vector.length + 2 > maxCommandData) {
+                throw new IOException("Vector too long in line " + in.getLineNumber() + ": " + vector.length + " bytes");
+            }
+            if (chain.count == MAX_CHAIN_VECTORS) {
+                chain.finish();
+            } else if (chain.pending.size() + vector.length + 2 > maxCommandData) {
+                chain.send(true);
+            }
+            chain.add(vector, in.getLineNumber());
+        }
+        if (chain.pending.size() > 0) {
+            chain.finish();
+        }
+        return new VectorReport(fileName, chain.total, chain.firstFailure, chain.firstFailureLineNumber, chain.nanos);
+    }
+
+    /**
+     * The state of streaming vectors: the vectors of the current command and chain, and the results so far.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    private final class Chain {
+
+        /**
+         * The vector set, P1 of the commands.
+         */
+        private final int set;
+
+        /**
+         * The data of the next command.
+         */
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream(maxCommandData);
+
+        /**
+         * The line numbers of the vectors of the current chain.
+         */
+        private int[] lineNumbers = new int[64];
+
+        /**
+         * The number of vectors of the current chain.
+         */
+        private int count;
+
+        /**
+         * The number of vectors of all finished chains.
+         */
+        private long total;
+
+        /**
+         * The index of the first failed vector, {@code -1} if none failed yet.
+         */
+        private long firstFailure = -1;
+
+        /**
+         * The line number of the first failed vector, {@code -1} if none failed yet.
+         */
+        private int firstFailureLineNumber = -1;
+
+        /**
+         * The time in nanoseconds spent in the commands.
+         */
+        private long nanos;
+
+        /**
+         * Creates a Chain.
+         *
+         * @param set
+         *         Vector set, P1 of the commands.
+         */
+        Chain(final int set) {
+            this.set = set;
+        }
+
+        /**
+         * Adds a vector to the next command.
+         *
+         * @param vector
+         *         Vector to add.
+         * @param lineNumber
+         *         Line number of the vector.
+         */
+        void add(final byte[] vector, final int lineNumber) {
+            if (count == lineNumbers.length) {
+                lineNumbers = Arrays.copyOf(lineNumbers, Math.min(2 * count, MAX_CHAIN_VECTORS));
+            }
+            lineNumbers[count++] = lineNumber;
+            pending.write(vector.length >> 8);
+            pending.write(vector.length);
+            pending.write(vector, 0, vector.length);
+        }
+
+        /**
+         * Sends the next command.
+         *
+         * @param chained
+         *         Whether more commands of the chain follow.
+         * @return The response data.
+         * @throws CardException
+         *         In case of communication problems or if the applet rejects the command.
+         */
+        byte[] send(final boolean chained) throws CardException {
+            final int cla = chained ? TestSuite.DEFAULT_CLA | CLA_COMMAND_CHAINING : TestSuite.DEFAULT_CLA;
+            final CommandAPDU command = chained ? new CommandAPDU(cla, INS_VERIFY_VECTORS, set, 0x00, pending.toByteArray()) : new CommandAPDU(cla, INS_VERIFY_VECTORS, set, 0x00, pending.toByteArray(), 256);
+            pending.reset();
+            final long start = System.nanoTime();
+            final ResponseAPDU response = transport.transmit(command);
+            nanos += System.nanoTime() - start;
+            if (response.getSW() != StatusWords.SW_NO_ERROR) {
+                throw new CardException("Vectors rejected: " + StatusWords.describe(response.getSW()));
+            }
+            return response.getData();
+        }
+
+        /**
+         * Sends the last command of the chain and records its result.
+         *
+         * @throws CardException
+         *         In case of communication problems, if the applet rejects the command or if it counted a different number of vectors.
+         */
+        void finish() throws CardException {
+            final byte[] data = send(false);
+            if (data.length != 4 || ((data[0] & 0xFF) << 8 | data[1] & 0xFF) != count) {
+                throw new CardException("Unexpected result of chain of " + count + " vectors: " + Arrays.toString(data));
+            }
+            final int failure = (data[2] & 0xFF) << 8 | data[3] & 0xFF;
+            if (failure != NO_FAILURE && failure >= count) {
+                throw new CardException("Unexpected failure index " + failure + " in chain of " + count + " vectors");
+            }
+            if (failure != NO_FAILURE && firstFailure < 0) {
+                firstFailure = total + failure;
+                firstFailureLineNumber = lineNumbers[failure];
+            }
+            total += count;
+            count = 0;
+        }
+    }
+}
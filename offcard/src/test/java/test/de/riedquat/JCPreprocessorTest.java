@@ -0,0 +1,105 @@
+package test.de.riedquat;
+
+import de.riedquat.JCPreprocessor;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Test for {@link JCPreprocessor}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class JCPreprocessorTest {
+
+    /**
+     * The Charset used for the test files.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testPreprocessesChangedFilesOnly() throws IOException {
+        final Path source = temporaryFolder.newFolder("src").toPath();
+        final Path target = temporaryFolder.newFolder("out").toPath();
+        write(source.resolve("Foo.java"), "class Foo {\n    short line = __LINE__;\n}\n");
+        write(source.resolve("bar/Bar.java"), "class Bar {}\n");
+        write(source.resolve("bar/README"), "__LINE__\n");
+
+        JCPreprocessor.Result result = new JCPreprocessor(source, target, UTF_8).preprocess();
+        assertEquals(2, result.getPreprocessed());
+        assertEquals(0, result.getUpToDate());
+        assertEquals(Arrays.asList("class Foo {", "    short line = 2;", "}"), Files.readAllLines(target.resolve("Foo.java"), UTF_8));
+        assertFalse(Files.exists(target.resolve("bar/README")));
+
+        result = new JCPreprocessor(source, target, UTF_8).preprocess();
+        assertEquals(0, result.getPreprocessed());
+        assertEquals(2, result.getUpToDate());
+
+        write(source.resolve("bar/Bar.java"), "class Bar {\n    short line = __LINE__;\n}\n");
+        result = new JCPreprocessor(source, target, UTF_8).preprocess();
+        assertEquals(1, result.getPreprocessed());
+        assertEquals(1, result.getUpToDate());
+        assertEquals(Arrays.asList("class Bar {", "    short line = 2;", "}"), Files.readAllLines(target.resolve("bar" + File.separator + "Bar.java"), UTF_8));
+    }
+
+    @Test
+    public void testDeletesPreprocessedFilesOfDeletedSources() throws IOException {
+        final Path source = temporaryFolder.newFolder("src").toPath();
+        final Path target = temporaryFolder.newFolder("out").toPath();
+        write(source.resolve("Foo.java"), "class Foo {}\n");
+        write(source.resolve("bar/Bar.java"), "class Bar {}\n");
+        new JCPreprocessor(source, target, UTF_8).preprocess();
+
+        Files.delete(source.resolve("bar/Bar.java"));
+        final JCPreprocessor.Result result = new JCPreprocessor(source, target, UTF_8).preprocess();
+        assertEquals(1, result.getUpToDate());
+        assertEquals(1, result.getPruned());
+        assertTrue(Files.exists(target.resolve("Foo.java")));
+        assertFalse(Files.exists(target.resolve("bar")));
+        assertEquals(1, Files.readAllLines(target.resolve(JCPreprocessor.MANIFEST_NAME), UTF_8).size());
+    }
+
+    @Test
+    public void testDoesNotFollowDirectoryLinks() throws IOException {
+        final Path source = temporaryFolder.newFolder("src").toPath();
+        final Path target = temporaryFolder.newFolder("out").toPath();
+        write(source.resolve("bar/Bar.java"), "class Bar {}\n");
+        try {
+            Files.createSymbolicLink(source.resolve("bar/loop"), source);
+        } catch (final UnsupportedOperationException ignore) {
+            return;
+        }
+        final JCPreprocessor.Result result = new JCPreprocessor(source, target, UTF_8).preprocess();
+        assertEquals(1, result.getPreprocessed());
+        assertFalse(Files.exists(target.resolve("bar/loop")));
+    }
+
+    /**
+     * Writes a file, creating its directory if necessary.
+     *
+     * @param file
+     *         File to write.
+     * @param content
+     *         Content to write.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private static void write(final Path file, final String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(UTF_8));
+    }
+}
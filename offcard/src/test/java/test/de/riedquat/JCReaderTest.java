@@ -1,9 +1,20 @@
 package test.de.riedquat;
 
 import de.riedquat.JCReader;
+import de.riedquat.ReadLineException;
+import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
 /**
  * Unit Test for {@link JCReader}.
  * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
@@ -15,7 +26,67 @@ public class JCReaderTest {
     @Test
     public void testReadLine() {
         final JCReader jcReader = new JCReader(new StringReader("foo\nbar__LINE__buzz\nbar __LINE__ buzz\nbar(__LINE__)buzz\n"));
+        final List<String> lines = new ArrayList<String>();
         for (final String line : jcReader) {
+            lines.add(line);
+        }
+        assertEquals(Arrays.asList("foo", "bar2buzz", "bar 3 buzz", "bar(4)buzz"), lines);
+    }
+
+    @Test
+    public void testReadLineIntoBuffer() throws IOException {
+        final JCReader jcReader = new JCReader(new StringReader("foo\r\nbar(__LINE__)\rbuzz"));
+        final StringBuilder buffer = new StringBuilder();
+        assertEquals(3, jcReader.readLine(buffer));
+        assertEquals("foo", buffer.toString());
+        assertEquals(6, jcReader.readLine(buffer));
+        assertEquals("bar(2)", buffer.toString());
+        assertEquals(4, jcReader.readLine(buffer));
+        assertEquals("buzz", buffer.toString());
+        assertEquals(-1, jcReader.readLine(buffer));
+        assertEquals(3, jcReader.getLineNumber());
+    }
+
+    @Test
+    public void testIteratorRethrowsIOException() {
+        final IOException problem = new IOException();
+        final JCReader jcReader = new JCReader(new Reader() {
+            @Override
+            public int read(final char[] cbuf, final int off, final int len) throws IOException {
+                throw problem;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        try {
+            jcReader.iterator().hasNext();
+            fail();
+        } catch (final ReadLineException e) {
+            assertSame(problem, e.getCause());
+        }
+    }
+
+    @Test
+    public void testReadKeepsLineTerminators() throws IOException {
+        final JCReader jcReader = new JCReader(new StringReader("foo\r\nbar(__LINE__)\rbuzz\n\n__LINE__"));
+        final StringBuilder text = new StringBuilder();
+        final char[] buffer = new char[3];
+        for (int count; (count = jcReader.read(buffer)) != -1; ) {
+            text.append(buffer, 0, count);
         }
+        assertEquals("foo\r\nbar(2)\rbuzz\n\n5", text.toString());
+    }
+
+    @Test
+    public void testReadLineAfterPartialRead() throws IOException {
+        final JCReader jcReader = new JCReader(new StringReader("foo\r\nbar\n"));
+        assertEquals('f', jcReader.read());
+        assertEquals("oo", jcReader.readLine());
+        assertEquals('b', jcReader.read());
+        assertEquals('a', jcReader.read());
+        assertEquals('r', jcReader.read());
+        assertNull(jcReader.readLine());
     }
 }
@@ -0,0 +1,105 @@
+package test.de.riedquat;
+
+import de.riedquat.LineNumberProcessor;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Test for {@link LineNumberProcessor}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class LineNumberProcessorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReplacesLineNumbers() throws Exception {
+        final File source = new File(temporaryFolder.getRoot(), "Lines.java");
+        Files.write(source.toPath(), ("public class Lines {\n"
+                + "    public static short first() {\n"
+                + "        return __LINE__;\n"
+                + "    }\n"
+                + "    public static String second() {\n"
+                + "        return \"__LINE__\" + get(__LINE__);\n"
+                + "    }\n"
+                + "    private static short get(final short lineNumber) {\n"
+                + "        return lineNumber;\n"
+                + "    }\n"
+                + "}\n").getBytes(Charset.forName("UTF-8")));
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, Arrays.asList("-d", temporaryFolder.getRoot().getPath()), null, fileManager.getJavaFileObjects(source));
+            task.setProcessors(Collections.singletonList(new LineNumberProcessor()));
+            assertTrue(task.call());
+        } finally {
+            fileManager.close();
+        }
+        final ClassLoader classLoader = new URLClassLoader(new URL[] { temporaryFolder.getRoot().toURI().toURL() });
+        final Class<?> lines = classLoader.loadClass("Lines");
+        assertEquals((short) 3, lines.getMethod("first").invoke(null));
+        assertEquals("__LINE__6", lines.getMethod("second").invoke(null));
+    }
+
+    @Test
+    public void testInsertsCoverageProbes() throws Exception {
+        final File coverage = new File(temporaryFolder.getRoot(), "org/jcunit/Coverage.java");
+        assertTrue(coverage.getParentFile().mkdirs());
+        Files.write(coverage.toPath(), ("package org.jcunit;\n"
+                + "public class Coverage {\n"
+                + "    public static final StringBuilder HITS = new StringBuilder();\n"
+                + "    public static void hit(final short probe) {\n"
+                + "        HITS.append(probe).append(' ');\n"
+                + "    }\n"
+                + "}\n").getBytes(Charset.forName("UTF-8")));
+        final File source = new File(temporaryFolder.getRoot(), "foo/Covered.java");
+        assertTrue(source.getParentFile().mkdirs());
+        Files.write(source.toPath(), ("package foo;\n"
+                + "public class Covered {\n"
+                + "    static { int x = 1; }\n"
+                + "    public Covered() {\n"
+                + "        super();\n"
+                + "    }\n"
+                + "    public static short max(final short a, final short b) {\n"
+                + "        if (a > b) {\n"
+                + "            return a;\n"
+                + "        }\n"
+                + "        switch (b) { case 0: return 0; default: }\n"
+                + "        return b;\n"
+                + "    }\n"
+                + "}\n").getBytes(Charset.forName("UTF-8")));
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, Arrays.asList("-d", temporaryFolder.getRoot().getPath(), "-A" + LineNumberProcessor.COVERAGE_OPTION), null, fileManager.getJavaFileObjects(coverage, source));
+            task.setProcessors(Collections.singletonList(new LineNumberProcessor()));
+            assertTrue(task.call());
+        } finally {
+            fileManager.close();
+        }
+        final File probeMap = new File(temporaryFolder.getRoot(), LineNumberProcessor.PROBE_MAP);
+        assertEquals(Arrays.asList("0 foo/Covered.java 8", "1 foo/Covered.java 9", "2 foo/Covered.java 11", "3 foo/Covered.java 11", "4 foo/Covered.java 12"), Files.readAllLines(probeMap.toPath(), Charset.forName("UTF-8")));
+        final ClassLoader classLoader = new URLClassLoader(new URL[] { temporaryFolder.getRoot().toURI().toURL() }, null);
+        final Class<?> covered = classLoader.loadClass("foo.Covered");
+        covered.newInstance();
+        covered.getMethod("max", short.class, short.class).invoke(null, (short) 1, (short) 2);
+        assertEquals("0 2 4 ", classLoader.loadClass("org.jcunit.Coverage").getField("HITS").get(null).toString());
+    }
+}
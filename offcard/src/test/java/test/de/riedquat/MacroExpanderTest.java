@@ -0,0 +1,55 @@
+package test.de.riedquat;
+
+import de.riedquat.MacroExpander;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Test for {@link MacroExpander}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class MacroExpanderTest {
+
+    @Test
+    public void testLineWithoutMacroIsReturnedUnchanged() {
+        final String line = "Assert.assertTrue((short) 42, _foo__LINE_);";
+        assertSame(line, new MacroExpander().expand(line, 42));
+        assertNull(new MacroExpander().expand(null, 42));
+    }
+
+    @Test
+    public void testExpandsLineNumber() {
+        final MacroExpander expander = new MacroExpander();
+        assertEquals("fail((short) 13);", expander.expand("fail((short) __LINE__);", 13));
+        assertEquals("13134", expander.expand("__LINE____LINE__4", 13));
+        assertEquals("___13__", expander.expand("_____LINE____", 13));
+    }
+
+    @Test
+    public void testExpandsAdditionalMacros() {
+        final Map<String, MacroExpander.Macro> macros = new HashMap<String, MacroExpander.Macro>();
+        macros.put(MacroExpander.LINE, MacroExpander.LINE_NUMBER);
+        macros.put("__FILE__", MacroExpander.constant("Foo.java"));
+        macros.put("__FILE__NAME__", MacroExpander.constant("Foo"));
+        final MacroExpander expander = new MacroExpander(macros);
+        assertEquals("Foo.java:7 Foo", expander.expand("__FILE__:__LINE__ __FILE__NAME__", 7));
+    }
+
+    @Test
+    public void testExpandsRangeIntoStringBuilder() {
+        final StringBuilder out = new StringBuilder("> ");
+        assertTrue(new MacroExpander().expand("xx__LINE__yy", 1, 11, 5, out));
+        assertEquals("> x5y", out.toString());
+        assertFalse(new MacroExpander().expand("__LINE__", 1, 8, 5, out));
+        assertEquals("> x5y_LINE__", out.toString());
+    }
+}
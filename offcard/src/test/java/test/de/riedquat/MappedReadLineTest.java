@@ -0,0 +1,109 @@
+package test.de.riedquat;
+
+import de.riedquat.MappedReadLine;
+import de.riedquat.ReadLine;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Test for {@link MappedReadLine}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class MappedReadLineTest {
+
+    /**
+     * The Charset used for the test files.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReadsLinesLikeLineNumberReader() throws IOException {
+        final Path file = write("foo\nbar\r\nbuzz\r\rqu\u00e4x");
+        final MappedReadLine readLine = new MappedReadLine(file, UTF_8);
+        try {
+            assertLine(readLine, "foo", 1);
+            assertLine(readLine, "bar", 2);
+            assertLine(readLine, "buzz", 3);
+            assertLine(readLine, "", 4);
+            assertLine(readLine, "qu\u00e4x", 5);
+            assertNull(readLine.readLine());
+            assertEquals(5, readLine.getLineNumber());
+        } finally {
+            readLine.close();
+        }
+    }
+
+    @Test
+    public void testDecodesMultiByteCharactersAcrossWindows() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append("\u00e4\u20ac").append(i).append('\n');
+        }
+        final FileChannel channel = FileChannel.open(write(text.toString()), StandardOpenOption.READ);
+        try {
+            final MappedReadLine readLine = new MappedReadLine(channel, UTF_8, 17);
+            for (int i = 0; i < 100; i++) {
+                assertLine(readLine, "\u00e4\u20ac" + i, i + 1);
+            }
+            assertNull(readLine.readLine());
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void testRegisteredForPath() throws IOException {
+        final ReadLine readLine = ReadLine.Factory.createReadLine(write("foo\n"));
+        assertTrue(readLine instanceof MappedReadLine);
+        assertLine(readLine, "foo", 1);
+        ((MappedReadLine) readLine).close();
+    }
+
+    /**
+     * Writes a temporary file.
+     *
+     * @param content
+     *         Content to write.
+     * @return The file.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private Path write(final String content) throws IOException {
+        final File file = temporaryFolder.newFile();
+        return Files.write(file.toPath(), content.getBytes(UTF_8));
+    }
+
+    /**
+     * Asserts that the next line of a ReadLine has the expected text and line number.
+     *
+     * @param readLine
+     *         ReadLine from which to read the line.
+     * @param expectedText
+     *         Expected text of the line.
+     * @param expectedLineNumber
+     *         Expected line number of the line.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private static void assertLine(final ReadLine readLine, final String expectedText, final int expectedLineNumber) throws IOException {
+        assertEquals(expectedText, readLine.readLine());
+        assertEquals(expectedLineNumber, readLine.getLineNumber());
+    }
+}
@@ -0,0 +1,140 @@
+package test.de.riedquat;
+
+import de.riedquat.Line;
+import de.riedquat.MappedReadLine;
+import de.riedquat.ParallelLines;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit Test for {@link ParallelLines}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class ParallelLinesTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testKeepsLineNumbersAcrossChunks() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        final String[] terminators = { "\n", "\r\n", "\r" };
+        for (int i = 0; i < 1000; i++) {
+            text.append(i % 7 == 0 ? "" : "qu\u00e4x " + i).append(terminators[i % 3]);
+        }
+        text.append("last");
+        assertSameLines(text.toString(), Charset.forName("UTF-8"));
+    }
+
+    @Test
+    public void testReadsOtherCharsetsAsOneChunk() throws IOException {
+        assertSameLines("foo\r\nbar\n\u010a\n\rbuzz\n", Charset.forName("UTF-16BE"));
+    }
+
+    @Test
+    public void testRethrowsIOExceptionOfHandler() throws IOException {
+        final Path file = write("foo\nbar\n", Charset.forName("UTF-8"));
+        try {
+            ParallelLines.forEach(file, Charset.forName("UTF-8"), new ParallelLines.LineHandler() {
+                @Override
+                public void handle(final Line line) throws IOException {
+                    throw new IOException("line " + line.getLineNumber());
+                }
+            });
+            fail("Expected IOException");
+        } catch (final IOException e) {
+            assertEquals("line", e.getMessage().substring(0, 4));
+        }
+    }
+
+    @Test
+    public void testLinesOfReadLine() throws IOException {
+        final MappedReadLine readLine = new MappedReadLine(write("foo\nbar", Charset.forName("UTF-8")), Charset.forName("UTF-8"));
+        try {
+            final List<Line> lines = new ArrayList<Line>();
+            for (final Line line : Line.of(readLine)) {
+                lines.add(line);
+            }
+            assertEquals(2, lines.size());
+            assertEquals(new Line(1, "foo"), lines.get(0));
+            assertEquals(new Line(2, "bar"), lines.get(1));
+        } finally {
+            readLine.close();
+        }
+    }
+
+    /**
+     * Asserts that processing a text in parallel in small chunks yields the same lines as reading it serially.
+     *
+     * @param text
+     *         Text to process.
+     * @param charset
+     *         Charset in which to write the text.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private void assertSameLines(final String text, final Charset charset) throws IOException {
+        final Path file = write(text, charset);
+        final Map<Integer, String> expected = new TreeMap<Integer, String>();
+        final MappedReadLine readLine = new MappedReadLine(file, charset);
+        try {
+            for (final Line line : Line.of(readLine)) {
+                expected.put(line.getLineNumber(), line.getText());
+            }
+        } finally {
+            readLine.close();
+        }
+        final Map<Integer, String> actual = new ConcurrentHashMap<Integer, String>();
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelLines.forEach(channel, charset, new ParallelLines.LineHandler() {
+                @Override
+                public void handle(final Line line) {
+                    if (actual.put(line.getLineNumber(), line.getText()) != null) {
+                        fail("Duplicate line " + line);
+                    }
+                }
+            }, pool, 64);
+        } finally {
+            pool.shutdown();
+            channel.close();
+        }
+        assertEquals(expected, new TreeMap<Integer, String>(actual));
+    }
+
+    /**
+     * Writes a temporary file.
+     *
+     * @param content
+     *         Content to write.
+     * @param charset
+     *         Charset in which to write the content.
+     * @return The file.
+     * @throws IOException
+     *         In case of I/O problems.
+     */
+    private Path write(final String content, final Charset charset) throws IOException {
+        final File file = temporaryFolder.newFile();
+        return Files.write(file.toPath(), content.getBytes(charset));
+    }
+}
@@ -0,0 +1,137 @@
+package test.de.riedquat;
+
+import de.riedquat.JCReader;
+import de.riedquat.MacroExpander;
+import de.riedquat.ReadAheadReadLine;
+import de.riedquat.ReadLine;
+import de.riedquat.ReaderReadLine;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit Test for {@link ReadAheadReadLine}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReadAheadReadLineTest {
+
+    @Test
+    public void testKeepsLineNumbersAcrossBatches() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= 100; i++) {
+            text.append("line").append(i).append('\n');
+        }
+        final ReadAheadReadLine readLine = new ReadAheadReadLine(new ReaderReadLine(new StringReader(text.toString())), 7, 2, new ThreadCapture());
+        try {
+            for (int i = 1; i <= 100; i++) {
+                assertEquals("line" + i, readLine.readLine());
+                assertEquals(i, readLine.getLineNumber());
+            }
+            assertNull(readLine.readLine());
+            assertNull(readLine.readLine());
+        } finally {
+            readLine.close();
+        }
+    }
+
+    @Test
+    public void testRethrowsErrorsAfterTheLinesReadBefore() throws IOException {
+        final IOException problem = new IOException();
+        final ReadAheadReadLine readLine = new ReadAheadReadLine(new ReadLine.ReadLineImpl() {
+            private int lineNumber;
+
+            @Override
+            public String readLine() throws IOException {
+                if (lineNumber == 3) {
+                    throw problem;
+                }
+                return "line" + ++lineNumber;
+            }
+
+            @Override
+            public int getLineNumber() {
+                return lineNumber;
+            }
+        });
+        assertEquals("line1", readLine.readLine());
+        assertEquals("line2", readLine.readLine());
+        assertEquals("line3", readLine.readLine());
+        try {
+            readLine.readLine();
+            fail();
+        } catch (final IOException e) {
+            assertSame(problem, e);
+        }
+        readLine.close();
+    }
+
+    @Test
+    public void testCloseStopsTheBackgroundThread() throws Exception {
+        final CountDownLatch reading = new CountDownLatch(1);
+        final ThreadCapture threads = new ThreadCapture();
+        final ReadAheadReadLine readLine = new ReadAheadReadLine(new ReadLine.ReadLineImpl() {
+            @Override
+            public String readLine() {
+                reading.countDown();
+                return "endless";
+            }
+
+            @Override
+            public int getLineNumber() {
+                return 0;
+            }
+        }, 4, 2, threads);
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+        readLine.close();
+        threads.thread.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(threads.thread.isAlive());
+        try {
+            readLine.readLine();
+            fail();
+        } catch (final IOException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testJCReaderKeepsLineTerminators() throws IOException {
+        final JCReader jcReader = new JCReader(new ReadAheadReadLine(new ReaderReadLine(new StringReader("foo\r\nbar(__LINE__)\rbuzz\n\n__LINE__")), 2, 2, new ThreadCapture()), new MacroExpander());
+        final StringBuilder text = new StringBuilder();
+        final char[] buffer = new char[3];
+        for (int count; (count = jcReader.read(buffer)) != -1; ) {
+            text.append(buffer, 0, count);
+        }
+        jcReader.close();
+        assertEquals("foo\r\nbar(2)\rbuzz\n\n5", text.toString());
+    }
+
+    /**
+     * ThreadFactory which keeps the thread it created.
+     */
+    private static class ThreadCapture implements ThreadFactory {
+
+        /**
+         * The thread which was created.
+         */
+        private Thread thread;
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
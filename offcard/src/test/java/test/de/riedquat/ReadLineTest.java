@@ -0,0 +1,51 @@
+package test.de.riedquat;
+
+import de.riedquat.MappedReadLine;
+import de.riedquat.ReadLine;
+import de.riedquat.ReaderReadLine;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.StringReader;
+import java.nio.file.Path;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Test for {@link ReadLine}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReadLineTest {
+
+    @Test
+    public void testFactoryForSubclass() throws IOException {
+        final ReadLine readLine = ReadLine.Factory.createReadLine(new LineNumberReader(new StringReader("foo\nbar\n")) {
+        });
+        assertEquals("foo", readLine.readLine());
+        assertEquals("bar", readLine.readLine());
+        assertEquals(2, readLine.getLineNumber());
+        assertNull(readLine.readLine());
+    }
+
+    @Test
+    public void testNoFactoryForUnsupportedType() throws IOException {
+        assertNull(ReadLine.Factory.createReadLine("foo"));
+    }
+
+    @Test
+    public void testFactoryForReader() throws IOException {
+        final ReadLine readLine = ReadLine.Factory.createReadLine(new StringReader("foo"));
+        assertTrue(readLine instanceof ReaderReadLine);
+        assertEquals("foo", readLine.readLine());
+    }
+
+    @Test
+    public void testFactoriesDeclareTheirType() {
+        assertEquals(LineNumberReader.class, new ReadLine.LineNumberFactory().getType());
+        assertEquals(Path.class, new MappedReadLine.PathFactory().getType());
+    }
+}
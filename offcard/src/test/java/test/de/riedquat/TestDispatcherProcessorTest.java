@@ -0,0 +1,160 @@
+package test.de.riedquat;
+
+import de.riedquat.TestDispatcherProcessor;
+import de.riedquat.runner.MemoryUsage;
+import de.riedquat.runner.TestSuite;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit Test for {@link TestDispatcherProcessor}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class TestDispatcherProcessorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testInsSkipsReservedValues() {
+        assertEquals(0x10, TestDispatcherProcessor.getIns(0));
+        assertEquals(0x5F, TestDispatcherProcessor.getIns(0x4F));
+        assertEquals(0x71, TestDispatcherProcessor.getIns(0x50));
+        for (int i = 0; TestDispatcherProcessor.getIns(i) >= 0; i++) {
+            final int ins = TestDispatcherProcessor.getIns(i);
+            assertFalse((ins & 0xF0) == 0x60 || (ins & 0xF0) == 0x90 || ins == 0xA4 || ins == 0xC0);
+        }
+    }
+
+    @Test
+    public void testGeneratesDispatcherAndManifest() throws Exception {
+        assertTrue(compile(
+                source("org/jcunit/Test.java", "package org.jcunit; public @interface Test {}"),
+                source("org/jcunit/MemoryBudget.java", "package org.jcunit; public @interface MemoryBudget { short persistent() default -1; short transientReset() default -1; short transientDeselect() default -1; }"),
+                source("javacard/framework/APDU.java", "package javacard.framework; public class APDU { private final byte[] buffer; public APDU(byte[] buffer) { this.buffer = buffer; } public byte[] getBuffer() { return buffer; } }"),
+                source("javacard/framework/Applet.java", "package javacard.framework; public abstract class Applet { protected final void register(byte[] b, short o, byte l) {} protected final boolean selectingApplet() { return false; } public abstract void process(APDU apdu); }"),
+                source("javacard/framework/ISO7816.java", "package javacard.framework; public interface ISO7816 { byte OFFSET_INS = 1; short SW_WRONG_P1P2 = 0x6B00; }"),
+                source("org/jcunit/TestApplet.java", "package org.jcunit; public abstract class TestApplet extends javacard.framework.Applet { protected abstract short getTestCount(); protected abstract short getTestIndex(byte ins); protected abstract void runTest(short index); public void process(javacard.framework.APDU apdu) { runTest(getTestIndex(apdu.getBuffer()[1])); } }"),
+                source("javacard/framework/ISOException.java", "package javacard.framework; public class ISOException extends RuntimeException { public final short sw; ISOException(short sw) { this.sw = sw; } public static void throwIt(short sw) { throw new ISOException(sw); } }"),
+                source("foo/FooTest.java", "package foo;\n"
+                        + "import org.jcunit.Test;\n"
+                        + "public class FooTest {\n"
+                        + "    public static final StringBuilder LOG = new StringBuilder();\n"
+                        + "    @Test public void testA() { LOG.append('A'); }\n"
+                        + "    @Test @org.jcunit.MemoryBudget(persistent = 256) static void testB() { LOG.append('B'); }\n"
+                        + "    public void notATest() { LOG.append('X'); }\n"
+                        + "}\n")));
+
+        final ClassLoader classLoader = new URLClassLoader(new URL[] { temporaryFolder.getRoot().toURI().toURL() }, null);
+        final Class<?> dispatcherClass = classLoader.loadClass("foo.FooTestDispatcher");
+        final Object dispatcher = dispatcherClass.newInstance();
+        final Class<?> apduClass = classLoader.loadClass("javacard.framework.APDU");
+        for (final int ins : new int[] { 0x11, 0x10 }) {
+            dispatcherClass.getMethod("process", apduClass).invoke(dispatcher, apduClass.getConstructor(byte[].class).newInstance((Object) new byte[] { (byte) 0x80, (byte) ins, 0, 0 }));
+        }
+        assertEquals("BA", classLoader.loadClass("foo.FooTest").getField("LOG").get(null).toString());
+        final Method getTestCount = dispatcherClass.getDeclaredMethod("getTestCount");
+        getTestCount.setAccessible(true);
+        assertEquals((short) 2, getTestCount.invoke(dispatcher));
+        final Method getTestIndex = dispatcherClass.getDeclaredMethod("getTestIndex", byte.class);
+        getTestIndex.setAccessible(true);
+        assertEquals((short) 1, getTestIndex.invoke(dispatcher, (byte) 0x11));
+        assertEquals((short) -1, getTestIndex.invoke(dispatcher, (byte) 0x12));
+        final Method runTest = dispatcherClass.getDeclaredMethod("runTest", short.class);
+        runTest.setAccessible(true);
+        try {
+            runTest.invoke(dispatcher, (short) 2);
+            fail();
+        } catch (final InvocationTargetException e) {
+            assertEquals((short) 0x6B00, e.getCause().getClass().getField("sw").get(e.getCause()));
+        }
+
+        final Reader in = new InputStreamReader(new File(temporaryFolder.getRoot(), "foo/FooTest.jctests").toURI().toURL().openStream(), Charset.forName("UTF-8"));
+        final TestSuite testSuite;
+        try {
+            testSuite = TestSuite.load(in, new byte[] { 1, 2, 3, 4, 5 });
+        } finally {
+            in.close();
+        }
+        assertEquals("foo.FooTest", testSuite.getName());
+        assertEquals("FooTest.java", testSuite.getSourceFile());
+        assertEquals(2, testSuite.getTestCases().size());
+        assertEquals("testB", testSuite.getTestCases().get(1).getName());
+        assertEquals(0x11, testSuite.getTestCases().get(1).getIns());
+        assertEquals(MemoryUsage.UNLIMITED, testSuite.getTestCases().get(0).getMemoryBudget());
+        assertEquals(new MemoryUsage(256, -1, -1), testSuite.getTestCases().get(1).getMemoryBudget());
+    }
+
+    @Test
+    public void testRejectsTestsWithParameters() throws Exception {
+        final File[] sources = {
+                source("org/jcunit/Test.java", "package org.jcunit; public @interface Test {}"),
+                source("BadTest.java", "public class BadTest { @org.jcunit.Test public void test(int i) {} }"),
+        };
+        assertFalse(compile(sources));
+    }
+
+    /**
+     * Writes a source file into the temporary folder.
+     *
+     * @param path
+     *         Path of the source file, relative to the temporary folder.
+     * @param text
+     *         Source code.
+     * @return The source file.
+     * @throws Exception
+     *         In case of I/O problems.
+     */
+    private File source(final String path, final String text) throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), path);
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        Files.write(file.toPath(), text.getBytes(Charset.forName("UTF-8")));
+        return file;
+    }
+
+    /**
+     * Compiles sources with the TestDispatcherProcessor.
+     *
+     * @param sources
+     *         Source files to compile.
+     * @return {@code true} if the compilation succeeded, otherwise {@code false}.
+     * @throws Exception
+     *         In case of I/O problems.
+     */
+    private boolean compile(final File... sources) throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            final List<String> options = new ArrayList<String>(Arrays.asList("-d", temporaryFolder.getRoot().getPath(), "-s", temporaryFolder.getRoot().getPath()));
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, fileManager.getJavaFileObjects(sources));
+            task.setProcessors(Collections.singletonList(new TestDispatcherProcessor()));
+            return task.call();
+        } finally {
+            fileManager.close();
+        }
+    }
+}
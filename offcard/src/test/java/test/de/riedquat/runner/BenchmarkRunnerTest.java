@@ -0,0 +1,71 @@
+package test.de.riedquat.runner;
+
+import de.riedquat.runner.BenchmarkResult;
+import de.riedquat.runner.BenchmarkRunner;
+import java.util.Arrays;
+import java.util.List;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Test for {@link BenchmarkRunner}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class BenchmarkRunnerTest {
+
+    @Test
+    public void testAlternatesBaselineAndOperationAfterWarmup() throws CardException {
+        final FakeCard card = new FakeCard();
+        final List<BenchmarkResult> results = new BenchmarkRunner(card, 2, 3, 1000).run(new byte[] { 1, 2, 3, 4, 5 }, Arrays.asList("foo", "bar"));
+
+        assertEquals(2, results.size());
+        assertEquals("bar", results.get(1).getName());
+        assertEquals(1 + 2 * (2 * 2 + 2 * 3), card.getCommands().size());
+        final CommandAPDU baseline = card.getCommands().get(1);
+        assertEquals(BenchmarkRunner.INS_RUN_BENCHMARK, baseline.getINS());
+        assertEquals(BenchmarkRunner.P2_BASELINE, baseline.getP2());
+        assertEquals(0, card.getCommands().get(2).getP2());
+        assertEquals(1, card.getCommands().get(card.getCommands().size() - 1).getP1());
+        assertEquals(Arrays.toString(new byte[] { 0x03, (byte) 0xE8 }), Arrays.toString(baseline.getData()));
+    }
+
+    @Test
+    public void testMeasuresOtherCommands() throws CardException {
+        final FakeCard card = new FakeCard();
+        final CommandAPDU operation = new CommandAPDU(0x80, 0x20, 0x00, 0x00, new byte[] { 0x10 });
+        final CommandAPDU baseline = new CommandAPDU(0x80, 0x20, 0x00, 0x00, new byte[] { 0x00 });
+        final BenchmarkResult result = new BenchmarkRunner(card, 1, 2, 1).measure("foo", operation, baseline, 160);
+
+        assertEquals("foo", result.getName());
+        assertEquals(160, result.getIterations());
+        assertEquals(Arrays.asList(baseline, operation, baseline, operation, baseline, operation), card.getCommands());
+    }
+
+    @Test
+    public void testStatistics() {
+        final BenchmarkResult result = new BenchmarkResult("foo", 10, new long[] { 1300, 1100, 1200, 2000 }, new long[] { 90, 100, 1000 });
+        assertEquals(100, result.getBaselineNanos());
+        assertEquals(130.0, result.getMeanNanos(), 1e-9);
+        assertEquals(110.0, result.getPercentileNanos(50), 1e-9);
+        assertEquals(190.0, result.getPercentileNanos(99), 1e-9);
+        assertEquals(1e9 / 130.0, result.getOperationsPerSecond(), 1e-3);
+        assertFalse(result.isBelowResolution());
+        assertTrue(result.toString().startsWith("foo: ") && result.toString().contains(" ops/s, mean "));
+    }
+
+    @Test
+    public void testBelowResolution() {
+        final BenchmarkResult result = new BenchmarkResult("foo", 10, new long[] { 990, 1000, 1000 }, new long[] { 1000, 1010, 1020 });
+        assertEquals(-1.333, result.getMeanNanos(), 1e-3);
+        assertTrue(result.isBelowResolution());
+        assertTrue(Double.isNaN(result.getOperationsPerSecond()));
+        assertTrue(result.toString().startsWith("foo: below measurement resolution, mean "));
+    }
+}
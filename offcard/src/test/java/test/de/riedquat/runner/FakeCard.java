@@ -0,0 +1,107 @@
+package test.de.riedquat.runner;
+
+import de.riedquat.runner.CardTransport;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * CardTransport which simulates a test applet: it responds to each INS with a configured status word.
+ * Subclasses can override {@link #process(CommandAPDU)} for more elaborate behavior.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class FakeCard implements CardTransport {
+
+    /**
+     * The status words by INS, tests not listed here pass.
+     */
+    private final Map<Byte, Integer> statusWords = new HashMap<Byte, Integer>();
+
+    /**
+     * The commands which were transmitted.
+     */
+    private final List<CommandAPDU> commands = new ArrayList<CommandAPDU>();
+
+    /**
+     * Whether this FakeCard was closed.
+     */
+    private boolean closed;
+
+    /**
+     * Makes the card respond to a command with a status word.
+     *
+     * @param ins
+     *         INS of the command.
+     * @param sw
+     *         Status word with which to respond.
+     * @return This FakeCard.
+     */
+    public FakeCard respond(final int ins, final int sw) {
+        statusWords.put((byte) ins, sw);
+        return this;
+    }
+
+    /**
+     * Returns the commands which were transmitted.
+     *
+     * @return The commands which were transmitted.
+     */
+    public List<CommandAPDU> getCommands() {
+        return commands;
+    }
+
+    /**
+     * Returns whether this FakeCard was closed.
+     *
+     * @return {@code true} if this FakeCard was closed, otherwise {@code false}.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public ResponseAPDU transmit(final CommandAPDU command) {
+        commands.add(command);
+        return process(command);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Processes a command.
+     *
+     * @param command
+     *         Command to process.
+     * @return The response.
+     */
+    protected ResponseAPDU process(final CommandAPDU command) {
+        final Integer sw = command.getINS() == 0xA4 ? null : statusWords.get((byte) command.getINS());
+        return response(sw != null ? sw : 0x9000);
+    }
+
+    /**
+     * Creates a response.
+     *
+     * @param sw
+     *         Status word of the response.
+     * @param data
+     *         Data of the response.
+     * @return The response.
+     */
+    protected static ResponseAPDU response(final int sw, final byte... data) {
+        final byte[] bytes = new byte[data.length + 2];
+        System.arraycopy(data, 0, bytes, 0, data.length);
+        bytes[data.length] = (byte) (sw >> 8);
+        bytes[data.length + 1] = (byte) sw;
+        return new ResponseAPDU(bytes);
+    }
+}
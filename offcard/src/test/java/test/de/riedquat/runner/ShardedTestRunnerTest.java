@@ -0,0 +1,205 @@
+package test.de.riedquat.runner;
+
+import de.riedquat.runner.CardTransport;
+import de.riedquat.runner.CardTransportFactory;
+import de.riedquat.runner.ShardedTestRunner;
+import de.riedquat.runner.TestCase;
+import de.riedquat.runner.TestReport;
+import de.riedquat.runner.TestRunner;
+import de.riedquat.runner.TestSuite;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit Test for {@link ShardedTestRunner}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class ShardedTestRunnerTest {
+
+    @Test
+    public void testMergesReportsAndRunsEveryGroupOnItsOwnInstance() throws CardException {
+        final List<FakeCard> cards = Collections.synchronizedList(new ArrayList<FakeCard>());
+        final AtomicInteger open = new AtomicInteger();
+        final AtomicInteger maxOpen = new AtomicInteger();
+        final ShardedTestRunner runner = new PerTestRunner(new CardTransportFactory() {
+            @Override
+            public CardTransport createTransport() {
+                final FakeCard card = new FakeCard() {
+                    @Override
+                    public void close() {
+                        open.decrementAndGet();
+                        super.close();
+                    }
+                }.respond(0x11, 0x622A);
+                final int nowOpen = open.incrementAndGet();
+                synchronized (maxOpen) {
+                    maxOpen.set(Math.max(maxOpen.get(), nowOpen));
+                }
+                cards.add(card);
+                return card;
+            }
+        }, 2);
+        runner.add(suite("ServerTest", 1, 3), suite("ClientTest", 2, 2));
+        runner.add(suite("FooTest", 3, 1));
+        runner.add(suite("BarTest", 4, 2));
+        final TestReport report = runner.run();
+
+        assertEquals(8, report.getResults().size());
+        assertEquals("ServerTest", report.getResults().get(0).getTestSuite().getName());
+        assertEquals("ClientTest", report.getResults().get(3).getTestSuite().getName());
+        assertEquals("FooTest", report.getResults().get(5).getTestSuite().getName());
+        assertEquals("BarTest", report.getResults().get(6).getTestSuite().getName());
+        assertEquals(3, report.getFailures().size());
+        assertEquals(42, report.getFailures().get(0).getLineNumber());
+        assertEquals(3, cards.size());
+        assertTrue(maxOpen.get() <= 2);
+        final Set<Set<Integer>> groups = new HashSet<Set<Integer>>();
+        for (final FakeCard card : cards) {
+            assertTrue(card.isClosed());
+            final Set<Integer> selected = new HashSet<Integer>();
+            for (final CommandAPDU command : card.getCommands()) {
+                if (command.getINS() == 0xA4) {
+                    selected.add(command.getData()[4] & 0xFF);
+                }
+            }
+            groups.add(selected);
+        }
+        assertEquals(new HashSet<Set<Integer>>(Arrays.asList(new HashSet<Integer>(Arrays.asList(1, 2)), Collections.singleton(3), Collections.singleton(4))), groups);
+    }
+
+    @Test
+    public void testStealsGroupsFromBusyInstance() throws CardException {
+        final CountDownLatch othersDone = new CountDownLatch(3);
+        final boolean[] stolen = new boolean[1];
+        final ShardedTestRunner runner = new PerTestRunner(new CardTransportFactory() {
+            @Override
+            public CardTransport createTransport() {
+                return new FakeCard() {
+                    @Override
+                    protected ResponseAPDU process(final CommandAPDU command) {
+                        if (command.getINS() == 0x10 && command.getCLA() == 0x81) {
+                            try {
+                                stolen[0] = othersDone.await(5, TimeUnit.SECONDS);
+                            } catch (final InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        } else if (command.getINS() == 0x10) {
+                            othersDone.countDown();
+                        }
+                        return super.process(command);
+                    }
+                };
+            }
+        }, 2);
+        runner.add(new TestSuite("SlowTest", "SlowTest.java", aid(1), (byte) 0x81, Arrays.asList(new TestCase("test0", (byte) 0x10))));
+        for (int i = 2; i <= 4; i++) {
+            runner.add(suite("FastTest" + i, i, 1));
+        }
+        final TestReport report = runner.run();
+
+        assertTrue(stolen[0]);
+        assertEquals(4, report.getResults().size());
+        assertEquals("SlowTest", report.getResults().get(0).getTestSuite().getName());
+    }
+
+    @Test
+    public void testRethrowsCardException() {
+        final ShardedTestRunner runner = new ShardedTestRunner(new CardTransportFactory() {
+            @Override
+            public CardTransport createTransport() throws CardException {
+                throw new CardException("No simulator");
+            }
+        }, 3);
+        runner.add(suite("FooTest", 1, 1));
+        try {
+            runner.run();
+            fail("Expected CardException");
+        } catch (final CardException e) {
+            assertEquals("No simulator", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRunsNoGroups() throws CardException {
+        assertEquals(0, new ShardedTestRunner(new CardTransportFactory() {
+            @Override
+            public CardTransport createTransport() {
+                throw new AssertionError();
+            }
+        }, 2).run().getResults().size());
+    }
+
+    /**
+     * Creates a test suite with tests starting at INS 0x10.
+     *
+     * @param name
+     *         Name of the test suite.
+     * @param aidSuffix
+     *         Last byte of the AID of the test applet.
+     * @param testCount
+     *         Number of tests.
+     * @return The test suite.
+     */
+    private static TestSuite suite(final String name, final int aidSuffix, final int testCount) {
+        final List<TestCase> testCases = new ArrayList<TestCase>();
+        for (int i = 0; i < testCount; i++) {
+            testCases.add(new TestCase("test" + i, (byte) (0x10 + i)));
+        }
+        return new TestSuite(name, name + ".java", aid(aidSuffix), TestSuite.DEFAULT_CLA, testCases);
+    }
+
+    /**
+     * Creates the AID of a test applet.
+     *
+     * @param suffix
+     *         Last byte of the AID.
+     * @return The AID.
+     */
+    private static byte[] aid(final int suffix) {
+        return new byte[] { (byte) 0xF0, 0x4A, 0x43, 0x55, (byte) suffix };
+    }
+
+    /**
+     * ShardedTestRunner which runs the tests one command per test, which {@link FakeCard} supports.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    private static final class PerTestRunner extends ShardedTestRunner {
+
+        /**
+         * Creates a PerTestRunner.
+         *
+         * @param transportFactory
+         *         Factory for the transports to the card instances.
+         * @param instances
+         *         Maximum number of card instances.
+         */
+        PerTestRunner(final CardTransportFactory transportFactory, final int instances) {
+            super(transportFactory, instances);
+        }
+
+        @Override
+        protected TestReport run(final TestRunner runner, final TestSuite testSuite) throws CardException {
+            return runner.run(testSuite);
+        }
+    }
+}
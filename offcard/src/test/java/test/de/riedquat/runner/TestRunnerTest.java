@@ -0,0 +1,197 @@
+package test.de.riedquat.runner;
+
+import de.riedquat.runner.CoverageMap;
+import de.riedquat.runner.CoverageReport;
+import de.riedquat.runner.MemoryUsage;
+import de.riedquat.runner.StatusWords;
+import de.riedquat.runner.TestCase;
+import de.riedquat.runner.TestReport;
+import de.riedquat.runner.TestResult;
+import de.riedquat.runner.TestRunner;
+import de.riedquat.runner.TestSuite;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.TreeSet;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit Test for {@link TestRunner}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class TestRunnerTest {
+
+    /**
+     * The AID of the test applet.
+     */
+    private static final byte[] AID = { (byte) 0xF0, 0x4A, 0x43, 0x55, 0x01 };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRunsAllTestsAfterSelectingOnce() throws CardException {
+        final FakeCard card = new FakeCard().respond(0x11, 0x622A).respond(0x12, 0x6D00);
+        final TestSuite testSuite = new TestSuite("FooTest", "FooTest.java", AID, TestSuite.DEFAULT_CLA, Arrays.asList(new TestCase("testA", (byte) 0x10), new TestCase("testB", (byte) 0x11), new TestCase("testC", (byte) 0x12)));
+        final TestReport report = new TestRunner(card).run(testSuite);
+
+        assertEquals(4, card.getCommands().size());
+        assertEquals(0xA4, card.getCommands().get(0).getINS());
+        assertEquals(0x10, card.getCommands().get(1).getINS());
+        assertFalse(report.isPassed());
+        assertEquals(2, report.getFailures().size());
+        final TestResult failure = report.getFailures().get(0);
+        assertEquals("testB", failure.getTestCase().getName());
+        assertEquals(42, failure.getLineNumber());
+        assertTrue(failure.toString().startsWith("FooTest.testB failed in line 42 at FooTest.java:42 ("));
+        assertEquals(-1, report.getFailures().get(1).getLineNumber());
+    }
+
+    @Test
+    public void testRunsTestsInBatches() throws CardException {
+        final int testCount = 70;
+        final FakeCard card = new FakeCard() {
+            @Override
+            protected ResponseAPDU process(final CommandAPDU command) {
+                if (command.getINS() != TestRunner.INS_RUN_TESTS) {
+                    return super.process(command);
+                }
+                return command.getP1() == 0 ? response(0x9000, new byte[8]) : response(0x9000, (byte) 0x20, (byte) 0x62, (byte) 0x07);
+            }
+        };
+        final TestCase[] testCases = new TestCase[testCount];
+        for (int i = 0; i < testCount; i++) {
+            testCases[i] = new TestCase("test" + i, (byte) (0x10 + i));
+        }
+        final TestReport report = new TestRunner(card).runBatch(new TestSuite("FooTest", "FooTest.java", AID, TestSuite.DEFAULT_CLA, Arrays.asList(testCases)));
+
+        assertEquals(3, card.getCommands().size());
+        assertEquals(0, card.getCommands().get(1).getP1());
+        assertEquals(64, card.getCommands().get(1).getP2());
+        assertEquals(64, card.getCommands().get(2).getP1());
+        assertEquals(6, card.getCommands().get(2).getP2());
+        assertEquals(testCount, report.getResults().size());
+        assertEquals(1, report.getFailures().size());
+        assertEquals("test66", report.getFailures().get(0).getTestCase().getName());
+        assertEquals(7, report.getFailures().get(0).getLineNumber());
+    }
+
+    @Test
+    public void testReportsAllFailedSoftAssertions() throws CardException {
+        final FakeCard card = new FakeCard() {
+            @Override
+            protected ResponseAPDU process(final CommandAPDU command) {
+                if (command.getINS() == TestRunner.INS_GET_FAILURES) {
+                    return response(0x9000, (byte) 0x00, (byte) 0x02, (byte) 0x00, (byte) 0x0C, (byte) 0x01, (byte) 0x02);
+                }
+                assertEquals(command.getINS() == 0xA4 ? 0x04 : TestRunner.P1_SOFT_ASSERTIONS, command.getP1());
+                return command.getINS() == 0x11 ? response(0x620C) : super.process(command);
+            }
+        };
+        final TestSuite testSuite = new TestSuite("FooTest", "FooTest.java", AID, TestSuite.DEFAULT_CLA, Arrays.asList(new TestCase("testA", (byte) 0x10), new TestCase("testB", (byte) 0x11)));
+        final TestReport report = new TestRunner(card).runSoftly(testSuite);
+
+        assertEquals(4, card.getCommands().size());
+        assertTrue(report.getResults().get(0).isPassed());
+        final TestResult failure = report.getFailures().get(0);
+        assertArrayEquals(new int[] { 12, 258 }, failure.getLineNumbers());
+        assertTrue(failure.toString().startsWith("FooTest.testB failed in line 12 at FooTest.java:12, FooTest.java:258 ("));
+    }
+
+    @Test
+    public void testFailsTestsOverMemoryBudget() throws CardException {
+        final FakeCard card = new FakeCard() {
+            @Override
+            protected ResponseAPDU process(final CommandAPDU command) {
+                if (command.getINS() == 0xA4) {
+                    return super.process(command);
+                }
+                assertEquals(TestRunner.P1_MEASURE_MEMORY, command.getP1());
+                return response(0x9000, (byte) 0x90, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x01, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x20, (byte) 0x00, (byte) 0x48);
+            }
+        };
+        final TestSuite testSuite = new TestSuite("FooTest", "FooTest.java", AID, TestSuite.DEFAULT_CLA, Arrays.asList(new TestCase("testA", (byte) 0x10), new TestCase("testB", (byte) 0x11, new MemoryUsage(255, -1, 32)), new TestCase("testC", (byte) 0x12, new MemoryUsage(256, 0, 32))));
+        final TestReport report = new TestRunner(card).runMeasured(testSuite);
+
+        assertEquals(new MemoryUsage(256, 0, 32), report.getResults().get(0).getMemoryUsage());
+        assertEquals(0x48, report.getResults().get(0).getCommitBufferPeak());
+        assertTrue(report.getResults().get(0).isPassed());
+        assertEquals(1, report.getFailures().size());
+        final TestResult failure = report.getFailures().get(0);
+        assertEquals("testB", failure.getTestCase().getName());
+        assertTrue(failure.isOverBudget());
+        assertTrue(failure.toString().startsWith("FooTest.testB passed, over memory budget (persistent 255 B, reset unlimited, deselect 32 B), consumed persistent 256 B, reset 0 B, deselect 32 B, commit buffer peak 72 B ("));
+    }
+
+    @Test
+    public void testReportsCoverage() throws CardException {
+        final FakeCard card = new FakeCard() {
+            @Override
+            protected ResponseAPDU process(final CommandAPDU command) {
+                if (command.getINS() == TestRunner.INS_COVERAGE && command.getP1() == 0) {
+                    return response(0x9000, (byte) 0xA0);
+                }
+                return super.process(command);
+            }
+        };
+        final TestSuite testSuite = new TestSuite("FooTest", "FooTest.java", AID, TestSuite.DEFAULT_CLA, Arrays.<TestCase>asList());
+        final CoverageMap map = new CoverageMap(Arrays.asList("foo/Foo.java", "foo/Foo.java", "foo/Foo.java", "foo/Bar.java"), new int[] { 3, 4, 4, 7 });
+        final TestRunner runner = new TestRunner(card);
+        runner.startCoverage(testSuite, map);
+        final CoverageReport report = runner.getCoverage(testSuite, map);
+
+        assertArrayEquals(new byte[] { 0x00, 0x04 }, card.getCommands().get(1).getData());
+        assertEquals(TestRunner.P1_COVERAGE_START, card.getCommands().get(1).getP1());
+        assertEquals(3, card.getCommands().size());
+        assertEquals(new TreeSet<Integer>(Arrays.asList(3, 4)), report.getLines("foo/Foo.java", true));
+        assertEquals(new TreeSet<Integer>(Arrays.asList(7)), report.getLines("foo/Bar.java", false));
+    }
+
+    @Test(expected = CardException.class)
+    public void testFailsIfAppletCannotBeSelected() throws CardException {
+        new TestRunner(new FakeCard() {
+            @Override
+            protected ResponseAPDU process(final CommandAPDU command) {
+                return response(0x6A82);
+            }
+        }).run(new TestSuite("FooTest", "FooTest.java", AID, TestSuite.DEFAULT_CLA, Arrays.<TestCase>asList()));
+    }
+
+    @Test
+    public void testLoadsManifestWithItsOwnAid() throws IOException {
+        final File manifest = temporaryFolder.newFile("Foo=Test.jctests");
+        Files.write(manifest.toPath(), "suite FooTest\ntest 10 testA\n".getBytes("UTF-8"));
+
+        assertArrayEquals(new byte[] { (byte) 0xF0, 0x4A, 0x43, 0x55, 0x02 }, TestRunner.loadManifest("F04A435502=" + manifest, AID).getAid());
+        assertArrayEquals(AID, TestRunner.loadManifest(manifest.toString(), AID).getAid());
+        try {
+            TestRunner.loadManifest(manifest.toString(), null);
+            fail("Expected IOException");
+        } catch (final IOException e) {
+            assertEquals("No AID for manifest: " + manifest, e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDecodesStatusWords() {
+        assertEquals(0, StatusWords.getLineNumber(0x6200));
+        assertEquals(0x3FF, StatusWords.getLineNumber(0x65FF));
+        assertEquals(-1, StatusWords.getLineNumber(0x6600));
+        assertEquals(-1, StatusWords.getLineNumber(0x9000));
+        assertEquals("error 6700 (wrong length)", StatusWords.describe(0x6700));
+    }
+}
@@ -0,0 +1,285 @@
+package test.de.riedquat.runner;
+
+import de.riedquat.runner.CardTransport;
+import de.riedquat.runner.CardTransportFactory;
+import de.riedquat.runner.RecordingTransport;
+import de.riedquat.runner.ReplayReport;
+import de.riedquat.runner.TestCase;
+import de.riedquat.runner.TestRunner;
+import de.riedquat.runner.TestSuite;
+import de.riedquat.runner.TraceReader;
+import de.riedquat.runner.TraceRecord;
+import de.riedquat.runner.TraceReplayer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit Test for {@link TraceReplayer}, {@link RecordingTransport} and {@link TraceReader}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class TraceReplayerTest {
+
+    /**
+     * The test suite which is recorded.
+     */
+    private static final TestSuite TEST_SUITE = new TestSuite("FooTest", "FooTest.java", new byte[] { (byte) 0xF0, 0x4A, 0x43, 0x55, 0x01 }, TestSuite.DEFAULT_CLA, Arrays.asList(new TestCase("testA", (byte) 0x10), new TestCase("testB", (byte) 0x11)));
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRecordsAndAppends() throws IOException, CardException {
+        final Path trace = temporaryFolder.newFile().toPath();
+        final long before = System.currentTimeMillis();
+        record(trace, new FakeCard().respond(0x11, 0x622A));
+        record(trace, new FakeCard());
+        final TraceReader in = new TraceReader(trace);
+        try {
+            for (int run = 0; run < 2; run++) {
+                final TraceRecord select = in.read();
+                assertEquals(run, select.getRun());
+                assertEquals(0xA4, select.getCommand().getINS());
+                assertArrayEquals(TEST_SUITE.getAid(), select.getCommand().getData());
+                assertTrue(select.getTimeMillis() >= before);
+                assertTrue(select.getNanos() >= 0);
+                assertEquals(0x10, in.read().getCommand().getINS());
+                assertEquals(run == 0 ? 0x622A : 0x9000, in.read().getResponse().getSW());
+            }
+            assertNull(in.read());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testReplayDiffsStatusWords() throws IOException, CardException {
+        final Path trace = temporaryFolder.newFile().toPath();
+        record(trace, new FakeCard().respond(0x11, 0x622A));
+        final FakeCardFactory factory = new FakeCardFactory(0x10, 0x6700);
+        final ReplayReport report = replay(trace, factory);
+
+        assertEquals(1, factory.cards.size());
+        assertEquals(3, factory.cards.get(0).getCommands().size());
+        assertEquals(1, report.getRunCount());
+        assertEquals(3, report.getCommandCount());
+        assertEquals(2, report.getDifferences().size());
+        final ReplayReport.Difference first = report.getDifferences().get(0);
+        assertEquals(1, first.getIndex());
+        assertEquals("Run 0, command 1 (CLA 80 INS 10 P1 00 P2 00): recorded passed, replayed error 6700 (wrong length)", first.toString());
+        assertEquals("Run 0, command 2 (CLA 80 INS 11 P1 00 P2 00): recorded failed in line 42, replayed passed", report.getDifferences().get(1).toString());
+    }
+
+    @Test
+    public void testReplaysEveryRunOnNewInstance() throws IOException, CardException {
+        final Path trace = temporaryFolder.newFile().toPath();
+        record(trace, new FakeCard());
+        record(trace, new FakeCard().respond(0x11, 0x622A));
+        final FakeCardFactory factory = new FakeCardFactory(0x11, 0x622A);
+        final ReplayReport report = replay(trace, factory);
+
+        assertEquals(2, factory.cards.size());
+        for (final FakeCard card : factory.cards) {
+            assertEquals(3, card.getCommands().size());
+            assertEquals(0xA4, card.getCommands().get(0).getINS());
+            assertTrue(card.isClosed());
+        }
+        assertEquals(2, report.getRunCount());
+        assertEquals(6, report.getCommandCount());
+        assertEquals(1, report.getDifferences().size());
+        assertEquals("Run 0, command 2 (CLA 80 INS 11 P1 00 P2 00): recorded passed, replayed failed in line 42", report.getDifferences().get(0).toString());
+    }
+
+    @Test
+    public void testRecordsFailedCommand() throws IOException, CardException {
+        final Path trace = temporaryFolder.newFile().toPath();
+        final RecordingTransport transport = new RecordingTransport(new FakeCard() {
+            @Override
+            protected ResponseAPDU process(final CommandAPDU command) {
+                throw new IllegalStateException("card removed");
+            }
+        }, trace);
+        try {
+            transport.transmit(new CommandAPDU(0x80, 0x10, 0x00, 0x00));
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertEquals("card removed", e.getMessage());
+        } finally {
+            transport.close();
+        }
+        final TraceReader in = new TraceReader(trace);
+        try {
+            final TraceRecord record = in.read();
+            assertEquals(0x10, record.getCommand().getINS());
+            assertNull(record.getResponse());
+            assertEquals("java.lang.IllegalStateException: card removed", record.getFailure());
+            assertNull(in.read());
+        } finally {
+            in.close();
+        }
+
+        final ReplayReport report = replay(trace, new FakeCardFactory(0x10, 0x9000));
+        assertEquals("Run 0, command 0 (CLA 80 INS 10 P1 00 P2 00): recorded exception java.lang.IllegalStateException: card removed, replayed passed", report.getDifferences().get(0).toString());
+    }
+
+    @Test
+    public void testIgnoresTruncatedEntry() throws IOException, CardException {
+        final Path trace = temporaryFolder.newFile().toPath();
+        record(trace, new FakeCard());
+        final byte[] bytes = Files.readAllBytes(trace);
+        Files.write(trace, Arrays.copyOf(bytes, bytes.length - 3));
+        final TraceReader in = new TraceReader(trace);
+        try {
+            assertEquals(0xA4, in.read().getCommand().getINS());
+            assertEquals(0x10, in.read().getCommand().getINS());
+            final TraceRecord crashed = in.read();
+            assertEquals(0x11, crashed.getCommand().getINS());
+            assertNull(crashed.getResponse());
+            assertNull(crashed.getFailure());
+            assertNull(in.read());
+        } finally {
+            in.close();
+        }
+        assertEquals("Run 0, command 2 (CLA 80 INS 11 P1 00 P2 00): recorded no response, replayed passed", replay(trace, new FakeCardFactory(0x11, 0x9000)).getDifferences().get(0).toString());
+    }
+
+    @Test
+    public void testAppendsBehindLastCompleteEntry() throws IOException, CardException {
+        final Path trace = temporaryFolder.newFile().toPath();
+        record(trace, new FakeCard());
+        final byte[] bytes = Files.readAllBytes(trace);
+        Files.write(trace, Arrays.copyOf(bytes, bytes.length - 3));
+        record(trace, new FakeCard());
+        final TraceReader in = new TraceReader(trace);
+        try {
+            assertEquals(0xA4, in.read().getCommand().getINS());
+            assertEquals(0x10, in.read().getCommand().getINS());
+            final TraceRecord crashed = in.read();
+            assertEquals(0x11, crashed.getCommand().getINS());
+            assertNull(crashed.getResponse());
+            for (final int ins : new int[] { 0xA4, 0x10, 0x11 }) {
+                final TraceRecord record = in.read();
+                assertEquals(1, record.getRun());
+                assertEquals(ins, record.getCommand().getINS());
+                assertEquals(0x9000, record.getResponse().getSW());
+            }
+            assertNull(in.read());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testRefusesToAppendToOtherFile() throws IOException, CardException {
+        final Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, "not a trace".getBytes("UTF-8"));
+        try {
+            new RecordingTransport(new FakeCard(), file);
+            fail("Expected IOException");
+        } catch (final IOException e) {
+            assertEquals("Not a trace file.", e.getMessage());
+        }
+    }
+
+    /**
+     * Replays a trace.
+     *
+     * @param trace
+     *         Trace file to replay.
+     * @param factory
+     *         Factory for the cards to which to replay.
+     * @return The report.
+     * @throws IOException
+     *         In case of I/O problems.
+     * @throws CardException
+     *         In case of communication problems.
+     */
+    private static ReplayReport replay(final Path trace, final CardTransportFactory factory) throws IOException, CardException {
+        final TraceReader in = new TraceReader(trace);
+        try {
+            return new TraceReplayer(factory).replay(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Runs {@link #TEST_SUITE} on a card and records the trace.
+     *
+     * @param trace
+     *         Trace file to which to append.
+     * @param card
+     *         Card on which to run the tests.
+     * @throws IOException
+     *         In case of I/O problems.
+     * @throws CardException
+     *         In case of communication problems.
+     */
+    private static void record(final Path trace, final FakeCard card) throws IOException, CardException {
+        final RecordingTransport transport = new RecordingTransport(card, trace);
+        try {
+            new TestRunner(transport).run(TEST_SUITE);
+        } finally {
+            transport.close();
+        }
+        assertTrue(card.isClosed());
+    }
+
+    /**
+     * CardTransportFactory which creates FakeCards responding to one INS with one status word.
+     */
+    private static class FakeCardFactory implements CardTransportFactory {
+
+        /**
+         * The created cards.
+         */
+        private final List<FakeCard> cards = new ArrayList<FakeCard>();
+
+        /**
+         * The INS of the command to which the cards respond with {@link #sw}.
+         */
+        private final int ins;
+
+        /**
+         * The status word with which the cards respond to {@link #ins}.
+         */
+        private final int sw;
+
+        /**
+         * Creates a FakeCardFactory.
+         *
+         * @param ins
+         *         INS of the command to which the cards respond with sw.
+         * @param sw
+         *         Status word with which the cards respond to ins.
+         */
+        FakeCardFactory(final int ins, final int sw) {
+            this.ins = ins;
+            this.sw = sw;
+        }
+
+        @Override
+        public CardTransport createTransport() {
+            final FakeCard card = new FakeCard().respond(ins, sw);
+            cards.add(card);
+            return card;
+        }
+    }
+}
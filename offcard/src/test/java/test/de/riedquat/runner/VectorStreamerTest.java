@@ -0,0 +1,100 @@
+package test.de.riedquat.runner;
+
+import de.riedquat.ReaderReadLine;
+import de.riedquat.runner.VectorReport;
+import de.riedquat.runner.VectorStreamer;
+import java.io.IOException;
+import java.io.StringReader;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Test for {@link VectorStreamer}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class VectorStreamerTest {
+
+    /**
+     * The AID of the known-answer applet.
+     */
+    private static final byte[] AID = { (byte) 0xF0, 0x4A, 0x43, 0x55, 0x02 };
+
+    @Test
+    public void testPacksAndChainsVectors() throws IOException, CardException {
+        final VectorCard card = new VectorCard();
+        final VectorReport report = new VectorStreamer(card, 10).stream(AID, 3, "vectors.txt", new ReaderReadLine(new StringReader("# input expected\n0101\n\n0202\n0303\n0304\n0505\n")));
+
+        assertEquals(4, card.getCommands().size());
+        assertEquals(0x90, card.getCommands().get(1).getCLA());
+        assertEquals(3, card.getCommands().get(1).getP1());
+        assertEquals(8, card.getCommands().get(1).getNc());
+        assertEquals(0x90, card.getCommands().get(2).getCLA());
+        assertEquals(0x80, card.getCommands().get(3).getCLA());
+        assertEquals(5, report.getVectorCount());
+        assertFalse(report.isPassed());
+        assertEquals(3, report.getFirstFailure());
+        assertEquals(6, report.getFirstFailureLineNumber());
+        assertTrue(report.toString().startsWith("vectors.txt: 5 vectors failed at vector 3 at vectors.txt:6 ("));
+    }
+
+    @Test
+    public void testPassesIfAllVectorsPass() throws IOException, CardException {
+        final VectorCard card = new VectorCard();
+        final VectorReport report = new VectorStreamer(card).stream(AID, 0, "vectors.txt", new ReaderReadLine(new StringReader("0101\n0202\n")));
+
+        assertEquals(2, card.getCommands().size());
+        assertEquals(2, report.getVectorCount());
+        assertTrue(report.isPassed());
+        assertEquals(-1, report.getFirstFailureLineNumber());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsVectorsWhichDoNotFit() throws IOException, CardException {
+        new VectorStreamer(new VectorCard(), 4).stream(AID, 0, "vectors.txt", new ReaderReadLine(new StringReader("010203\n")));
+    }
+
+    /**
+     * Card which behaves like a known-answer applet whose vectors pass if their two bytes are equal.
+     */
+    private static class VectorCard extends FakeCard {
+
+        /**
+         * The number of vectors of the current chain.
+         */
+        private int count;
+
+        /**
+         * The index of the first failed vector of the current chain, {@code 0xFFFF} if none.
+         */
+        private int firstFailure = 0xFFFF;
+
+        @Override
+        protected ResponseAPDU process(final CommandAPDU command) {
+            if (command.getINS() != VectorStreamer.INS_VERIFY_VECTORS) {
+                return super.process(command);
+            }
+            final byte[] data = command.getData();
+            for (int offset = 0; offset < data.length; offset += 2 + data[offset + 1]) {
+                if (data[offset + 2] != data[offset + 3] && firstFailure == 0xFFFF) {
+                    firstFailure = count;
+                }
+                count++;
+            }
+            if ((command.getCLA() & VectorStreamer.CLA_COMMAND_CHAINING) != 0) {
+                return response(0x9000);
+            }
+            final ResponseAPDU response = response(0x9000, (byte) (count >> 8), (byte) count, (byte) (firstFailure >> 8), (byte) firstFailure);
+            count = 0;
+            firstFailure = 0xFFFF;
+            return response;
+        }
+    }
+}
@@ -1,11 +1,22 @@
 package org.jcunit;
 
 import javacard.framework.ISOException;
+import javacard.framework.JCSystem;
+import javacard.framework.Util;
 
 import static javacard.framework.ISO7816.*;
 
 /**
  * Provides assertion facilities for Java Card.
+ * <p>
+ * By default, a failed assertion ends the test by throwing an {@link ISOException}.
+ * In soft assertion mode, a failed assertion only records its line number and the test continues,
+ * so that one run of a test reports all failed assertions.
+ * The line numbers are recorded in transient arrays which the test applet allocates once and registers with {@link #useSoftAssertions(short[], boolean[])},
+ * so recording them neither allocates memory nor writes to EEPROM.
+ * {@link TestApplet} registers its arrays whenever it is selected.
+ * Because the firewall keeps other contexts from these arrays, assertions failing in another context,
+ * like a server reached through a {@code Shareable} or an applet which uses Assert without TestApplet, always fail fast.
  *
  * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
  * @version 1.0
@@ -20,6 +31,18 @@ public class Assert {
      */
     private static final short LINE_NUMBER_MASK = 0x3FF;
 
+    /**
+     * The number of failed soft assertions at index 0, followed by their line numbers.
+     * The number of failed soft assertions can exceed the number of line numbers which fit.
+     */
+    private static short[] failures;
+
+    /**
+     * Whether soft assertion mode is on, at index 0.
+     * Transient, so switching the mode does not write to EEPROM.
+     */
+    private static boolean[] softAssertions;
+
     /**
      * Utility class - do not instantiate.
      */
@@ -28,14 +51,118 @@ public class Assert {
 
     /**
      * Makes the test fail.
+     * In soft assertion mode, the line number is recorded instead.
      *
      * @param lineNumber
      *         Line number in which the test failed.
      */
     public static void fail(final short lineNumber) {
+        if (isSoft()) {
+            final short count = failures[0];
+            if (count < (short) (failures.length - 1)) {
+                failures[(short) (count + 1)] = (short) (lineNumber & LINE_NUMBER_MASK);
+            }
+            if (count != Short.MAX_VALUE) {
+                failures[0] = (short) (count + 1);
+            }
+            return;
+        }
         // Do not throw a new exception class like AssertionException because it consumes memory and causes wear.
-        // Status word will be in the range 0x6200 to 0x65FF.
-        ISOException.throwIt((short) (SW_WARNING_STATE_UNCHANGED + (short) (lineNumber & LINE_NUMBER_MASK)));
+        ISOException.throwIt(getStatusWord(lineNumber));
+    }
+
+    /**
+     * Returns the status word which reports a failure in a line.
+     *
+     * @param lineNumber
+     *         Line number in which the test failed.
+     * @return Status word in the range 0x6200 to 0x65FF.
+     */
+    public static short getStatusWord(final short lineNumber) {
+        return (short) (SW_WARNING_STATE_UNCHANGED + (short) (lineNumber & LINE_NUMBER_MASK));
+    }
+
+    /**
+     * Registers the transient arrays for soft assertions of the current applet.
+     * This should be called when the applet is installed or selected.
+     * The static references are only written if other arrays were registered before, so reselecting the same applet does not write to EEPROM.
+     *
+     * @param failures
+     *         Array for the number of failed soft assertions followed by their line numbers, usually transient {@link JCSystem#CLEAR_ON_DESELECT}.
+     * @param soft
+     *         Array of length 1 for the soft assertion mode, usually transient {@link JCSystem#CLEAR_ON_DESELECT}.
+     */
+    public static void useSoftAssertions(final short[] failures, final boolean[] soft) {
+        if (Assert.failures != failures) {
+            Assert.failures = failures;
+        }
+        if (softAssertions != soft) {
+            softAssertions = soft;
+        }
+    }
+
+    /**
+     * Returns whether soft assertion mode is on for the current context.
+     *
+     * @return {@code true} if soft assertion mode is on and its arrays belong to the current context, otherwise {@code false}.
+     */
+    private static boolean isSoft() {
+        try {
+            return softAssertions != null && softAssertions[0];
+        } catch (final SecurityException ignore) {
+            // The arrays belong to a test applet in another context.
+            return false;
+        }
+    }
+
+    /**
+     * Switches soft assertion mode on or off.
+     * Switching it on discards the recorded line numbers.
+     *
+     * @param soft
+     *         {@code true} to switch soft assertion mode on, {@code false} to switch it off.
+     * @throws NullPointerException
+     *         If {@link #useSoftAssertions(short[], boolean[])} was not called.
+     */
+    public static void setSoftAssertions(final boolean soft) {
+        if (soft) {
+            failures[0] = 0;
+        }
+        softAssertions[0] = soft;
+    }
+
+    /**
+     * Returns the number of failed soft assertions.
+     * This can exceed the number of recorded line numbers.
+     *
+     * @return The number of failed soft assertions.
+     */
+    public static short getFailureCount() {
+        return failures != null ? failures[0] : 0;
+    }
+
+    /**
+     * Returns the number of line numbers recorded for failed soft assertions.
+     *
+     * @return The number of recorded line numbers.
+     */
+    public static short getRecordedFailureCount() {
+        if (failures == null) {
+            return 0;
+        }
+        final short capacity = (short) (failures.length - 1);
+        return failures[0] < capacity ? failures[0] : capacity;
+    }
+
+    /**
+     * Returns the line number of a failed soft assertion.
+     *
+     * @param index
+     *         Index of the failed soft assertion, less than {@link #getRecordedFailureCount()}.
+     * @return The line number of that failed soft assertion.
+     */
+    public static short getFailure(final short index) {
+        return failures[(short) (index + 1)];
     }
 
     /**
@@ -164,6 +291,7 @@ public class Assert {
 
     /**
      * Asserts that two byte arrays are equal.
+     * The arrays are compared natively with {@link Util#arrayCompare(byte[], short, byte[], short, short)}.
      *
      * @param lineNumber
      *         Current line number of the caller.
@@ -173,9 +301,77 @@ public class Assert {
      *         byte array with actual values.
      */
     public static void assertArrayEquals(final short lineNumber, final byte[] expecteds, final byte[] actuals) {
-        assertEquals(lineNumber, expecteds.length, actuals.length);
-        for (short index = 0; index < expecteds.length; index++) {
-            assertEquals(lineNumber, expecteds[index], actuals[index]);
+        if (expecteds.length != actuals.length) {
+            fail(lineNumber);
+            return;
+        }
+        assertArrayEquals(lineNumber, expecteds, (short) 0, actuals, (short) 0, (short) expecteds.length);
+    }
+
+    /**
+     * Asserts that two ranges of byte arrays are equal.
+     * This compares APDU buffers and transient arrays in place, without copying them.
+     * The ranges are compared natively with {@link Util#arrayCompare(byte[], short, byte[], short, short)}.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param expecteds
+     *         byte array with expected values.
+     * @param expectedsOffset
+     *         Offset of the expected values in expecteds.
+     * @param actuals
+     *         byte array with actual values.
+     * @param actualsOffset
+     *         Offset of the actual values in actuals.
+     * @param length
+     *         Number of bytes to compare.
+     * @throws ArrayIndexOutOfBoundsException
+     *         If a range exceeds its array.
+     */
+    public static void assertArrayEquals(final short lineNumber, final byte[] expecteds, final short expectedsOffset, final byte[] actuals, final short actualsOffset, final short length) {
+        if (Util.arrayCompare(expecteds, expectedsOffset, actuals, actualsOffset, length) != 0) {
+            fail(lineNumber);
+        }
+    }
+
+    /**
+     * Asserts that all bytes of an array have the same value, for example that an array was cleared.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param expected
+     *         Expected value of all bytes.
+     * @param actuals
+     *         byte array with actual values.
+     */
+    public static void assertArrayFilled(final short lineNumber, final byte expected, final byte[] actuals) {
+        assertArrayFilled(lineNumber, expected, actuals, (short) 0, (short) actuals.length);
+    }
+
+    /**
+     * Asserts that all bytes of a range of an array have the same value, for example that an array was cleared.
+     * Instead of a loop, the first byte is checked and the range is compared natively with itself shifted by one byte,
+     * which needs no reference array of the expected values.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param expected
+     *         Expected value of all bytes.
+     * @param actuals
+     *         byte array with actual values.
+     * @param offset
+     *         Offset of the range in actuals.
+     * @param length
+     *         Number of bytes to check.
+     * @throws ArrayIndexOutOfBoundsException
+     *         If the range exceeds actuals.
+     */
+    public static void assertArrayFilled(final short lineNumber, final byte expected, final byte[] actuals, final short offset, final short length) {
+        if (length <= 0) {
+            return;
+        }
+        if (actuals[offset] != expected || Util.arrayCompare(actuals, offset, actuals, (short) (offset + 1), (short) (length - 1)) != 0) {
+            fail(lineNumber);
         }
     }
 
@@ -190,9 +386,15 @@ public class Assert {
      *         short array with actual values.
      */
     public static void assertArrayEquals(final short lineNumber, final short[] expecteds, final short[] actuals) {
-        assertEquals(lineNumber, expecteds.length, actuals.length);
+        if (expecteds.length != actuals.length) {
+            fail(lineNumber);
+            return;
+        }
         for (short index = 0; index < expecteds.length; index++) {
-            assertEquals(lineNumber, expecteds[index], actuals[index]);
+            if (expecteds[index] != actuals[index]) {
+                fail(lineNumber);
+                return;
+            }
         }
     }
 
@@ -207,9 +409,15 @@ public class Assert {
      *         Object array with actual values.
      */
     public static void assertArrayEquals(final short lineNumber, final Object[] expecteds, final Object[] actuals) {
-        assertEquals(lineNumber, expecteds.length, actuals.length);
+        if (expecteds.length != actuals.length) {
+            fail(lineNumber);
+            return;
+        }
         for (short index = 0; index < expecteds.length; index++) {
-            assertEquals(lineNumber, expecteds[index], actuals[index]);
+            if (expecteds[index] == null ? actuals[index] != null : !expecteds[index].equals(actuals[index])) {
+                fail(lineNumber);
+                return;
+            }
         }
     }
 }
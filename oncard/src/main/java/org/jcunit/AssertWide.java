@@ -0,0 +1,268 @@
+package org.jcunit;
+
+import javacard.framework.Util;
+
+import static org.jcunit.Assert.fail;
+
+/**
+ * Provides assertion facilities for numbers wider than short, without using the optional int type.
+ * 32 bit numbers are given as pairs of a high and a low short.
+ * Numbers of arbitrary width are given as unsigned big-endian byte arrays, leading zero bytes do not matter.
+ * Unlike {@link org.jcunit.intx.AssertInt}, these assertions work on cards without int support,
+ * and on cards with a 16 bit VM they do not emulate int arithmetic.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+@SuppressWarnings({"UnusedDeclaration", "MethodWithTooManyParameters"})
+public class AssertWide {
+
+    /**
+     * Mask which flips the sign bit of a short, for comparing shorts as unsigned numbers.
+     */
+    private static final short SIGN_BIT = (short) 0x8000;
+
+    /**
+     * Utility class - do not instantiate.
+     */
+    private AssertWide() {
+    }
+
+    /**
+     * Compares two shorts as unsigned numbers.
+     *
+     * @param a
+     *         First number.
+     * @param b
+     *         Second number.
+     * @return {@code -1} if a is less than b, {@code 0} if they are equal, {@code 1} if a is greater than b.
+     */
+    public static byte compareUnsigned(final short a, final short b) {
+        if (a == b) {
+            return 0;
+        }
+        return (short) (a ^ SIGN_BIT) < (short) (b ^ SIGN_BIT) ? (byte) -1 : (byte) 1;
+    }
+
+    /**
+     * Compares two signed 32 bit numbers.
+     *
+     * @param aHi
+     *         High short of the first number.
+     * @param aLo
+     *         Low short of the first number.
+     * @param bHi
+     *         High short of the second number.
+     * @param bLo
+     *         Low short of the second number.
+     * @return {@code -1} if a is less than b, {@code 0} if they are equal, {@code 1} if a is greater than b.
+     */
+    public static byte compare32(final short aHi, final short aLo, final short bHi, final short bLo) {
+        if (aHi != bHi) {
+            return aHi < bHi ? (byte) -1 : (byte) 1;
+        }
+        return compareUnsigned(aLo, bLo);
+    }
+
+    /**
+     * Compares two unsigned 32 bit numbers.
+     *
+     * @param aHi
+     *         High short of the first number.
+     * @param aLo
+     *         Low short of the first number.
+     * @param bHi
+     *         High short of the second number.
+     * @param bLo
+     *         Low short of the second number.
+     * @return {@code -1} if a is less than b, {@code 0} if they are equal, {@code 1} if a is greater than b.
+     */
+    public static byte compareUnsigned32(final short aHi, final short aLo, final short bHi, final short bLo) {
+        final byte result = compareUnsigned(aHi, bHi);
+        return result != 0 ? result : compareUnsigned(aLo, bLo);
+    }
+
+    /**
+     * Compares two unsigned big-endian numbers of arbitrary width.
+     * Leading zero bytes are ignored, so numbers of different lengths can be compared.
+     * Ranges of equal length are compared natively with {@link Util#arrayCompare(byte[], short, byte[], short, short)}.
+     *
+     * @param a
+     *         byte array with the first number.
+     * @param aOffset
+     *         Offset of the first number in a.
+     * @param aLength
+     *         Length of the first number.
+     * @param b
+     *         byte array with the second number.
+     * @param bOffset
+     *         Offset of the second number in b.
+     * @param bLength
+     *         Length of the second number.
+     * @return {@code -1} if a is less than b, {@code 0} if they are equal, {@code 1} if a is greater than b.
+     */
+    public static byte compareUnsigned(final byte[] a, final short aOffset, final short aLength, final byte[] b, final short bOffset, final short bLength) {
+        short aIndex = aOffset;
+        short bIndex = bOffset;
+        short length = aLength;
+        for (; length > bLength; length--) {
+            if (a[aIndex++] != 0) {
+                return 1;
+            }
+        }
+        for (short bRest = bLength; bRest > length; bRest--) {
+            if (b[bIndex++] != 0) {
+                return -1;
+            }
+        }
+        if (Util.arrayCompare(a, aIndex, b, bIndex, length) == 0) {
+            return 0;
+        }
+        while (a[aIndex] == b[bIndex]) {
+            aIndex++;
+            bIndex++;
+        }
+        return (short) (a[aIndex] & 0xFF) < (short) (b[bIndex] & 0xFF) ? (byte) -1 : (byte) 1;
+    }
+
+    /**
+     * Asserts that two 32 bit numbers are equal.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param expectedHi
+     *         High short of the expected value.
+     * @param expectedLo
+     *         Low short of the expected value.
+     * @param actualHi
+     *         High short of the actual value.
+     * @param actualLo
+     *         Low short of the actual value.
+     */
+    public static void assertEquals32(final short lineNumber, final short expectedHi, final short expectedLo, final short actualHi, final short actualLo) {
+        if (expectedHi != actualHi || expectedLo != actualLo) {
+            fail(lineNumber);
+        }
+    }
+
+    /**
+     * Asserts that a signed 32 bit number is less than a limit.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param actualHi
+     *         High short of the actual value.
+     * @param actualLo
+     *         Low short of the actual value.
+     * @param limitHi
+     *         High short of the limit.
+     * @param limitLo
+     *         Low short of the limit.
+     */
+    public static void assertLessThan32(final short lineNumber, final short actualHi, final short actualLo, final short limitHi, final short limitLo) {
+        if (compare32(actualHi, actualLo, limitHi, limitLo) >= 0) {
+            fail(lineNumber);
+        }
+    }
+
+    /**
+     * Asserts that an unsigned 32 bit number is less than a limit.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param actualHi
+     *         High short of the actual value.
+     * @param actualLo
+     *         Low short of the actual value.
+     * @param limitHi
+     *         High short of the limit.
+     * @param limitLo
+     *         Low short of the limit.
+     */
+    public static void assertLessThanUnsigned32(final short lineNumber, final short actualHi, final short actualLo, final short limitHi, final short limitLo) {
+        if (compareUnsigned32(actualHi, actualLo, limitHi, limitLo) >= 0) {
+            fail(lineNumber);
+        }
+    }
+
+    /**
+     * Asserts that two unsigned big-endian numbers are equal.
+     * Leading zero bytes are ignored.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param expected
+     *         byte array with the expected value.
+     * @param actual
+     *         byte array with the actual value.
+     */
+    public static void assertEqualsUnsigned(final short lineNumber, final byte[] expected, final byte[] actual) {
+        assertEqualsUnsigned(lineNumber, expected, (short) 0, (short) expected.length, actual, (short) 0, (short) actual.length);
+    }
+
+    /**
+     * Asserts that two unsigned big-endian numbers are equal.
+     * Leading zero bytes are ignored.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param expected
+     *         byte array with the expected value.
+     * @param expectedOffset
+     *         Offset of the expected value in expected.
+     * @param expectedLength
+     *         Length of the expected value.
+     * @param actual
+     *         byte array with the actual value.
+     * @param actualOffset
+     *         Offset of the actual value in actual.
+     * @param actualLength
+     *         Length of the actual value.
+     */
+    public static void assertEqualsUnsigned(final short lineNumber, final byte[] expected, final short expectedOffset, final short expectedLength, final byte[] actual, final short actualOffset, final short actualLength) {
+        if (compareUnsigned(expected, expectedOffset, expectedLength, actual, actualOffset, actualLength) != 0) {
+            fail(lineNumber);
+        }
+    }
+
+    /**
+     * Asserts that an unsigned big-endian number is less than a limit.
+     * Leading zero bytes are ignored.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param actual
+     *         byte array with the actual value.
+     * @param limit
+     *         byte array with the limit.
+     */
+    public static void assertLessThanUnsigned(final short lineNumber, final byte[] actual, final byte[] limit) {
+        assertLessThanUnsigned(lineNumber, actual, (short) 0, (short) actual.length, limit, (short) 0, (short) limit.length);
+    }
+
+    /**
+     * Asserts that an unsigned big-endian number is less than a limit.
+     * Leading zero bytes are ignored.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param actual
+     *         byte array with the actual value.
+     * @param actualOffset
+     *         Offset of the actual value in actual.
+     * @param actualLength
+     *         Length of the actual value.
+     * @param limit
+     *         byte array with the limit.
+     * @param limitOffset
+     *         Offset of the limit in limit.
+     * @param limitLength
+     *         Length of the limit.
+     */
+    public static void assertLessThanUnsigned(final short lineNumber, final byte[] actual, final short actualOffset, final short actualLength, final byte[] limit, final short limitOffset, final short limitLength) {
+        if (compareUnsigned(actual, actualOffset, actualLength, limit, limitOffset, limitLength) >= 0) {
+            fail(lineNumber);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.jcunit;
+
+import javacard.framework.APDU;
+import javacard.framework.Applet;
+import javacard.framework.ISO7816;
+import javacard.framework.ISOException;
+import javacard.framework.Util;
+
+/**
+ * Base class for applets which measure how fast operations are.
+ * An operation is the code to measure, like an array copy or a crypto call, identified by an index.
+ * <p>
+ * The {@link #INS_RUN_BENCHMARK} command runs operation P1 as often as the command data says, an unsigned short.
+ * With P2 = {@link #P2_BASELINE}, the same loop calls {@link #runEmpty(byte)} instead,
+ * so that the time of the loop, the call and the command itself can be subtracted.
+ * The card only runs the loops, timing, warm-up and statistics are done off-card, by {@code de.riedquat.runner.BenchmarkRunner}.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+@SuppressWarnings("UnusedDeclaration")
+public abstract class BenchmarkApplet extends Applet {
+
+    /**
+     * Instruction byte for running an operation repeatedly.
+     */
+    public static final byte INS_RUN_BENCHMARK = 0x03;
+
+    /**
+     * P2 for running the empty loop instead of the operation.
+     */
+    public static final byte P2_BASELINE = 0x01;
+
+    /**
+     * Returns the number of operations.
+     *
+     * @return The number of operations.
+     */
+    protected abstract byte getOperationCount();
+
+    /**
+     * Runs an operation once.
+     *
+     * @param index
+     *         Index of the operation to run.
+     */
+    protected abstract void runOperation(byte index);
+
+    /**
+     * Does nothing, for measuring the baseline.
+     * This is called in the same way as {@link #runOperation(byte)}, and it is final so that subclasses cannot change the baseline.
+     *
+     * @param index
+     *         Index of the operation of which to measure the baseline.
+     */
+    protected final void runEmpty(final byte index) {
+    }
+
+    @Override
+    public void process(final APDU apdu) throws ISOException {
+        if (selectingApplet()) {
+            return;
+        }
+        final byte[] buffer = apdu.getBuffer();
+        if (buffer[ISO7816.OFFSET_INS] != INS_RUN_BENCHMARK) {
+            ISOException.throwIt(ISO7816.SW_INS_NOT_SUPPORTED);
+        }
+        final byte index = buffer[ISO7816.OFFSET_P1];
+        if (index < 0 || index >= getOperationCount()) {
+            ISOException.throwIt(ISO7816.SW_WRONG_P1P2);
+        }
+        if (apdu.setIncomingAndReceive() != 2) {
+            ISOException.throwIt(ISO7816.SW_WRONG_LENGTH);
+        }
+        final short iterations = Util.getShort(buffer, ISO7816.OFFSET_CDATA);
+        // Count down to 0 so that up to 65535 iterations can be given in an unsigned short.
+        if (buffer[ISO7816.OFFSET_P2] == P2_BASELINE) {
+            for (short i = iterations; i != 0; i--) {
+                runEmpty(index);
+            }
+        } else {
+            for (short i = iterations; i != 0; i--) {
+                runOperation(index);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.jcunit;
+
+import javacard.framework.JCSystem;
+
+import static org.jcunit.Assert.fail;
+
+/**
+ * Provides measurement and assertion facilities for the commit buffer of transactions.
+ * A test marks the unused commit capacity right after {@link JCSystem#beginTransaction()},
+ * then samples or asserts how much of the commit buffer the code under test has used since, before the transaction is committed:
+ * <pre>
+ * JCSystem.beginTransaction();
+ * CommitBuffer.mark();
+ * account.debit(amount);
+ * CommitBuffer.assertUsedAtMost(__LINE__, (short) 64);
+ * JCSystem.commitTransaction();
+ * </pre>
+ * The largest amount sampled is kept as peak, which {@link TestApplet} reports per test.
+ * The state is kept in a transient array of {@link #STATE_LENGTH} shorts which the test applet allocates once and registers with {@link #use(short[])},
+ * because writing the mark or the peak to EEPROM inside the transaction would itself use the commit buffer and distort the measurement.
+ * {@link TestApplet} registers its array whenever it is selected, so the measurements are made in the context of the selected test applet.
+ * <p>
+ * Cards report at most {@link Short#MAX_VALUE} bytes of unused commit capacity,
+ * so on cards with a larger commit buffer the amounts are only exact once less than that is unused.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+@SuppressWarnings("UnusedDeclaration")
+public class CommitBuffer {
+
+    /**
+     * Index of the unused commit capacity at the last {@link #mark()}.
+     */
+    private static final short MARK = 0;
+
+    /**
+     * Index of the largest amount of the commit buffer used since the last {@link #resetPeak()}.
+     */
+    private static final short PEAK = 1;
+
+    /**
+     * The number of shorts of the state array, see {@link #use(short[])}.
+     */
+    public static final short STATE_LENGTH = 2;
+
+    /**
+     * The unused commit capacity at the last mark and the peak, see {@link #MARK} and {@link #PEAK}.
+     */
+    private static short[] state;
+
+    /**
+     * Utility class - do not instantiate.
+     */
+    private CommitBuffer() {
+    }
+
+    /**
+     * Registers the transient array in which the current applet keeps the measurements.
+     * Must be called before the other methods, by the applet which uses them, usually when it is installed or selected.
+     * The static reference is only written if another array was registered before, so reselecting the same applet does not write to EEPROM.
+     *
+     * @param state
+     *         Array of {@link #STATE_LENGTH} shorts, usually transient {@link JCSystem#CLEAR_ON_DESELECT}.
+     */
+    public static void use(final short[] state) {
+        if (CommitBuffer.state != state) {
+            CommitBuffer.state = state;
+        }
+    }
+
+    /**
+     * Marks the current unused commit capacity as the point from which the used commit buffer is measured.
+     * Call this right after {@link JCSystem#beginTransaction()}.
+     */
+    public static void mark() {
+        state[MARK] = JCSystem.getUnusedCommitCapacity();
+    }
+
+    /**
+     * Returns how much of the commit buffer was used since the last {@link #mark()} and updates the peak.
+     *
+     * @return The number of bytes of the commit buffer used since the last mark.
+     */
+    public static short sample() {
+        final short used = (short) (state[MARK] - JCSystem.getUnusedCommitCapacity());
+        if (used > state[PEAK]) {
+            state[PEAK] = used;
+        }
+        return used;
+    }
+
+    /**
+     * Returns the largest amount of the commit buffer sampled since the last {@link #resetPeak()}.
+     *
+     * @return The largest number of bytes of the commit buffer sampled.
+     */
+    public static short getPeak() {
+        return state[PEAK];
+    }
+
+    /**
+     * Resets the peak, for example before a test.
+     */
+    public static void resetPeak() {
+        state[PEAK] = 0;
+    }
+
+    /**
+     * Asserts that at most the given amount of the commit buffer was used since the last {@link #mark()}.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param maxBytes
+     *         Maximum number of bytes of the commit buffer which may have been used.
+     */
+    public static void assertUsedAtMost(final short lineNumber, final short maxBytes) {
+        if (sample() > maxBytes) {
+            fail(lineNumber);
+        }
+    }
+
+    /**
+     * Asserts that the commit buffer of the card can hold at least the given amount, so that a transaction of that size can succeed at all.
+     *
+     * @param lineNumber
+     *         Current line number of the caller.
+     * @param bytes
+     *         Number of bytes which the commit buffer must be able to hold.
+     */
+    public static void assertCapacityAtLeast(final short lineNumber, final short bytes) {
+        if (JCSystem.getMaxCommitCapacity() < bytes) {
+            fail(lineNumber);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.jcunit;
+
+import javacard.framework.JCSystem;
+import javacard.framework.Util;
+
+/**
+ * Records which lines of code were executed, one bit per probe.
+ * Probes are calls of {@link #hit(short)} which {@code de.riedquat.LineNumberProcessor} inserts before the first statement of every line
+ * when it is run with {@code -Ajcunit.coverage}.
+ * It numbers the probes and writes which probe belongs to which source line to a probe map, which is needed for the report.
+ * <p>
+ * The bitmap is a transient array which the test applet allocates and registers with {@link #start(byte[])}, so a probe neither allocates memory nor writes to EEPROM.
+ * It is cleared on reset, not on deselect, so that the coverage of several test runs of the same applet accumulates.
+ * Clear on reset memory stays reserved until the card is reset, so {@link TestApplet} allocates its bitmap only once and reuses it for later runs.
+ * Until a bitmap is registered, and in contexts which cannot access it, probes do nothing.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+@SuppressWarnings("UnusedDeclaration")
+public class Coverage {
+
+    /**
+     * The bitmap, bit 7 of byte 0 for probe 0, or {@code null} if coverage was not initialized.
+     */
+    private static byte[] bitmap;
+
+    /**
+     * Utility class - do not instantiate.
+     */
+    private Coverage() {
+    }
+
+    /**
+     * Clears a bitmap and registers it, so that the probes record into it.
+     *
+     * @param bitmap
+     *         Bitmap with at least one bit per probe, usually transient {@link JCSystem#CLEAR_ON_RESET}.
+     */
+    public static void start(final byte[] bitmap) {
+        Util.arrayFillNonAtomic(bitmap, (short) 0, (short) bitmap.length, (byte) 0);
+        use(bitmap);
+    }
+
+    /**
+     * Registers a bitmap without clearing it, for example when the applet which owns it is selected again.
+     * The static reference is only written if another bitmap was registered before.
+     *
+     * @param bitmap
+     *         Bitmap with at least one bit per probe.
+     */
+    public static void use(final byte[] bitmap) {
+        if (Coverage.bitmap != bitmap) {
+            Coverage.bitmap = bitmap;
+        }
+    }
+
+    /**
+     * Records that a probe was executed.
+     *
+     * @param probe
+     *         Number of the probe.
+     */
+    public static void hit(final short probe) {
+        final byte[] bits = bitmap;
+        if (bits == null) {
+            return;
+        }
+        final short index = (short) (probe >> 3);
+        try {
+            if (index < bits.length) {
+                bits[index] |= (byte) (0x80 >> (probe & 7));
+            }
+        } catch (final SecurityException ignore) {
+            // Code under test running in the context of another applet is not recorded.
+        }
+    }
+
+    /**
+     * Returns the length of the bitmap.
+     *
+     * @return The length of the bitmap in bytes, {@code 0} if coverage was not initialized.
+     */
+    public static short getLength() {
+        return bitmap != null ? (short) bitmap.length : 0;
+    }
+
+    /**
+     * Copies a part of the bitmap.
+     *
+     * @param offset
+     *         Offset in the bitmap from which to copy.
+     * @param buffer
+     *         Buffer to which to copy.
+     * @param bufferOffset
+     *         Offset in buffer to which to copy.
+     * @param length
+     *         Maximum number of bytes to copy.
+     * @return The number of bytes copied, less than length at the end of the bitmap.
+     */
+    public static short copy(final short offset, final byte[] buffer, final short bufferOffset, final short length) {
+        final short available = (short) (getLength() - offset);
+        final short copied = available < length ? available : length;
+        if (copied <= 0) {
+            return 0;
+        }
+        Util.arrayCopyNonAtomic(bitmap, offset, buffer, bufferOffset, copied);
+        return copied;
+    }
+}
@@ -0,0 +1,175 @@
+package org.jcunit;
+
+import javacard.framework.APDU;
+import javacard.framework.Applet;
+import javacard.framework.ISO7816;
+import javacard.framework.ISOException;
+import javacard.framework.JCSystem;
+import javacard.framework.Util;
+
+/**
+ * Base class for applets which verify code against known-answer test vectors, like the test vectors of a crypto algorithm.
+ * The vectors are streamed from off-card, by {@code de.riedquat.runner.VectorStreamer}, so no test has to be written per vector.
+ * What a vector contains, like input and expected output, is up to {@link #verifyVector(byte, byte[], short, short)}.
+ * <p>
+ * The {@link #INS_VERIFY_VECTORS} command carries vectors of vector set P1, each preceded by its length, two bytes.
+ * The vectors are verified in place in the APDU buffer, so no memory is allocated.
+ * Extended length commands are read in parts, a subclass which implements {@code javacardx.apdu.ExtendedLength} can receive them,
+ * but a single vector must fit into the APDU buffer.
+ * Several commands can be chained with the command chaining bit of the CLA, a vector must not span commands.
+ * The command without the command chaining bit responds with the number of vectors of the chain, two bytes,
+ * followed by the index of the first vector in the chain which failed, two bytes, {@code FFFF} if all vectors passed.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+@SuppressWarnings("UnusedDeclaration")
+public abstract class KnownAnswerApplet extends Applet {
+
+    /**
+     * Instruction byte for verifying vectors.
+     */
+    public static final byte INS_VERIFY_VECTORS = 0x04;
+
+    /**
+     * Index of the number of vectors verified so far in the chain.
+     */
+    private static final short COUNT = 0;
+
+    /**
+     * Index of the index of the first failed vector in the chain plus 1, so that 0, to which transient memory is cleared, means none.
+     */
+    private static final short FIRST_FAILURE = 1;
+
+    /**
+     * The state of the current chain, see {@link #COUNT} and {@link #FIRST_FAILURE}.
+     * Transient, so verifying vectors does not write to EEPROM.
+     */
+    private final short[] chain = JCSystem.makeTransientShortArray((short) 2, JCSystem.CLEAR_ON_DESELECT);
+
+    /**
+     * Verifies a vector.
+     * The vector may be modified in place, for example to compute the output into it.
+     *
+     * @param set
+     *         Vector set, P1 of the command, to distinguish vectors for different code.
+     * @param buffer
+     *         Buffer with the vector, the APDU buffer.
+     * @param offset
+     *         Offset of the vector in buffer.
+     * @param length
+     *         Length of the vector.
+     * @return {@code true} if the code under test gave the known answer, otherwise {@code false}.
+     */
+    protected abstract boolean verifyVector(byte set, byte[] buffer, short offset, short length);
+
+    @Override
+    public void process(final APDU apdu) throws ISOException {
+        if (selectingApplet()) {
+            return;
+        }
+        final byte[] buffer = apdu.getBuffer();
+        if (buffer[ISO7816.OFFSET_INS] != INS_VERIFY_VECTORS) {
+            ISOException.throwIt(ISO7816.SW_INS_NOT_SUPPORTED);
+        }
+        final byte set = buffer[ISO7816.OFFSET_P1];
+        // The offset and length of the data are only defined after setIncomingAndReceive().
+        final short received = apdu.setIncomingAndReceive();
+        final short start = apdu.getOffsetCdata();
+        short remaining = (short) (getIncomingLength(buffer, start) - received);
+        if (remaining < 0) {
+            resetChain();
+            ISOException.throwIt(ISO7816.SW_WRONG_LENGTH);
+        }
+        short end = (short) (start + received);
+        short offset = start;
+        while (true) {
+            while ((short) (end - offset) >= 2) {
+                final short length = Util.getShort(buffer, offset);
+                if (length < 0 || (short) (end - offset - 2) < length) {
+                    break;
+                }
+                verify(set, buffer, (short) (offset + 2), length);
+                offset += (short) (length + 2);
+            }
+            if (remaining == 0) {
+                break;
+            }
+            // Move the incomplete vector to the start so that the rest of it can be received behind it.
+            end = Util.arrayCopyNonAtomic(buffer, offset, buffer, start, (short) (end - offset));
+            offset = start;
+            if (end == buffer.length) {
+                resetChain();
+                ISOException.throwIt(ISO7816.SW_WRONG_LENGTH);
+            }
+            final short next = apdu.receiveBytes(end);
+            end += next;
+            remaining -= next;
+        }
+        if (offset != end) {
+            resetChain();
+            ISOException.throwIt(ISO7816.SW_WRONG_DATA);
+        }
+        if (!apdu.isCommandChainingCLA()) {
+            final short count = chain[COUNT];
+            final short firstFailure = (short) (chain[FIRST_FAILURE] - 1);
+            resetChain();
+            Util.setShort(buffer, (short) 0, count);
+            Util.setShort(buffer, (short) 2, firstFailure);
+            apdu.setOutgoingAndSend((short) 0, (short) 4);
+        }
+    }
+
+    /**
+     * Returns Lc of the command, read from its header.
+     * {@link APDU#getIncomingLength()} is not used because some simulators return Lc from it as a signed byte and 0 for extended length.
+     *
+     * @param buffer
+     *         The APDU buffer.
+     * @param offsetCdata
+     *         Offset of the command data, {@link APDU#getOffsetCdata()}.
+     * @return Lc, negative if it exceeds {@link Short#MAX_VALUE}.
+     */
+    private static short getIncomingLength(final byte[] buffer, final short offsetCdata) {
+        return offsetCdata == ISO7816.OFFSET_CDATA ? (short) (buffer[ISO7816.OFFSET_LC] & 0xFF) : Util.getShort(buffer, (short) (offsetCdata - 2));
+    }
+
+    /**
+     * Verifies a vector and records the result in the state of the chain.
+     * A vector which makes the code under test throw an exception fails.
+     *
+     * @param set
+     *         Vector set.
+     * @param buffer
+     *         Buffer with the vector.
+     * @param offset
+     *         Offset of the vector in buffer.
+     * @param length
+     *         Length of the vector.
+     */
+    private void verify(final byte set, final byte[] buffer, final short offset, final short length) {
+        boolean passed;
+        try {
+            passed = verifyVector(set, buffer, offset, length);
+        } catch (final RuntimeException e) {
+            if (JCSystem.getTransactionDepth() != 0) {
+                JCSystem.abortTransaction();
+            }
+            passed = false;
+        }
+        final short count = chain[COUNT];
+        if (!passed && chain[FIRST_FAILURE] == 0) {
+            chain[FIRST_FAILURE] = (short) (count + 1);
+        }
+        chain[COUNT] = (short) (count + 1);
+    }
+
+    /**
+     * Resets the state of the chain, so that the next command starts a new chain.
+     */
+    private void resetChain() {
+        chain[COUNT] = 0;
+        chain[FIRST_FAILURE] = 0;
+    }
+}
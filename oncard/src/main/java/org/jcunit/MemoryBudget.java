@@ -0,0 +1,42 @@
+package org.jcunit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for the memory which a test case may consume, in bytes.
+ * The test runner fails a test case which consumes more memory of a type than given here.
+ * A negative value, which is the default, means that the memory of that type is not limited.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+@SuppressWarnings("UnusedDeclaration")
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface MemoryBudget {
+
+    /**
+     * Returns the persistent memory which the test case may consume.
+     *
+     * @return The persistent memory which the test case may consume, or a negative value for unlimited.
+     */
+    short persistent() default -1;
+
+    /**
+     * Returns the clear on reset transient memory which the test case may consume.
+     *
+     * @return The clear on reset transient memory which the test case may consume, or a negative value for unlimited.
+     */
+    short transientReset() default -1;
+
+    /**
+     * Returns the clear on deselect transient memory which the test case may consume.
+     *
+     * @return The clear on deselect transient memory which the test case may consume, or a negative value for unlimited.
+     */
+    short transientDeselect() default -1;
+}
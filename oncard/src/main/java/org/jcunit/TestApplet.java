@@ -0,0 +1,353 @@
+package org.jcunit;
+
+import javacard.framework.APDU;
+import javacard.framework.Applet;
+import javacard.framework.ISO7816;
+import javacard.framework.ISOException;
+import javacard.framework.JCSystem;
+import javacard.framework.Util;
+
+/**
+ * Base class for applets which run tests.
+ * A test is run either by a command with its own INS or, together with other tests, by a {@link #INS_RUN_TESTS} command.
+ * The dispatcher applets generated by {@code de.riedquat.TestDispatcherProcessor} extend this class.
+ * <p>
+ * The {@link #INS_RUN_TESTS} command runs the tests from index P1 to index P1 + P2 - 1, at most {@link #MAX_BATCH_SIZE} tests.
+ * Every test is run, even if previous tests failed.
+ * The response data is a bitmap with one bit per test, most significant bit first, which is set if the test failed,
+ * followed by the status words of the failed tests, two bytes each.
+ * For failed assertions, these status words contain the line number as described in {@link Assert#fail(short)}.
+ * <p>
+ * A command with the INS of a test and P1 = {@link #P1_SOFT_ASSERTIONS} runs the test in soft assertion mode.
+ * If an assertion failed, the command responds with the status word of the first failed assertion,
+ * and the {@link #INS_GET_FAILURES} command returns the number of failed assertions, two bytes,
+ * followed by the line numbers of the first {@link #SOFT_ASSERTION_CAPACITY} failed assertions, two bytes each.
+ * <p>
+ * A command with the INS of a test and P1 = {@link #P1_MEASURE_MEMORY} runs the test and measures how much memory it consumed,
+ * using {@link JCSystem#getAvailableMemory(short[], short, byte)} before and after the test.
+ * The response data is the status word of the test, two bytes, followed by the consumed persistent, clear on reset and clear on deselect memory,
+ * four bytes each, as signed 32 bit numbers, followed by the peak of the commit buffer used by the test, two bytes,
+ * as far as the test sampled it with {@link CommitBuffer}.
+ * <p>
+ * The {@link #INS_COVERAGE} command with P1 = {@link #P1_COVERAGE_START} and the number of probes, two bytes, as data
+ * clears the {@link Coverage} bitmap of this applet, which is allocated by the first such command.
+ * With P1 = 0, it returns block P2 of the bitmap, {@link #COVERAGE_BLOCK_SIZE} bytes per block.
+ *
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+@SuppressWarnings("UnusedDeclaration")
+public abstract class TestApplet extends Applet {
+
+    /**
+     * Instruction byte for running a batch of tests.
+     */
+    public static final byte INS_RUN_TESTS = 0x01;
+
+    /**
+     * Instruction byte for getting the line numbers of the failed soft assertions of the last test.
+     */
+    public static final byte INS_GET_FAILURES = 0x02;
+
+    /**
+     * P1 for running a test in soft assertion mode.
+     */
+    public static final byte P1_SOFT_ASSERTIONS = 0x01;
+
+    /**
+     * P1 for running a test and measuring how much memory it consumed.
+     */
+    public static final byte P1_MEASURE_MEMORY = 0x02;
+
+    /**
+     * The memory types which are measured, in the order of the response.
+     */
+    private static final byte[] MEMORY_TYPES = { JCSystem.MEMORY_TYPE_PERSISTENT, JCSystem.MEMORY_TYPE_TRANSIENT_RESET, JCSystem.MEMORY_TYPE_TRANSIENT_DESELECT };
+
+    /**
+     * Instruction byte for initializing and reading the coverage bitmap.
+     */
+    public static final byte INS_COVERAGE = 0x05;
+
+    /**
+     * P1 for initializing the coverage bitmap.
+     */
+    public static final byte P1_COVERAGE_START = 0x01;
+
+    /**
+     * The number of bytes of the coverage bitmap which are returned per command, which fits into the smallest APDU buffer.
+     */
+    public static final short COVERAGE_BLOCK_SIZE = 128;
+
+    /**
+     * The maximum number of line numbers of failed soft assertions which are recorded.
+     */
+    public static final short SOFT_ASSERTION_CAPACITY = 32;
+
+    /**
+     * The maximum number of tests which are run by one {@link #INS_RUN_TESTS} command.
+     */
+    public static final short MAX_BATCH_SIZE = 64;
+
+    /**
+     * The status words of the tests of the current batch.
+     * Transient, so recording the results does not write to EEPROM.
+     */
+    private final short[] results = JCSystem.makeTransientShortArray(MAX_BATCH_SIZE, JCSystem.CLEAR_ON_DESELECT);
+
+    /**
+     * The available memory before the test, high and low short per memory type, followed by the available memory after the test.
+     * Transient, so measuring does not write to EEPROM.
+     */
+    private final short[] availableMemory = JCSystem.makeTransientShortArray((short) (MEMORY_TYPES.length * 4), JCSystem.CLEAR_ON_DESELECT);
+
+    /**
+     * The number of failed soft assertions followed by their line numbers, see {@link Assert#useSoftAssertions(short[], boolean[])}.
+     * Allocated once per applet, so switching between test applets does not allocate transient memory.
+     */
+    private final short[] softFailures = JCSystem.makeTransientShortArray((short) (SOFT_ASSERTION_CAPACITY + 1), JCSystem.CLEAR_ON_DESELECT);
+
+    /**
+     * Whether soft assertion mode is on, at index 0.
+     */
+    private final boolean[] softMode = JCSystem.makeTransientBooleanArray((short) 1, JCSystem.CLEAR_ON_DESELECT);
+
+    /**
+     * The state of the {@link CommitBuffer} measurements of this applet, allocated once like {@link #softFailures}.
+     */
+    private final short[] commitBufferState = JCSystem.makeTransientShortArray(CommitBuffer.STATE_LENGTH, JCSystem.CLEAR_ON_DESELECT);
+
+    /**
+     * The {@link Coverage} bitmap of this applet, {@code null} until coverage is started for the first time.
+     * Clear on reset memory is not released before the card is reset, so the bitmap is reused by later runs and only replaced if it is too small.
+     */
+    private byte[] coverageBitmap;
+
+    /**
+     * Creates a TestApplet.
+     */
+    protected TestApplet() {
+        Assert.useSoftAssertions(softFailures, softMode);
+        CommitBuffer.use(commitBufferState);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Registers the soft assertion, {@link CommitBuffer} and {@link Coverage} arrays of this applet, in case another test applet registered its arrays before.
+     */
+    @Override
+    public boolean select() {
+        Assert.useSoftAssertions(softFailures, softMode);
+        CommitBuffer.use(commitBufferState);
+        if (coverageBitmap != null) {
+            Coverage.use(coverageBitmap);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of tests.
+     *
+     * @return The number of tests.
+     */
+    protected abstract short getTestCount();
+
+    /**
+     * Returns the index of the test which is run by a command.
+     *
+     * @param ins
+     *         INS of the command.
+     * @return The index of the test or {@code -1} if no test is run by that INS.
+     */
+    protected abstract short getTestIndex(byte ins);
+
+    /**
+     * Runs a test.
+     *
+     * @param index
+     *         Index of the test to run.
+     */
+    protected abstract void runTest(short index);
+
+    @Override
+    public void process(final APDU apdu) throws ISOException {
+        if (selectingApplet()) {
+            return;
+        }
+        final byte[] buffer = apdu.getBuffer();
+        final byte ins = buffer[ISO7816.OFFSET_INS];
+        if (ins == INS_RUN_TESTS) {
+            runTests(apdu);
+            return;
+        }
+        if (ins == INS_GET_FAILURES) {
+            sendFailures(apdu);
+            return;
+        }
+        if (ins == INS_COVERAGE) {
+            processCoverage(apdu);
+            return;
+        }
+        final short index = getTestIndex(ins);
+        if (index < 0) {
+            ISOException.throwIt(ISO7816.SW_INS_NOT_SUPPORTED);
+        }
+        if (buffer[ISO7816.OFFSET_P1] == P1_SOFT_ASSERTIONS) {
+            runTestSoftly(index);
+        } else if (buffer[ISO7816.OFFSET_P1] == P1_MEASURE_MEMORY) {
+            runTestMeasured(apdu, index);
+        } else {
+            runTest(index);
+        }
+    }
+
+    /**
+     * Initializes the coverage bitmap or sends a block of it.
+     *
+     * @param apdu
+     *         The command.
+     */
+    private void processCoverage(final APDU apdu) {
+        final byte[] buffer = apdu.getBuffer();
+        if (buffer[ISO7816.OFFSET_P1] == P1_COVERAGE_START) {
+            if (apdu.setIncomingAndReceive() != 2) {
+                ISOException.throwIt(ISO7816.SW_WRONG_LENGTH);
+            }
+            final short length = (short) ((short) (Util.getShort(buffer, ISO7816.OFFSET_CDATA) + 7) >> 3);
+            if (coverageBitmap == null || coverageBitmap.length < length) {
+                if (coverageBitmap != null) {
+                    coverageBitmap = null;
+                    if (JCSystem.isObjectDeletionSupported()) {
+                        JCSystem.requestObjectDeletion();
+                    }
+                }
+                coverageBitmap = JCSystem.makeTransientByteArray(length, JCSystem.CLEAR_ON_RESET);
+            }
+            Coverage.start(coverageBitmap);
+            return;
+        }
+        final short offset = (short) ((buffer[ISO7816.OFFSET_P2] & 0xFF) * COVERAGE_BLOCK_SIZE);
+        apdu.setOutgoingAndSend((short) 0, Coverage.copy(offset, buffer, (short) 0, COVERAGE_BLOCK_SIZE));
+    }
+
+    /**
+     * Runs a test in soft assertion mode.
+     *
+     * @param index
+     *         Index of the test to run.
+     */
+    private void runTestSoftly(final short index) {
+        Assert.setSoftAssertions(true);
+        short sw = runTestCatching(index);
+        Assert.setSoftAssertions(false);
+        if (sw == ISO7816.SW_NO_ERROR && Assert.getFailureCount() != 0) {
+            sw = Assert.getStatusWord(Assert.getFailure((short) 0));
+        }
+        if (sw != ISO7816.SW_NO_ERROR) {
+            ISOException.throwIt(sw);
+        }
+    }
+
+    /**
+     * Runs a test, measures how much memory and commit buffer it consumed and sends the result.
+     *
+     * @param apdu
+     *         The command.
+     * @param index
+     *         Index of the test to run.
+     */
+    private void runTestMeasured(final APDU apdu, final short index) {
+        final short after = (short) (MEMORY_TYPES.length * 2);
+        for (short i = 0; i < MEMORY_TYPES.length; i++) {
+            JCSystem.getAvailableMemory(availableMemory, (short) (i * 2), MEMORY_TYPES[i]);
+        }
+        CommitBuffer.resetPeak();
+        final short sw = runTestCatching(index);
+        for (short i = 0; i < MEMORY_TYPES.length; i++) {
+            JCSystem.getAvailableMemory(availableMemory, (short) (after + i * 2), MEMORY_TYPES[i]);
+        }
+        final byte[] buffer = apdu.getBuffer();
+        short length = Util.setShort(buffer, (short) 0, sw);
+        for (short i = 0; i < after; i += 2) {
+            // consumed = before - after, as 32 bit subtraction of high and low shorts.
+            final short beforeLo = availableMemory[(short) (i + 1)];
+            final short afterLo = availableMemory[(short) (after + i + 1)];
+            final short borrow = AssertWide.compareUnsigned(beforeLo, afterLo) < 0 ? (short) 1 : (short) 0;
+            length = Util.setShort(buffer, length, (short) (availableMemory[i] - availableMemory[(short) (after + i)] - borrow));
+            length = Util.setShort(buffer, length, (short) (beforeLo - afterLo));
+        }
+        length = Util.setShort(buffer, length, CommitBuffer.getPeak());
+        apdu.setOutgoingAndSend((short) 0, length);
+    }
+
+    /**
+     * Sends the line numbers of the failed soft assertions of the last test.
+     *
+     * @param apdu
+     *         The {@link #INS_GET_FAILURES} command.
+     */
+    private void sendFailures(final APDU apdu) {
+        final byte[] buffer = apdu.getBuffer();
+        final short count = Assert.getRecordedFailureCount();
+        short length = Util.setShort(buffer, (short) 0, Assert.getFailureCount());
+        for (short i = 0; i < count; i++) {
+            length = Util.setShort(buffer, length, Assert.getFailure(i));
+        }
+        apdu.setOutgoingAndSend((short) 0, length);
+    }
+
+    /**
+     * Runs a batch of tests and sends the results.
+     *
+     * @param apdu
+     *         The {@link #INS_RUN_TESTS} command.
+     */
+    private void runTests(final APDU apdu) {
+        final byte[] buffer = apdu.getBuffer();
+        final short first = (short) (buffer[ISO7816.OFFSET_P1] & 0xFF);
+        final short count = (short) (buffer[ISO7816.OFFSET_P2] & 0xFF);
+        if (count == 0 || count > MAX_BATCH_SIZE || (short) (first + count) > getTestCount()) {
+            ISOException.throwIt(ISO7816.SW_WRONG_P1P2);
+        }
+        for (short i = 0; i < count; i++) {
+            results[i] = runTestCatching((short) (first + i));
+        }
+        final short bitmapLength = (short) ((short) (count + 7) >> 3);
+        short length = bitmapLength;
+        for (short i = 0; i < bitmapLength; i++) {
+            buffer[i] = 0;
+        }
+        for (short i = 0; i < count; i++) {
+            if (results[i] != ISO7816.SW_NO_ERROR) {
+                buffer[(short) (i >> 3)] |= (byte) (0x80 >> (i & 7));
+                buffer[length++] = (byte) (results[i] >> 8);
+                buffer[length++] = (byte) results[i];
+            }
+        }
+        apdu.setOutgoingAndSend((short) 0, length);
+    }
+
+    /**
+     * Runs a test and returns its status word instead of throwing it.
+     * A transaction which the test left open is aborted.
+     *
+     * @param index
+     *         Index of the test to run.
+     * @return The status word of the test.
+     */
+    private short runTestCatching(final short index) {
+        short sw = ISO7816.SW_NO_ERROR;
+        try {
+            runTest(index);
+        } catch (final ISOException e) {
+            sw = e.getReason();
+        } catch (final RuntimeException e) {
+            sw = ISO7816.SW_UNKNOWN;
+        }
+        if (JCSystem.getTransactionDepth() != 0) {
+            JCSystem.abortTransaction();
+        }
+        return sw;
+    }
+}
@@ -1,6 +1,7 @@
 package org.jcunit.intx;
 
 import static org.jcunit.Assert.assertTrue;
+import static org.jcunit.Assert.fail;
 
 /**
  * Provides int assertion facilities for Java Card.
@@ -45,9 +46,15 @@ public class AssertInt {
      * @since 1.0
      */
     public static void assertArrayEquals(final short lineNumber, final int[] expecteds, final int[] actuals) {
-        assertEquals(lineNumber, expecteds.length, actuals.length);
+        if (expecteds.length != actuals.length) {
+            fail(lineNumber);
+            return;
+        }
         for (short index = 0; index < expecteds.length; index++) {
-            assertEquals(lineNumber, expecteds[index], actuals[index]);
+            if (expecteds[index] != actuals[index]) {
+                fail(lineNumber);
+                return;
+            }
         }
     }
 }
@@ -0,0 +1,109 @@
+package test.org.jcunit;
+
+import org.jcunit.AssertWide;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit Test for {@link AssertWide}, run with the Java Card API of jCardSim.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class AssertWideTest {
+
+    @Test
+    public void testComparesEqualNumbers() {
+        final byte[] a = { 0x12, 0x34, 0x56 };
+        final byte[] b = { 0x12, 0x34, 0x56 };
+        assertEquals(0, compare(a, b));
+        assertEquals(0, compare(new byte[0], new byte[0]));
+    }
+
+    @Test
+    public void testIgnoresLeadingZeros() {
+        final byte[] shortNumber = { 0x12, 0x34 };
+        final byte[] longNumber = { 0x00, 0x00, 0x12, 0x34 };
+        assertEquals(0, compare(shortNumber, longNumber));
+        assertEquals(0, compare(longNumber, shortNumber));
+        assertEquals(0, compare(new byte[] { 0x00, 0x00 }, new byte[0]));
+        assertEquals(-1, compare(shortNumber, new byte[] { 0x00, 0x00, 0x12, 0x35 }));
+        assertEquals(1, compare(new byte[] { 0x00, 0x00, 0x12, 0x35 }, shortNumber));
+    }
+
+    @Test
+    public void testLongerNumberWithoutLeadingZerosIsGreater() {
+        final byte[] shortNumber = { (byte) 0xFF, (byte) 0xFF };
+        final byte[] longNumber = { 0x00, 0x01, 0x00, 0x00 };
+        assertEquals(-1, compare(shortNumber, longNumber));
+        assertEquals(1, compare(longNumber, shortNumber));
+    }
+
+    @Test
+    public void testComparesFirstByte() {
+        assertEquals(-1, compare(new byte[] { 0x01, 0x00, 0x00 }, new byte[] { 0x02, 0x00, 0x00 }));
+        assertEquals(1, compare(new byte[] { 0x02, 0x00, 0x00 }, new byte[] { 0x01, 0x00, 0x00 }));
+        // The bytes are unsigned, so 0x80 is greater than 0x7F.
+        assertEquals(1, compare(new byte[] { (byte) 0x80, 0x00 }, new byte[] { 0x7F, (byte) 0xFF }));
+        assertEquals(-1, compare(new byte[] { 0x7F, (byte) 0xFF }, new byte[] { (byte) 0x80, 0x00 }));
+    }
+
+    @Test
+    public void testComparesLastByte() {
+        assertEquals(-1, compare(new byte[] { 0x12, 0x34, 0x00 }, new byte[] { 0x12, 0x34, 0x01 }));
+        assertEquals(1, compare(new byte[] { 0x12, 0x34, (byte) 0xFF }, new byte[] { 0x12, 0x34, 0x7F }));
+        assertEquals(-1, compare(new byte[] { 0x00, 0x12, 0x34, 0x00 }, new byte[] { 0x12, 0x34, 0x01 }));
+    }
+
+    @Test
+    public void testComparesWithOffsets() {
+        final byte[] a = { 0x55, 0x00, 0x12, 0x34, 0x55 };
+        final byte[] b = { 0x12, 0x33 };
+        assertEquals(1, AssertWide.compareUnsigned(a, (short) 1, (short) 3, b, (short) 0, (short) 2));
+        assertEquals(0, AssertWide.compareUnsigned(a, (short) 2, (short) 2, a, (short) 1, (short) 3));
+    }
+
+    @Test
+    public void testComparesShortsUnsigned() {
+        assertEquals(1, AssertWide.compareUnsigned((short) 0x8000, (short) 0x7FFF));
+        assertEquals(-1, AssertWide.compareUnsigned((short) 0x7FFF, (short) 0x8000));
+        assertEquals(1, AssertWide.compareUnsigned((short) 0xFFFF, (short) 0x0000));
+        assertEquals(0, AssertWide.compareUnsigned((short) 0x8000, (short) 0x8000));
+    }
+
+    @Test
+    public void testCompares32Signed() {
+        // 0x80000000 is the smallest and 0x7FFFFFFF the greatest signed 32 bit number.
+        assertEquals(-1, AssertWide.compare32((short) 0x8000, (short) 0x0000, (short) 0x7FFF, (short) 0xFFFF));
+        assertEquals(1, AssertWide.compare32((short) 0x7FFF, (short) 0xFFFF, (short) 0x8000, (short) 0x0000));
+        assertEquals(-1, AssertWide.compare32((short) 0xFFFF, (short) 0xFFFF, (short) 0x0000, (short) 0x0000));
+        // The low short is unsigned: 0x00008000 is greater than 0x00007FFF.
+        assertEquals(1, AssertWide.compare32((short) 0x0000, (short) 0x8000, (short) 0x0000, (short) 0x7FFF));
+        assertEquals(-1, AssertWide.compare32((short) 0x0000, (short) 0x7FFF, (short) 0x0000, (short) 0x8000));
+        assertEquals(0, AssertWide.compare32((short) 0x8000, (short) 0x7FFF, (short) 0x8000, (short) 0x7FFF));
+    }
+
+    @Test
+    public void testCompares32Unsigned() {
+        assertEquals(1, AssertWide.compareUnsigned32((short) 0x8000, (short) 0x0000, (short) 0x7FFF, (short) 0xFFFF));
+        assertEquals(-1, AssertWide.compareUnsigned32((short) 0x7FFF, (short) 0xFFFF, (short) 0x8000, (short) 0x0000));
+        assertEquals(1, AssertWide.compareUnsigned32((short) 0xFFFF, (short) 0xFFFF, (short) 0x0000, (short) 0x0000));
+        assertEquals(1, AssertWide.compareUnsigned32((short) 0x0000, (short) 0x8000, (short) 0x0000, (short) 0x7FFF));
+        assertEquals(-1, AssertWide.compareUnsigned32((short) 0x0000, (short) 0x7FFF, (short) 0x0000, (short) 0x8000));
+        assertEquals(0, AssertWide.compareUnsigned32((short) 0x8000, (short) 0x7FFF, (short) 0x8000, (short) 0x7FFF));
+    }
+
+    /**
+     * Compares two whole arrays with {@link AssertWide#compareUnsigned(byte[], short, short, byte[], short, short)}.
+     *
+     * @param a
+     *         First number.
+     * @param b
+     *         Second number.
+     * @return The result of the comparison.
+     */
+    private static byte compare(final byte[] a, final byte[] b) {
+        return AssertWide.compareUnsigned(a, (short) 0, (short) a.length, b, (short) 0, (short) b.length);
+    }
+}
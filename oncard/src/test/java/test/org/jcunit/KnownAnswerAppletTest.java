@@ -0,0 +1,195 @@
+package test.org.jcunit;
+
+import com.licel.jcardsim.base.Simulator;
+import javacard.framework.AID;
+import javacard.framework.ISOException;
+import javacardx.apdu.ExtendedLength;
+import org.jcunit.KnownAnswerApplet;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Unit Test for {@link KnownAnswerApplet}, run on jCardSim 3, which supports extended length for applets implementing {@link ExtendedLength}.
+ * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+ * @version 1.0
+ * @since 1.0
+ */
+public class KnownAnswerAppletTest {
+
+    /**
+     * The AID of the applet.
+     */
+    private static final byte[] AID_BYTES = { (byte) 0xF0, 0x4A, 0x43, 0x55, 0x04 };
+
+    /**
+     * The AID of the applet which supports extended length.
+     */
+    private static final byte[] EXTENDED_AID_BYTES = { (byte) 0xF0, 0x4A, 0x43, 0x55, 0x05 };
+
+    /**
+     * The simulator.
+     */
+    private Simulator simulator;
+
+    @Before
+    public void setUp() {
+        simulator = new Simulator();
+        final AID aid = new AID(AID_BYTES, (short) 0, (byte) AID_BYTES.length);
+        simulator.installApplet(aid, ChecksumApplet.class);
+        simulator.installApplet(new AID(EXTENDED_AID_BYTES, (short) 0, (byte) EXTENDED_AID_BYTES.length), ExtendedChecksumApplet.class);
+        simulator.selectApplet(aid);
+    }
+
+    @Test
+    public void testVerifiesVectorsOfCommandWithLongData() {
+        // 10 vectors of 20 bytes with length prefix are 220 bytes, so Lc is more than 127.
+        final byte[] data = new byte[10 * 22];
+        for (int i = 0; i < 10; i++) {
+            vector(data, i * 22, 20, i, i == 3);
+        }
+        assertArrayEquals(new byte[] { 0x00, 0x0A, 0x00, 0x03, (byte) 0x90, 0x00 }, transmit(0x80, data));
+    }
+
+    @Test
+    public void testCountsVectorsOfChain() {
+        final byte[] first = new byte[2 * 10];
+        vector(first, 0, 8, 1, false);
+        vector(first, 10, 8, 2, false);
+        assertArrayEquals(new byte[] { (byte) 0x90, 0x00 }, transmit(0x90, first));
+        final byte[] last = new byte[10];
+        vector(last, 0, 8, 3, false);
+        assertArrayEquals(new byte[] { 0x00, 0x03, (byte) 0xFF, (byte) 0xFF, (byte) 0x90, 0x00 }, transmit(0x80, last));
+    }
+
+    @Test
+    public void testVerifiesVectorsOfExtendedLengthCommand() {
+        simulator.selectApplet(new AID(EXTENDED_AID_BYTES, (short) 0, (byte) EXTENDED_AID_BYTES.length));
+        // 40 vectors of 20 bytes with length prefix are 880 bytes, more than a short APDU and the buffer of many cards can hold.
+        final byte[] data = new byte[40 * 22];
+        for (int i = 0; i < 40; i++) {
+            vector(data, i * 22, 20, i, i == 37);
+        }
+        final byte[] command = new byte[7 + data.length];
+        command[0] = (byte) 0x80;
+        command[1] = KnownAnswerApplet.INS_VERIFY_VECTORS;
+        command[5] = (byte) (data.length >> 8);
+        command[6] = (byte) data.length;
+        System.arraycopy(data, 0, command, 7, data.length);
+        assertArrayEquals(new byte[] { 0x00, 0x28, 0x00, 0x25, (byte) 0x90, 0x00 }, simulator.transmitCommand(command));
+    }
+
+    @Test
+    public void testRejectsVectorSpanningCommands() {
+        final byte[] data = new byte[10];
+        vector(data, 0, 12, 1, false);
+        assertArrayEquals(new byte[] { 0x6A, (byte) 0x80 }, transmit(0x80, data));
+    }
+
+    /**
+     * Writes a vector for {@link ChecksumApplet} with its length.
+     *
+     * @param data
+     *         Array to which to write the vector.
+     * @param offset
+     *         Offset in data at which to write the length of the vector.
+     * @param length
+     *         Length of the vector, its last byte is the checksum.
+     * @param seed
+     *         Seed for the content of the vector.
+     * @param wrong
+     *         Whether the checksum is wrong.
+     */
+    private static void vector(final byte[] data, final int offset, final int length, final int seed, final boolean wrong) {
+        data[offset] = (byte) (length >> 8);
+        data[offset + 1] = (byte) length;
+        byte sum = 0;
+        for (int i = 0; i < length - 1 && offset + 2 + i < data.length; i++) {
+            data[offset + 2 + i] = (byte) (seed * 31 + i);
+            sum += data[offset + 2 + i];
+        }
+        if (offset + 1 + length < data.length) {
+            data[offset + 1 + length] = (byte) (wrong ? sum + 1 : sum);
+        }
+    }
+
+    /**
+     * Transmits an {@link KnownAnswerApplet#INS_VERIFY_VECTORS} command.
+     *
+     * @param cla
+     *         CLA of the command.
+     * @param data
+     *         Command data, at most 255 bytes.
+     * @return The response, including the status word.
+     */
+    private byte[] transmit(final int cla, final byte[] data) {
+        final byte[] command = new byte[5 + data.length];
+        command[0] = (byte) cla;
+        command[1] = KnownAnswerApplet.INS_VERIFY_VECTORS;
+        command[4] = (byte) data.length;
+        System.arraycopy(data, 0, command, 5, data.length);
+        return simulator.transmitCommand(command);
+    }
+
+    /**
+     * KnownAnswerApplet whose vectors end with the sum of their other bytes.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    public static class ChecksumApplet extends KnownAnswerApplet {
+
+        /**
+         * Installs this applet.
+         *
+         * @param bArray
+         *         the array containing the installation parameters.
+         * @param bOffset
+         *         the starting offset in bArray.
+         * @param bLength
+         *         the length in bytes of the parameter data in bArray.
+         * @throws ISOException
+         *         if the install method failed.
+         */
+        public static void install(final byte[] bArray, final short bOffset, final byte bLength) throws ISOException {
+            new ChecksumApplet().register();
+        }
+
+        @Override
+        protected boolean verifyVector(final byte set, final byte[] buffer, final short offset, final short length) {
+            byte sum = 0;
+            for (short i = 0; i < (short) (length - 1); i++) {
+                sum += buffer[(short) (offset + i)];
+            }
+            return buffer[(short) (offset + length - 1)] == sum;
+        }
+    }
+
+    /**
+     * ChecksumApplet which receives extended length commands.
+     *
+     * @author <a href="mailto:cher@riedquat.de">Christian Hujer</a>
+     * @version 1.0
+     * @since 1.0
+     */
+    public static class ExtendedChecksumApplet extends ChecksumApplet implements ExtendedLength {
+
+        /**
+         * Installs this applet.
+         *
+         * @param bArray
+         *         the array containing the installation parameters.
+         * @param bOffset
+         *         the starting offset in bArray.
+         * @param bLength
+         *         the length in bytes of the parameter data in bArray.
+         * @throws ISOException
+         *         if the install method failed.
+         */
+        public static void install(final byte[] bArray, final short bOffset, final byte bLength) throws ISOException {
+            new ExtendedChecksumApplet().register();
+        }
+    }
+}